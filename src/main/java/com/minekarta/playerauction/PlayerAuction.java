@@ -3,15 +3,19 @@ package com.minekarta.playerauction;
 import com.minekarta.playerauction.auction.AuctionService;
 import com.minekarta.playerauction.commands.AuctionCommand;
 import com.minekarta.playerauction.commands.AdminCommand;
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
 import com.minekarta.playerauction.config.ConfigManager;
 import com.minekarta.playerauction.economy.EconomyRouter;
-import com.minekarta.playerauction.mailbox.JsonMailboxStorage;
+import com.minekarta.playerauction.gui.AuctionRenderCache;
 import com.minekarta.playerauction.mailbox.MailboxService;
 import com.minekarta.playerauction.mailbox.MailboxStorage;
 import com.minekarta.playerauction.notification.BroadcastManager;
+import com.minekarta.playerauction.players.PlayerNameListener;
 import com.minekarta.playerauction.storage.AuctionStorage;
+import com.minekarta.playerauction.storage.ItemBlobStore;
 import com.minekarta.playerauction.storage.StorageFactory;
 import com.minekarta.playerauction.tasks.AuctionExpirer;
+import com.minekarta.playerauction.tasks.ItemReencoder;
 import com.minekarta.playerauction.util.PlayerNameCache;
 import com.minekarta.playerauction.notification.NotificationManager;
 import com.minekarta.playerauction.transaction.TransactionLogger;
@@ -22,24 +26,35 @@ import org.bukkit.command.CommandSender;
 import org.incendo.cloud.paper.LegacyPaperCommandManager;
 import org.incendo.cloud.execution.ExecutionCoordinator;
 
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.TimeUnit;
 
 public class PlayerAuction extends JavaPlugin {
 
+    // Vault providers often block on their own database
+    private static final int ECONOMY_THREADS = 4;
+
     private LegacyPaperCommandManager<CommandSender> commandManager;
 
+    private ExecutorRegistry executors;
     private ExecutorService asyncExecutor;
     private AuctionService auctionService;
     private MailboxService mailboxService;
     private EconomyRouter economyRouter;
     private ConfigManager configManager;
     private PlayerNameCache playerNameCache;
+    private AuctionRenderCache auctionRenderCache;
     private NotificationManager notificationManager;
     private BroadcastManager broadcastManager;
     private TransactionLogger transactionLogger;
     private PlayerSettingsService playerSettingsService;
+    private AuctionStorage auctionStorage;
+    private TransactionStorage transactionStorage;
+    private MailboxStorage mailboxStorage;
+    private StorageFactory storageFactory;
 
     @Override
     public void onEnable() {
@@ -53,24 +68,31 @@ public class PlayerAuction extends JavaPlugin {
         broadcastManager = new BroadcastManager(this, configManager);
 
         // 2. Setup Thread Pool
-        asyncExecutor = Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors(),
-                new ThreadFactoryBuilder().setNameFormat("PlayerAuction-Worker-%d").build());
+        executors = ExecutorRegistry.fromConfig(
+                configManager.getConfig().getConfigurationSection("threads"), getLogger());
+        asyncExecutor = executors.newWorkerPool("PlayerAuction-Worker", Runtime.getRuntime().availableProcessors());
+        ExecutorService economyExecutor = executors.newWorkerPool("PlayerAuction-Economy", ECONOMY_THREADS);
 
-        // 3. Initialize JSON Storage
-        AuctionStorage auctionStorage = StorageFactory.createAuctionStorage(this);
-        TransactionStorage transactionStorage = StorageFactory.createTransactionStorage(this);
-        MailboxStorage mailboxStorage = new JsonMailboxStorage(this);
+        // 3. Initialize Storage (JSON or SQLite, see storage.type)
+        storageFactory = new StorageFactory(this, configManager.getConfig().getConfigurationSection("storage"),
+                executors);
+        auctionStorage = storageFactory.createAuctionStorage();
+        transactionStorage = storageFactory.createTransactionStorage();
+        mailboxStorage = storageFactory.createMailboxStorage();
 
-        // Initialize storage async
-        asyncExecutor.submit(() -> {
+        // Initialize storage async, then import any JSON data left from before a switch to SQLite.
+        // Item references are counted last, once every record is in place
+        CompletableFuture<Void> storageReady = CompletableFuture.runAsync(() -> {
+            storageFactory.initItemStore();
             auctionStorage.init();
             transactionStorage.init();
             mailboxStorage.init();
-        });
+            storageFactory.migrateIfNeeded();
+            storageFactory.countItemReferences(auctionStorage, transactionStorage, mailboxStorage);
+        }, asyncExecutor);
 
         // 4. Initialize Economy
-        economyRouter = new EconomyRouter(this, configManager);
+        economyRouter = new EconomyRouter(this, configManager, economyExecutor);
         if (!economyRouter.hasService()) {
             getLogger().severe("Disabling PlayerAuction due to no economy provider being found.");
             getServer().getPluginManager().disablePlugin(this);
@@ -78,7 +100,10 @@ public class PlayerAuction extends JavaPlugin {
         }
 
         // 5. Initialize Caches & Services
-        playerNameCache = new PlayerNameCache(asyncExecutor);
+        playerNameCache = new PlayerNameCache(getDataFolder(),
+                configManager.getConfig().getInt("player-names.cache-size", 10000), asyncExecutor,
+                executors.newSerialExecutor("PlayerNames-Thread"), getLogger());
+        auctionRenderCache = new AuctionRenderCache(this);
         transactionLogger = new TransactionLogger(transactionStorage);
         mailboxService = new MailboxService(this, mailboxStorage, economyRouter);
         auctionService = new AuctionService(this, asyncExecutor, auctionStorage, economyRouter, configManager,
@@ -106,13 +131,54 @@ public class PlayerAuction extends JavaPlugin {
 
         new AuctionCommand(this, commandManager, auctionService, configManager, playerSettingsService);
         new AdminCommand(this, commandManager, configManager);
+        getServer().getPluginManager().registerEvents(new PlayerNameListener(playerNameCache), this);
 
         // 7. Start Tasks
-        new AuctionExpirer(auctionService).runTaskTimerAsynchronously(this, 20 * 30, 20 * 30); // Every 30 seconds
+        // Expire auctions within a tick of their deadline once the deadlines are loaded
+        AuctionExpirer auctionExpirer = auctionService.getAuctionExpirer();
+        storageReady.thenCompose(v -> auctionExpirer.loadActive()).whenComplete((loaded, ex) -> {
+            if (ex != null) {
+                getLogger().severe("Failed to load auction deadlines: " + ex.getMessage());
+                ex.printStackTrace();
+            } else {
+                getLogger().info("Scheduled expiry for " + loaded + " active auctions.");
+            }
+        });
+        auctionExpirer.runTaskTimerAsynchronously(this, 1, 1); // Every tick
+        // Returned items go to the mailbox first; hand them to online owners on the main thread
+        mailboxService.getDeliverer().runTaskTimer(this, 1, 1); // Every tick
+
+        // Look up the names of all current sellers up front, so browsing never waits for one
+        storageReady.thenCompose(v -> auctionStorage.findActiveSellers())
+                .thenCompose(playerNameCache::prefetchNames)
+                .whenComplete((fetched, ex) -> {
+                    if (ex != null) {
+                        getLogger().severe("Failed to prefetch seller names: " + ex.getMessage());
+                        ex.printStackTrace();
+                    } else if (fetched > 0) {
+                        getLogger().info("Looked up " + fetched + " seller names.");
+                    }
+                });
 
-        // 8. Start Mailbox Cleanup Task (runs every hour)
+        // Convert items stored by older versions to the compact format, in the background
+        if (configManager.getConfig().getBoolean("storage.reencode-legacy-items", true)) {
+            ItemReencoder itemReencoder = new ItemReencoder(getLogger())
+                    .add("items", storageFactory.getItemBlobStore()::reencodeLegacy);
+            storageReady.thenCompose(v -> itemReencoder.run()).exceptionally(ex -> {
+                getLogger().severe("Failed to convert stored items: " + ex.getMessage());
+                ex.printStackTrace();
+                return 0;
+            });
+        }
+
+        // Safety-net sweep for expired auctions the expirer does not track (every 5 minutes)
+        getServer().getScheduler().runTaskTimerAsynchronously(this, auctionService::processExpiredAuctions,
+                20 * 60 * 5, 20 * 60 * 5);
+
+        // 8. Start Mailbox Cleanup Task (runs every hour); flushing also deletes the items no longer referenced
         getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
-            mailboxService.cleanupExpiredItems();
+            mailboxService.cleanupExpiredItems().thenCompose(deleted -> deleted > 0
+                    ? flushStorages() : CompletableFuture.completedFuture(null));
         }, 20 * 60 * 60, 20 * 60 * 60); // Every hour
 
         getLogger().info("PlayerAuctions has been enabled!");
@@ -120,12 +186,50 @@ public class PlayerAuction extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        if (asyncExecutor != null) {
-            asyncExecutor.shutdownNow();
+        // No new expirations or sweeps; let work already queued finish, then flush
+        getServer().getScheduler().cancelTasks(this);
+        Duration drain = Duration.ofSeconds(configManager != null
+                ? configManager.getConfig().getInt("threads.shutdown-drain-seconds", 10) : 10);
+        if (executors != null) {
+            executors.shutdownWorkers(drain);
+        }
+        // Write-behind storages may still hold changes in memory
+        try {
+            flushStorages().get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            getLogger().severe("Failed to flush storage on shutdown: " + e.getMessage());
+        }
+        if (storageFactory != null) {
+            storageFactory.close();
+        }
+        if (executors != null) {
+            executors.shutdown(drain);
+        }
+        if (playerNameCache != null) {
+            playerNameCache.close();
         }
         getLogger().info("PlayerAuctions has been disabled!");
     }
 
+    /**
+     * Writes any changes the storages still buffer in memory to disk, then deletes
+     * the stored items the written changes no longer refer to.
+     */
+    public CompletableFuture<Void> flushStorages() {
+        ItemBlobStore itemBlobs = storageFactory != null ? storageFactory.getItemBlobStore() : null;
+        // Taken before flushing, so the deletions that released them are on disk by the sweep
+        Set<String> released = itemBlobs != null ? itemBlobs.takeReleased() : Set.of();
+        return CompletableFuture.allOf(
+                auctionStorage != null ? auctionStorage.flush() : CompletableFuture.completedFuture(null),
+                transactionStorage != null ? transactionStorage.flush() : CompletableFuture.completedFuture(null),
+                mailboxStorage != null ? mailboxStorage.flush() : CompletableFuture.completedFuture(null))
+                .thenRun(() -> {
+                    if (itemBlobs != null) {
+                        itemBlobs.sweep(released);
+                    }
+                });
+    }
+
     // Public getters for services if needed by other parts of the plugin (e.g.,
     // GUIs)
     public AuctionService getAuctionService() {
@@ -148,6 +252,10 @@ public class PlayerAuction extends JavaPlugin {
         return playerNameCache;
     }
 
+    public AuctionRenderCache getAuctionRenderCache() {
+        return auctionRenderCache;
+    }
+
     public NotificationManager getNotificationManager() {
         return notificationManager;
     }
@@ -164,6 +272,14 @@ public class PlayerAuction extends JavaPlugin {
         return playerSettingsService;
     }
 
+    public StorageFactory getStorageFactory() {
+        return storageFactory;
+    }
+
+    public ExecutorRegistry getExecutors() {
+        return executors;
+    }
+
     public ExecutorService getAsyncExecutor() {
         return asyncExecutor;
     }
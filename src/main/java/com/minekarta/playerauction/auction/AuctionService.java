@@ -1,30 +1,40 @@
 package com.minekarta.playerauction.auction;
 
 import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
 import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.ItemMetadata;
 import com.minekarta.playerauction.common.SerializedItem;
 import com.minekarta.playerauction.config.ConfigManager;
 import com.minekarta.playerauction.economy.EconomyRouter;
 import com.minekarta.playerauction.economy.EconomyService;
 import com.minekarta.playerauction.notification.NotificationManager;
 import com.minekarta.playerauction.storage.AuctionStorage;
+import com.minekarta.playerauction.tasks.AuctionExpirer;
 import java.util.Map;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class AuctionService {
 
+    // Attempts at storing expired items in the mailboxes, the n-th retry after n times the delay
+    private static final int RETURN_ATTEMPTS = 5;
+    private static final long RETURN_RETRY_DELAY_SECONDS = 30;
+
     private final JavaPlugin plugin;
     private final Executor asyncExecutor;
     private final AuctionStorage auctionStorage;
@@ -33,8 +43,10 @@ public class AuctionService {
     private final NotificationManager notificationManager;
     private final com.minekarta.playerauction.transaction.TransactionLogger transactionLogger;
     private final com.minekarta.playerauction.mailbox.MailboxService mailboxService;
+    private final AuctionExpirer auctionExpirer;
 
-    private final ConcurrentHashMap<UUID, ReentrantLock> auctionLocks = new ConcurrentHashMap<>();
+    // Per auction: completes when the last queued operation on it has finished
+    private final ConcurrentHashMap<UUID, CompletableFuture<Void>> auctionQueues = new ConcurrentHashMap<>();
 
     public AuctionService(JavaPlugin plugin, Executor asyncExecutor, AuctionStorage auctionStorage,
             EconomyRouter economyRouter, ConfigManager configManager, NotificationManager notificationManager,
@@ -48,6 +60,7 @@ public class AuctionService {
         this.notificationManager = notificationManager;
         this.transactionLogger = transactionLogger;
         this.mailboxService = mailboxService;
+        this.auctionExpirer = new AuctionExpirer(this);
     }
 
     public CompletableFuture<Boolean> createListing(Player player, ItemStack item, double price, Double buyNowPrice,
@@ -57,6 +70,7 @@ public class AuctionService {
                 UUID.randomUUID(),
                 player.getUniqueId(),
                 serializedItem,
+                ItemMetadata.of(item), // Captured once so storage never has to decode the item
                 price,
                 buyNowPrice,
                 reservePrice,
@@ -66,7 +80,10 @@ public class AuctionService {
                 1 // Initial version
         );
 
-        return auctionStorage.insertAuction(auction).thenApply(v -> true).exceptionally(ex -> {
+        return auctionStorage.insertAuction(auction).thenApply(v -> {
+            auctionExpirer.schedule(auction);
+            return true;
+        }).exceptionally(ex -> {
             plugin.getLogger().warning("Failed to create auction for " + player.getName());
             ex.printStackTrace();
             return false;
@@ -74,7 +91,7 @@ public class AuctionService {
     }
 
     public CompletableFuture<Boolean> buyItem(Player buyer, UUID auctionId) {
-        return executeWithLock(auctionId, () -> {
+        return executeSerially(auctionId, () -> {
             EconomyService economy = economyRouter.getService();
             return auctionStorage.findById(auctionId).thenCompose(optAuction -> {
                 if (optAuction.isEmpty() || optAuction.get().status() != AuctionStatus.ACTIVE) {
@@ -108,10 +125,7 @@ public class AuctionService {
                                     .thenCompose(withdrawn -> {
                                         if (!withdrawn) {
                                             // Rollback: restore auction to ACTIVE
-                                            Auction rollbackAuction = auction.withStatus(AuctionStatus.ACTIVE)
-                                                    .withIncrementedVersion();
-                                            auctionStorage.updateAuctionIfVersionMatches(rollbackAuction,
-                                                    reservedAuction.version());
+                                            restoreActive(reservedAuction);
                                             buyer.sendMessage(
                                                     configManager.getPrefixedMessage("errors.not-enough-money"));
                                             return CompletableFuture.completedFuture(false);
@@ -165,10 +179,7 @@ public class AuctionService {
                                                                 notificationManager.sendNotification(seller,
                                                                         "auction.sold", Map.of(
                                                                                 "%item%",
-                                                                                auction.item().toItemStack() != null
-                                                                                        ? auction.item().toItemStack()
-                                                                                                .getType().toString()
-                                                                                        : "Unknown",
+                                                                                auction.itemMetadata().material(),
                                                                                 "%price%",
                                                                                 economy.format(sellerAmount)));
                                                             }
@@ -185,15 +196,13 @@ public class AuctionService {
                                                                         : plugin.getServer()
                                                                                 .getOfflinePlayer(auction.seller())
                                                                                 .getName();
-                                                                ItemStack itemStack = auction.item().toItemStack();
+                                                                ItemMetadata itemMetadata = auction.itemMetadata();
 
                                                                 broadcastManager.broadcastPurchase(
                                                                         buyer.getName(),
                                                                         sellerName,
-                                                                        itemStack != null
-                                                                                ? itemStack.getType().toString()
-                                                                                : "Unknown",
-                                                                        itemStack != null ? itemStack.getAmount() : 1,
+                                                                        itemMetadata.material(),
+                                                                        Math.max(1, itemMetadata.amount()),
                                                                         economy.format(buyPrice),
                                                                         buyer.getWorld());
                                                             }
@@ -215,10 +224,7 @@ public class AuctionService {
                                                             "Refund - seller deposit failed");
 
                                                     // Rollback auction to ACTIVE
-                                                    Auction rollbackAuction = auction.withStatus(AuctionStatus.ACTIVE)
-                                                            .withIncrementedVersion();
-                                                    auctionStorage.updateAuctionIfVersionMatches(rollbackAuction,
-                                                            reservedAuction.version());
+                                                    restoreActive(reservedAuction);
 
                                                     buyer.sendMessage(
                                                             configManager.getPrefixedMessage("errors.buy-fail"));
@@ -229,10 +235,7 @@ public class AuctionService {
                                         // Withdrawal failed - rollback auction
                                         plugin.getLogger().severe("Withdrawal failed for auction " + auction.id() + ": "
                                                 + ex.getMessage());
-                                        Auction rollbackAuction = auction.withStatus(AuctionStatus.ACTIVE)
-                                                .withIncrementedVersion();
-                                        auctionStorage.updateAuctionIfVersionMatches(rollbackAuction,
-                                                reservedAuction.version());
+                                        restoreActive(reservedAuction);
 
                                         buyer.sendMessage(configManager.getPrefixedMessage("errors.buy-fail"));
                                         return false;
@@ -243,7 +246,7 @@ public class AuctionService {
     }
 
     public CompletableFuture<Boolean> cancelAuction(Player player, UUID auctionId) {
-        return executeWithLock(auctionId, () -> auctionStorage.findById(auctionId).thenCompose(optAuction -> {
+        return executeSerially(auctionId, () -> auctionStorage.findById(auctionId).thenCompose(optAuction -> {
             if (optAuction.isEmpty()) {
                 return CompletableFuture.completedFuture(false);
             }
@@ -257,84 +260,189 @@ public class AuctionService {
                 return CompletableFuture.completedFuture(false);
             }
 
-            // Return item directly to seller
+            // Decoded up front so a listing whose item is missing stays up rather than losing it
             ItemStack itemToReturn = auction.item().toItemStack();
-            if (player.getInventory().firstEmpty() == -1) {
-                // Inventory full, drop item at player location
-                player.getWorld().dropItem(player.getLocation(), itemToReturn);
-                player.sendMessage(
-                        configManager.getPrefixedMessage("inventory-full", "Inventory full, item dropped on ground"));
-            } else {
-                player.getInventory().addItem(itemToReturn);
+            if (itemToReturn == null) {
+                plugin.getLogger().severe("Failed to deserialize item for auction " + auction.id());
+                player.sendMessage(configManager.getPrefixedMessage("errors.generic-error"));
+                return CompletableFuture.completedFuture(false);
             }
 
+            // Stored as CANCELLED before the item is handed out: an expiry racing the cancel
+            // wins the version check and the item comes back through the mailbox only
             Auction updatedAuction = auction.withStatus(AuctionStatus.CANCELLED).withIncrementedVersion();
             return auctionStorage.updateAuctionIfVersionMatches(updatedAuction, auction.version())
                     .thenApply(updated -> {
-                        if (updated)
-                            transactionLogger.log(updatedAuction, "CANCELLED", null, null);
-                        return updated;
+                        if (!updated) {
+                            return false;
+                        }
+                        transactionLogger.log(updatedAuction, "CANCELLED", null, null);
+                        returnCancelledItem(player, updatedAuction, itemToReturn);
+                        return true;
                     });
         }));
     }
 
+    /**
+     * Gives the item of a cancelled auction back to its seller on the main thread, or
+     * to their mailbox if they logged out or the plugin is shutting down.
+     */
+    private void returnCancelledItem(Player player, Auction auction, ItemStack itemToReturn) {
+        try {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) {
+                    mailCancelledItem(auction);
+                    return;
+                }
+                if (player.getInventory().firstEmpty() == -1) {
+                    // Inventory full, drop item at player location
+                    player.getWorld().dropItem(player.getLocation(), itemToReturn);
+                    player.sendMessage(configManager.getPrefixedMessage("inventory-full",
+                            "Inventory full, item dropped on ground"));
+                } else {
+                    player.getInventory().addItem(itemToReturn);
+                }
+            });
+        } catch (IllegalPluginAccessException e) {
+            mailCancelledItem(auction);
+        }
+    }
+
+    private void mailCancelledItem(Auction auction) {
+        mailboxService.addReturnedItem(auction.seller(), auction.item(), "Auction cancelled", auction.id())
+                .exceptionally(ex -> {
+                    plugin.getLogger().severe("Failed to return the item of cancelled auction " + auction.id()
+                            + " to the mailbox; it is still on the auction: " + ex.getMessage());
+                    ex.printStackTrace();
+                    return null;
+                });
+    }
+
+    /**
+     * Safety-net sweep for expired auctions the {@link AuctionExpirer} does not know
+     * about, e.g. rows imported into storage by a migration. Drains every expired
+     * auction in batches; normal expiry happens on time through the expirer.
+     */
     public void processExpiredAuctions() {
+        sweepExpired(System.currentTimeMillis());
+    }
+
+    private void sweepExpired(long now) {
         int batchSize = 200;
-        auctionStorage.findExpiredUpTo(System.currentTimeMillis(), batchSize).thenAccept(expiredAuctions -> {
-            if (!expiredAuctions.isEmpty()) {
-                plugin.getLogger().info("Processing " + expiredAuctions.size() + " expired auctions...");
+        auctionStorage.findExpiredUpTo(now, batchSize).thenAccept(expiredAuctions -> {
+            if (expiredAuctions.isEmpty()) {
+                return;
             }
-            for (Auction auction : expiredAuctions) {
-                executeWithLock(auction.id(), () ->
-                // Re-fetch to ensure it's still valid to process
-                auctionStorage.findById(auction.id()).thenCompose(optAuction -> {
-                    if (optAuction.isEmpty() || optAuction.get().status() != AuctionStatus.ACTIVE) {
-                        return CompletableFuture.completedFuture(false); // Already processed
-                    }
+            plugin.getLogger().info("Processing " + expiredAuctions.size() + " expired auctions...");
+            List<UUID> ids = expiredAuctions.stream().map(Auction::id).toList();
+            expireAuctions(ids).whenComplete((expired, ex) -> {
+                // Keep going while full batches make progress; processed rows drop out of the query
+                if (ex == null && expired > 0 && expiredAuctions.size() == batchSize) {
+                    sweepExpired(now);
+                }
+            });
+        });
+    }
 
-                    Auction current = optAuction.get();
-
-                    // Expired - return item to seller
-                    Player seller = Bukkit.getPlayer(current.seller());
-                    if (seller != null && seller.isOnline()) {
-                        ItemStack itemToReturn = current.item().toItemStack();
-                        if (seller.getInventory().firstEmpty() == -1) {
-                            // Inventory full, drop item at seller location
-                            seller.getWorld().dropItem(seller.getLocation(), itemToReturn);
-                            seller.sendMessage(configManager.getPrefixedMessage("inventory-full",
-                                    "Inventory full, expired item dropped on ground"));
-                        } else {
-                            seller.getInventory().addItem(itemToReturn);
-                        }
-                        notificationManager.sendNotification(seller, "auction.expired", Map.of(
-                                "%item%", current.item().toItemStack().getType().toString()));
-                    }
+    /**
+     * Expires the given auctions that are still active and due, in one storage
+     * write, logs them in one more and returns their items to their sellers'
+     * mailboxes in a third.
+     * Auctions sold, cancelled or extended in the meantime are left alone; the
+     * storage re-checks each one's status and deadline as part of the update.
+     * <p>
+     * The expiry and the mailbox write are not atomic. A failed mailbox write is
+     * retried a few times; if it keeps failing, or the server dies between the two
+     * writes, the item stays on the EXPIRED listing and the IDs are logged for an
+     * admin to restore. Such listings are not recreated in the mailbox at startup,
+     * since items returned by older versions straight to the inventory left no
+     * mailbox entry either and would be handed out twice.
+     *
+     * @return A future completing with the number of auctions this call expired.
+     */
+    public CompletableFuture<Integer> expireAuctions(Collection<UUID> auctionIds) {
+        return auctionStorage.expireAll(auctionIds, System.currentTimeMillis()).thenApply(expired -> {
+            if (expired.isEmpty()) {
+                return 0;
+            }
+            transactionLogger.logAll(expired, "EXPIRED");
 
-                    Auction updated = current.withStatus(AuctionStatus.EXPIRED).withIncrementedVersion();
-                    return auctionStorage.updateAuctionIfVersionMatches(updated, current.version())
-                            .thenApply(isUpdated -> {
-                                if (isUpdated) {
-                                    transactionLogger.log(updated, "EXPIRED");
-                                }
-                                return isUpdated;
-                            });
-                }));
+            // Stored in the mailbox first; online sellers get theirs on the main thread from there
+            returnToMailboxes(expired, 1);
+            return expired.size();
+        });
+    }
+
+    private void returnToMailboxes(List<Auction> expired, int attempt) {
+        mailboxService.addReturnedItems(expired, "Auction expired").exceptionally(ex -> {
+            if (attempt < RETURN_ATTEMPTS) {
+                long delay = RETURN_RETRY_DELAY_SECONDS * attempt;
+                plugin.getLogger().warning("Failed to return " + expired.size() + " expired items to mailboxes, retrying in "
+                        + delay + "s: " + ex.getMessage());
+                CompletableFuture.delayedExecutor(delay, TimeUnit.SECONDS, asyncExecutor)
+                        .execute(() -> returnToMailboxes(expired, attempt + 1));
+            } else {
+                plugin.getLogger().severe("Failed to return " + expired.size() + " expired items to mailboxes, giving up."
+                        + " Their items are still on the expired auctions "
+                        + expired.stream().map(Auction::id).toList() + ": " + ex.getMessage());
+                ex.printStackTrace();
             }
+            return null;
         });
     }
 
+    /**
+     * Puts a reserved auction back on sale after a failed purchase and tracks its
+     * deadline again, which may already have passed while it was reserved.
+     */
+    private void restoreActive(Auction reservedAuction) {
+        // Versioned past the reservation, so every stored state of an auction has its own version
+        Auction rollbackAuction = reservedAuction.withStatus(AuctionStatus.ACTIVE).withIncrementedVersion();
+        auctionStorage.updateAuctionIfVersionMatches(rollbackAuction, reservedAuction.version())
+                .thenAccept(restored -> {
+                    if (restored) {
+                        auctionExpirer.schedule(rollbackAuction);
+                    }
+                });
+    }
+
     // Utility methods
-    private <T> CompletableFuture<T> executeWithLock(UUID auctionId, Supplier<CompletableFuture<T>> operation) {
-        ReentrantLock lock = auctionLocks.computeIfAbsent(auctionId, k -> new ReentrantLock());
-        return CompletableFuture.supplyAsync(() -> {
-            lock.lock();
+    /**
+     * Runs operations on the same auction one after another, in call order, without
+     * holding a thread while they wait: each operation is chained onto the completion
+     * of the previous one. Operations on different auctions run independently.
+     */
+    private <T> CompletableFuture<T> executeSerially(UUID auctionId, Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = auctionQueues.put(auctionId, done);
+
+        CompletableFuture<Void> turn = previous != null ? previous : CompletableFuture.completedFuture(null);
+        turn.whenCompleteAsync((ignored, ignoredError) -> {
+            CompletableFuture<T> running;
             try {
-                return operation.get().join();
-            } finally {
-                lock.unlock();
-                auctionLocks.remove(auctionId, lock);
+                running = operation.get();
+            } catch (Throwable t) {
+                running = CompletableFuture.failedFuture(t);
             }
-        }, asyncExecutor);
+            running.whenComplete((value, error) -> {
+                auctionQueues.remove(auctionId, done); // Only if nothing queued behind us
+                done.complete(null);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }, asyncExecutor).exceptionally(ex -> {
+            // The executor refused the hop (queue full or shut down): the operation never
+            // ran, so release the queue rather than leave later operations waiting on it
+            auctionQueues.remove(auctionId, done);
+            done.complete(null);
+            result.completeExceptionally(ex);
+            return null;
+        });
+        return result;
     }
 
     // Getters
@@ -344,6 +452,26 @@ public class AuctionService {
         return auctionStorage.findActiveAuctions(page, limit, category, sortOrder);
     }
 
+    /**
+     * Gets the next page of active auctions after a cursor (null for the first page).
+     */
+    public CompletableFuture<List<Auction>> getActiveAuctionsAfter(@Nullable AuctionCursor after, int limit,
+            com.minekarta.playerauction.gui.model.AuctionCategory category,
+            com.minekarta.playerauction.gui.model.SortOrder sortOrder) {
+        return auctionStorage.findActiveAfter(after, limit, category, sortOrder);
+    }
+
+    public CompletableFuture<List<Auction>> searchActiveAuctionsAfter(String query, @Nullable AuctionCursor after,
+            int limit, com.minekarta.playerauction.gui.model.AuctionCategory category,
+            com.minekarta.playerauction.gui.model.SortOrder sortOrder) {
+        return auctionStorage.searchActiveAfter(query, after, limit, category, sortOrder);
+    }
+
+    public CompletableFuture<Integer> countSearchResults(String query) {
+        return auctionStorage.countActiveAuctions(com.minekarta.playerauction.gui.model.AuctionCategory.ALL,
+                com.minekarta.playerauction.gui.model.SortOrder.NEWEST, query);
+    }
+
     public CompletableFuture<List<Auction>> getPlayerAuctions(UUID playerId, int page, int limit) {
         return auctionStorage.findBySeller(playerId, limit, (page - 1) * limit);
     }
@@ -377,6 +505,10 @@ public class AuctionService {
         return auctionStorage;
     }
 
+    public AuctionExpirer getAuctionExpirer() {
+        return auctionExpirer;
+    }
+
     public JavaPlugin getPlugin() {
         return plugin;
     }
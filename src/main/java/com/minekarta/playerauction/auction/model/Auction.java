@@ -1,5 +1,6 @@
 package com.minekarta.playerauction.auction.model;
 
+import com.minekarta.playerauction.common.ItemMetadata;
 import com.minekarta.playerauction.common.SerializedItem;
 import org.jetbrains.annotations.Nullable;
 
@@ -9,6 +10,7 @@ public record Auction(
     UUID id,
     UUID seller,
     SerializedItem item,
+    @Nullable ItemMetadata metadata,
     double price,
     @Nullable Double buyNowPrice,
     @Nullable Double reservePrice,
@@ -17,13 +19,41 @@ public record Auction(
     AuctionStatus status,
     int version
 ) {
+    /**
+     * Gets the precomputed item metadata. Auctions stored before metadata was
+     * captured have none, in which case the item is decoded to build it.
+     * @return The item metadata, never null.
+     */
+    public ItemMetadata itemMetadata() {
+        return metadata != null ? metadata : ItemMetadata.of(item);
+    }
+
+    /**
+     * Creates a new Auction instance with the given item metadata.
+     * @param newMetadata The metadata of the auctioned item.
+     * @return A new Auction object carrying the metadata.
+     */
+    public Auction withMetadata(ItemMetadata newMetadata) {
+        return new Auction(id, seller, item, newMetadata, price, buyNowPrice, reservePrice, createdAt, endAt, status, version);
+    }
+
+    /**
+     * Creates a new Auction instance holding the same item as a different instance,
+     * e.g. the one shared through the item store.
+     * @param newItem The same item.
+     * @return A new Auction object with the item replaced.
+     */
+    public Auction withItem(SerializedItem newItem) {
+        return new Auction(id, seller, newItem, metadata, price, buyNowPrice, reservePrice, createdAt, endAt, status, version);
+    }
+
     /**
      * Creates a new Auction instance with an updated status.
      * @param newStatus The new status.
      * @return A new Auction object with the updated status.
      */
     public Auction withStatus(AuctionStatus newStatus) {
-        return new Auction(id, seller, item, price, buyNowPrice, reservePrice, createdAt, endAt, newStatus, version);
+        return new Auction(id, seller, item, metadata, price, buyNowPrice, reservePrice, createdAt, endAt, newStatus, version);
     }
 
     /**
@@ -31,7 +61,6 @@ public record Auction(
      * @return A new Auction object with the version incremented by 1.
      */
     public Auction withIncrementedVersion() {
-        return new Auction(id, seller, item, price, buyNowPrice, reservePrice, createdAt, endAt, status, version + 1);
+        return new Auction(id, seller, item, metadata, price, buyNowPrice, reservePrice, createdAt, endAt, status, version + 1);
     }
 }
-
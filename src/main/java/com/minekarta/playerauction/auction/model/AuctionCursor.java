@@ -0,0 +1,20 @@
+package com.minekarta.playerauction.auction.model;
+
+import java.util.UUID;
+
+/**
+ * Position in a sorted listing of active auctions: the sort keys and ID of the
+ * last auction seen. Fetching "after" a cursor seeks straight to the next
+ * auction instead of skipping over every earlier one, so deep pages cost the
+ * same as the first. The auction itself may be gone by then; the position
+ * stays valid.
+ */
+public record AuctionCursor(double price, long createdAt, long endAt, UUID id) {
+
+    /**
+     * Creates a cursor positioned at the given auction.
+     */
+    public static AuctionCursor of(Auction auction) {
+        return new AuctionCursor(auction.price(), auction.createdAt(), auction.endAt(), auction.id());
+    }
+}
@@ -1,7 +1,13 @@
 package com.minekarta.playerauction.commands;
 
+import com.google.common.cache.CacheStats;
 import com.minekarta.playerauction.PlayerAuction;
+import com.minekarta.playerauction.common.ItemTemplateCache;
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
 import com.minekarta.playerauction.config.ConfigManager;
+import com.minekarta.playerauction.gui.AuctionRenderCache;
+import com.minekarta.playerauction.storage.sqlite.JsonToSQLiteMigrator;
+import com.minekarta.playerauction.util.PlayerNameCache;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.incendo.cloud.Command;
@@ -9,6 +15,7 @@ import org.incendo.cloud.paper.LegacyPaperCommandManager;
 import org.incendo.cloud.parser.standard.StringParser;
 
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
 
@@ -40,6 +47,10 @@ public class AdminCommand {
                     ctx.sender().sendMessage("§6§lPlayerAuctions Admin Commands");
                     ctx.sender().sendMessage("§7─────────────────────────");
                     ctx.sender().sendMessage("§e/ahadmin debug <on/off> §7- Toggle debug mode");
+                    ctx.sender().sendMessage("§e/ahadmin flush §7- Write pending storage changes to disk");
+                    ctx.sender().sendMessage("§e/ahadmin migrate §7- Import JSON data into SQLite");
+                    ctx.sender().sendMessage("§e/ahadmin executors §7- Show thread pool activity");
+                    ctx.sender().sendMessage("§e/ahadmin caches §7- Show cache hit rates");
                     ctx.sender().sendMessage("§7─────────────────────────");
                 }));
 
@@ -65,6 +76,89 @@ public class AdminCommand {
                         player.sendMessage(configManager.getPrefixedMessage("admin.debug-disabled"));
                     }
                 }));
+
+        // /ahadmin flush - force write-behind storages to disk
+        commandManager.command(base.literal("flush")
+                .handler(ctx -> {
+                    CommandSender sender = ctx.sender();
+                    plugin.flushStorages().whenComplete((v, ex) -> {
+                        if (ex != null) {
+                            plugin.getLogger().severe("Forced storage flush failed: " + ex.getMessage());
+                        }
+                        plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(
+                                configManager.getPrefixedMessage(ex != null ? "admin.flush-failed" : "admin.flush-complete")));
+                    });
+                }));
+
+        // /ahadmin migrate - import auctions.json and the transaction log into SQLite
+        commandManager.command(base.literal("migrate")
+                .handler(ctx -> {
+                    CommandSender sender = ctx.sender();
+                    JsonToSQLiteMigrator migrator = plugin.getStorageFactory().createMigrator();
+                    if (migrator == null) {
+                        sender.sendMessage(configManager.getPrefixedMessage("admin.migrate-not-sqlite"));
+                        return;
+                    }
+                    if (!migrator.hasPendingData()) {
+                        sender.sendMessage(configManager.getPrefixedMessage("admin.migrate-nothing"));
+                        return;
+                    }
+
+                    sender.sendMessage(configManager.getPrefixedMessage("admin.migrate-started"));
+                    plugin.getAsyncExecutor().submit(() -> {
+                        try {
+                            JsonToSQLiteMigrator.Result result = migrator.migrate();
+                            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(
+                                    configManager.getPrefixedMessage("admin.migrate-complete",
+                                            "{auctions}", String.valueOf(result.auctions()),
+                                            "{transactions}", String.valueOf(result.transactions()))));
+                        } catch (Exception e) {
+                            plugin.getLogger().severe("JSON to SQLite migration failed:");
+                            e.printStackTrace();
+                            plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(
+                                    configManager.getPrefixedMessage("admin.migrate-failed")));
+                        }
+                    });
+                }));
+
+        // /ahadmin executors - per-pool activity, queue depth and rejections
+        commandManager.command(base.literal("executors")
+                .handler(ctx -> {
+                    CommandSender sender = ctx.sender();
+                    ExecutorRegistry executors = plugin.getExecutors();
+                    sender.sendMessage(configManager.getPrefixedMessage("admin.executors-header",
+                            "{mode}", executors.getMode().name()));
+                    for (ExecutorRegistry.PoolStats stats : executors.stats()) {
+                        sender.sendMessage(configManager.getMessage("admin.executors-line",
+                                "{name}", stats.name(),
+                                "{kind}", stats.kind(),
+                                "{active}", String.valueOf(stats.active()),
+                                "{queued}", String.valueOf(stats.queued()),
+                                "{completed}", String.valueOf(stats.completed()),
+                                "{rejected}", String.valueOf(stats.rejected())));
+                    }
+                }));
+
+        // /ahadmin caches - size and hit rate of the in-memory caches
+        commandManager.command(base.literal("caches")
+                .handler(ctx -> {
+                    CommandSender sender = ctx.sender();
+                    sender.sendMessage(configManager.getPrefixedMessage("admin.caches-header"));
+                    sendCacheLine(sender, "Decoded items", ItemTemplateCache.size(), ItemTemplateCache.stats());
+                    AuctionRenderCache renderCache = plugin.getAuctionRenderCache();
+                    sendCacheLine(sender, "Rendered auctions", renderCache.size(), renderCache.stats());
+                    PlayerNameCache nameCache = plugin.getPlayerNameCache();
+                    sendCacheLine(sender, "Player names", nameCache.size(), nameCache.stats());
+                }));
+    }
+
+    private void sendCacheLine(CommandSender sender, String name, long size, CacheStats stats) {
+        sender.sendMessage(configManager.getMessage("admin.caches-line",
+                "{name}", name,
+                "{size}", String.valueOf(size),
+                "{hits}", String.valueOf(stats.hitCount()),
+                "{misses}", String.valueOf(stats.missCount()),
+                "{rate}", String.format(Locale.ROOT, "%.1f", stats.hitRate() * 100)));
     }
 
     public boolean isInDebugMode(Player player) {
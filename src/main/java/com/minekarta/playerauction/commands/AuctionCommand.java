@@ -2,10 +2,12 @@ package com.minekarta.playerauction.commands;
 
 import com.minekarta.playerauction.PlayerAuction;
 import com.minekarta.playerauction.auction.AuctionService;
+import com.minekarta.playerauction.common.ItemTemplateCache;
 import com.minekarta.playerauction.config.ConfigManager;
 import com.minekarta.playerauction.gui.HistoryGui;
 import com.minekarta.playerauction.gui.MainAuctionGui;
 import com.minekarta.playerauction.gui.MyListingsGui;
+import com.minekarta.playerauction.gui.SearchResultsGui;
 import com.minekarta.playerauction.gui.model.SortOrder;
 import com.minekarta.playerauction.players.PlayerSettingsService;
 import com.minekarta.playerauction.util.DurationParser;
@@ -80,6 +82,10 @@ public class AuctionCommand {
                 .permission("playerauctions.reload")
                 .handler(ctx -> {
                     configManager.loadConfigs();
+                    // Rendered lore comes from the reloaded messages
+                    plugin.getAuctionRenderCache().clear();
+                    // Reload is also how admins release the decoded items
+                    ItemTemplateCache.clear();
                     ctx.sender().sendMessage(configManager.getPrefixedMessage("info.reload-success"));
                 }));
 
@@ -104,12 +110,7 @@ public class AuctionCommand {
                 .senderType(Player.class)
                 .permission("playerauctions.search")
                 .required("keyword", StringParser.greedyStringParser())
-                .handler(ctx -> {
-                    Player player = ctx.sender();
-                    // Assuming you have logic in MainAuctionGui to handle search,
-                    // currently MainAuctionGui is opened for search the same way.
-                    new MainAuctionGui(plugin, player, 1, SortOrder.NEWEST).open();
-                }));
+                .handler(ctx -> handleSearch(ctx.sender(), ctx.get("keyword"))));
 
         // /ah notify <on|off>
         commandManager.command(base.literal("notify")
@@ -157,7 +158,7 @@ public class AuctionCommand {
                         return;
                     }
 
-                    new HistoryGui(plugin, player, target.getUniqueId(), 1).open();
+                    new HistoryGui(plugin, player, target.getUniqueId()).open();
                 }));
     }
 
@@ -216,6 +217,29 @@ public class AuctionCommand {
         });
     }
 
+    private void handleSearch(Player player, String keyword) {
+        String query = keyword.trim();
+        if (query.length() < 2) {
+            player.sendMessage(configManager.getPrefixedMessage("errors.search-query-too-short"));
+            return;
+        }
+        if (query.length() > 50) {
+            player.sendMessage(configManager.getPrefixedMessage("errors.search-query-too-long"));
+            return;
+        }
+
+        player.sendMessage(configManager.getPrefixedMessage("info.search-started", "{query}", query));
+        auctionService.countSearchResults(query).thenAccept(count -> {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (count == 0) {
+                    player.sendMessage(configManager.getPrefixedMessage("auction.search_no_results", "{keyword}", query));
+                    return;
+                }
+                new SearchResultsGui(plugin, player, query, SortOrder.NEWEST).open();
+            });
+        });
+    }
+
     private void handleHelp(Player player) {
         player.sendMessage("§6§lPlayerAuctions Help");
         player.sendMessage("§7─────────────────────────");
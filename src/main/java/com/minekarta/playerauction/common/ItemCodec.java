@@ -0,0 +1,125 @@
+package com.minekarta.playerauction.common;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary encoding of item stacks.
+ * <p>
+ * An encoded item is one format byte followed by the payload: Paper's
+ * {@link ItemStack#serializeAsBytes()} output, either as is or deflated when that
+ * makes it smaller. Paper's format is NBT with a data version, so items are
+ * upgraded across Minecraft versions on decode, and it is several times smaller
+ * and faster than Java serialization.
+ * <p>
+ * Items stored before this format existed are Java-serialized streams written by
+ * {@code BukkitObjectOutputStream}; {@link #decode} still reads them, recognising
+ * them by the serialization stream magic, which no format byte uses.
+ */
+public final class ItemCodec {
+
+    static final byte FORMAT_PAPER = 1;
+    static final byte FORMAT_PAPER_DEFLATE = 2;
+
+    // Smaller payloads rarely shrink enough to pay for the inflate on every decode
+    private static final int MIN_DEFLATE_SIZE = 128;
+    private static final byte JAVA_STREAM_MAGIC_0 = (byte) 0xAC;
+    private static final byte JAVA_STREAM_MAGIC_1 = (byte) 0xED;
+
+    private ItemCodec() {
+    }
+
+    public static byte[] encode(ItemStack item) {
+        byte[] raw = item.serializeAsBytes();
+        if (raw.length >= MIN_DEFLATE_SIZE) {
+            byte[] deflated = deflate(raw);
+            if (deflated.length < raw.length) {
+                return withFormat(FORMAT_PAPER_DEFLATE, deflated);
+            }
+        }
+        return withFormat(FORMAT_PAPER, raw);
+    }
+
+    public static ItemStack decode(byte[] encoded) {
+        if (isLegacy(encoded)) {
+            return decodeLegacy(encoded);
+        }
+        if (encoded.length == 0) {
+            throw new IllegalArgumentException("Empty item data");
+        }
+        byte[] payload = Arrays.copyOfRange(encoded, 1, encoded.length);
+        return switch (encoded[0]) {
+            case FORMAT_PAPER -> ItemStack.deserializeBytes(payload);
+            case FORMAT_PAPER_DEFLATE -> ItemStack.deserializeBytes(inflate(payload));
+            default -> throw new IllegalArgumentException("Unknown item format " + encoded[0]);
+        };
+    }
+
+    /**
+     * Whether the bytes are a Java-serialized item from before this format.
+     */
+    public static boolean isLegacy(byte[] encoded) {
+        return encoded.length >= 2 && encoded[0] == JAVA_STREAM_MAGIC_0 && encoded[1] == JAVA_STREAM_MAGIC_1;
+    }
+
+    private static ItemStack decodeLegacy(byte[] encoded) {
+        try (ByteArrayInputStream is = new ByteArrayInputStream(encoded);
+             BukkitObjectInputStream ois = new BukkitObjectInputStream(is)) {
+            return (ItemStack) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not deserialize ItemStack", e);
+        }
+    }
+
+    private static byte[] withFormat(byte format, byte[] payload) {
+        byte[] encoded = new byte[payload.length + 1];
+        encoded[0] = format;
+        System.arraycopy(payload, 0, encoded, 1, payload.length);
+        return encoded;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] deflated) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(deflated.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated item data");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt item data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
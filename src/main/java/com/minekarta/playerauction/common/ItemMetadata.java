@@ -0,0 +1,102 @@
+package com.minekarta.playerauction.common;
+
+import com.minekarta.playerauction.gui.model.AuctionCategory;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decoded facts about a listed item, captured once when the auction is created
+ * and persisted next to the {@link SerializedItem}, so filtering, counting and
+ * searching never have to deserialize the item blob.
+ */
+public record ItemMetadata(
+    String material,
+    AuctionCategory category,
+    @Nullable String displayName,
+    int amount,
+    String searchKey
+) {
+
+    private static final ItemMetadata UNKNOWN = new ItemMetadata("UNKNOWN", AuctionCategory.MISC, null, 0, "unknown");
+
+    /**
+     * Captures the metadata of a live item stack.
+     * @param itemStack The item, may be null.
+     * @return The metadata, never null.
+     */
+    public static ItemMetadata of(@Nullable ItemStack itemStack) {
+        if (itemStack == null) {
+            return UNKNOWN;
+        }
+
+        PlainTextComponentSerializer plainText = PlainTextComponentSerializer.plainText();
+        String material = itemStack.getType().name();
+        String displayName = null;
+        ItemMeta meta = itemStack.getItemMeta();
+        if (meta != null && meta.hasDisplayName()) {
+            displayName = plainText.serialize(meta.displayName());
+        }
+
+        // One field per line: material, display name, lore lines, then enchantment keys
+        StringBuilder searchKey = new StringBuilder(material);
+        if (displayName != null) {
+            searchKey.append('\n').append(displayName);
+        }
+        if (meta != null) {
+            List<Component> lore = meta.lore();
+            if (lore != null) {
+                for (Component line : lore) {
+                    searchKey.append('\n').append(plainText.serialize(line));
+                }
+            }
+            for (Enchantment enchantment : meta.getEnchants().keySet()) {
+                searchKey.append('\n').append(enchantment.getKey().getKey());
+            }
+            if (meta instanceof EnchantmentStorageMeta book) {
+                for (Enchantment enchantment : book.getStoredEnchants().keySet()) {
+                    searchKey.append('\n').append(enchantment.getKey().getKey());
+                }
+            }
+        }
+
+        return new ItemMetadata(
+            material,
+            AuctionCategory.getCategoryForItemType(material),
+            displayName,
+            itemStack.getAmount(),
+            searchKey.toString().toLowerCase(Locale.ROOT)
+        );
+    }
+
+    /**
+     * Decodes a serialized item to capture its metadata. Only used for records
+     * stored before metadata existed.
+     */
+    public static ItemMetadata of(SerializedItem item) {
+        return of(item.toItemStack());
+    }
+
+    /**
+     * Checks whether every word of a search query starts a word of the material,
+     * display name, lore or enchantments (case-insensitive). See {@link SearchTokens}.
+     * A null or blank query matches everything.
+     */
+    public boolean matches(@Nullable String query) {
+        return SearchTokens.matches(searchKey, query);
+    }
+
+    /**
+     * Returns the distinct words this item can be found by.
+     */
+    public List<String> searchTokens() {
+        return SearchTokens.tokenize(searchKey);
+    }
+}
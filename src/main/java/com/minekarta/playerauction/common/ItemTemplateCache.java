@@ -0,0 +1,81 @@
+package com.minekarta.playerauction.common;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Decoded {@link ItemStack}s keyed by their serialized form, so a listing that is
+ * shown, bought, logged and announced is only deserialized once.
+ * <p>
+ * The cached stacks are templates and never leave this class: every lookup hands
+ * out a clone, so callers may modify or give away what they get. The cache is
+ * bounded by the total length of the encoded items it holds, which tracks their
+ * decoded size far better than an entry count (a shulker box full of books
+ * weighs as much as hundreds of plain stacks).
+ */
+public final class ItemTemplateCache {
+
+    // 16 Mi characters of Base64, about 12 MiB of serialized item data
+    private static final long MAX_ENCODED_CHARS = 16L * 1024 * 1024;
+
+    private static final Cache<String, ItemStack> TEMPLATES = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_ENCODED_CHARS)
+            .weigher((String encoded, ItemStack template) -> encoded.length())
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
+    private ItemTemplateCache() {
+    }
+
+    /**
+     * Returns a copy of the item encoded as {@code encoded}, decoding it with
+     * {@code decoder} on a miss.
+     */
+    static ItemStack get(String encoded, Function<String, ItemStack> decoder) {
+        ItemStack template = TEMPLATES.getIfPresent(encoded);
+        if (template == null) {
+            // Two threads may decode the same item at once; the result is identical either way
+            template = decoder.apply(encoded);
+            if (template == null) {
+                return null;
+            }
+            TEMPLATES.put(encoded, template);
+        }
+        return template.clone();
+    }
+
+    /**
+     * Seeds the cache with an item that was just encoded, so it never has to be
+     * decoded while it stays cached.
+     */
+    static void put(String encoded, ItemStack item) {
+        TEMPLATES.put(encoded, item.clone());
+    }
+
+    /**
+     * Hit and miss counters since startup.
+     */
+    public static CacheStats stats() {
+        return TEMPLATES.stats();
+    }
+
+    /**
+     * Number of decoded items currently held.
+     */
+    public static long size() {
+        return TEMPLATES.size();
+    }
+
+    /**
+     * Drops every decoded item; they are decoded again on their next lookup.
+     */
+    public static void clear() {
+        TEMPLATES.invalidateAll();
+    }
+}
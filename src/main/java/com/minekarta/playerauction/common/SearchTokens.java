@@ -0,0 +1,65 @@
+package com.minekarta.playerauction.common;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits item text and search queries into words the same way for every storage.
+ * <p>
+ * A word is a run of letters or digits, lower-cased, so {@code DIAMOND_SWORD}
+ * becomes {@code diamond} and {@code sword}. A query matches when every one of
+ * its words is the start of some word of the item, e.g. "dia sw" matches a
+ * diamond sword. This mirrors SQLite FTS5's {@code unicode61} tokenizer with
+ * prefix queries, so both backends return the same results.
+ */
+public final class SearchTokens {
+
+    private SearchTokens() {
+    }
+
+    /**
+     * Returns the distinct words of a text, in order of first appearance.
+     */
+    public static List<String> tokenize(@Nullable String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+
+        Set<String> tokens = new LinkedHashSet<>();
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Checks whether every query word is a prefix of some word in the text.
+     * A query without words matches everything.
+     */
+    public static boolean matches(String text, @Nullable String query) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return true;
+        }
+        List<String> textTokens = tokenize(text);
+        for (String queryToken : queryTokens) {
+            if (textTokens.stream().noneMatch(token -> token.startsWith(queryToken))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,64 +1,182 @@
 package com.minekarta.playerauction.common;
 
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.util.io.BukkitObjectInputStream;
-import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.bukkit.inventory.meta.ItemMeta;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.Base64;
 import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
 
+/**
+ * An item in its stored form: the {@link ItemCodec} encoding, as Base64 text so it
+ * fits the JSON files and TEXT columns. Items stored by older versions hold
+ * Java-serialized data instead; they decode just the same and are rewritten in the
+ * current format by {@link #reencoded()}.
+ * <p>
+ * Each item has a content hash, its key in the
+ * {@link com.minekarta.playerauction.storage.ItemBlobStore}. An item keeps its key
+ * when re-encoded, so records pointing at it stay valid without being rewritten.
+ * The price is that a re-encoded item is no longer stored under the hash of its
+ * bytes: the same stack listed again gets the hash of its new encoding and is
+ * stored a second time, until the records holding the old key are deleted. Lookups
+ * always go by the key a record holds, so this costs space, never correctness.
+ */
 public final class SerializedItem implements Serializable {
+    // Base64 of a Java serialization stream always starts like this
+    private static final String LEGACY_PREFIX = "rO0";
+
     private final String data;
+    // SHA-256 of the encoded bytes, or the key this item was stored under; computed on first use
+    private transient volatile String hash;
 
     private SerializedItem(String data) {
+        this(data, null);
+    }
+
+    private SerializedItem(String data, String hash) {
         this.data = data;
+        this.hash = hash;
     }
 
     public String getBase64() {
         return data;
     }
 
+    /**
+     * The encoded bytes, or null for an empty item.
+     */
+    public byte[] toBytes() {
+        return data != null ? Base64.getDecoder().decode(data) : null;
+    }
+
+    /**
+     * The content key of this item: the hex SHA-256 of its encoded bytes, unless it
+     * was loaded or re-encoded under another key.
+     */
+    public String hash() {
+        String h = hash;
+        if (h == null) {
+            h = sha256(data != null ? Base64.getDecoder().decode(data) : new byte[0]);
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Returns an item with the same data, keyed by {@code hash}.
+     */
+    public SerializedItem withHash(String hash) {
+        return new SerializedItem(data, hash);
+    }
+
+    /**
+     * Decodes the item. Decoded items are cached (see {@link ItemTemplateCache}), so
+     * calling this repeatedly for the same item is cheap; each call returns a new copy.
+     */
     public ItemStack toItemStack() {
         if (data == null || data.isEmpty()) {
             return null;
         }
+        return ItemTemplateCache.get(data, encoded -> ItemCodec.decode(Base64.getDecoder().decode(encoded)));
+    }
+
+    /**
+     * Decodes the item for showing in a GUI. Unlike {@link #toItemStack()} this never
+     * returns null or throws: an item that is missing from the item store or cannot
+     * be decoded shows as a placeholder, which must never be handed to a player.
+     */
+    public ItemStack toDisplayStack() {
         try {
-            byte[] bytes = Base64.getDecoder().decode(data);
-            try (ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-                 BukkitObjectInputStream ois = new BukkitObjectInputStream(is)) {
-                return (ItemStack) ois.readObject();
+            ItemStack itemStack = toItemStack();
+            if (itemStack != null) {
+                return itemStack;
             }
-        } catch (IOException | ClassNotFoundException e) {
-            throw new IllegalStateException("Could not deserialize ItemStack", e);
+        } catch (RuntimeException e) {
+            // Shown as the placeholder
+        }
+        ItemStack placeholder = new ItemStack(Material.BARRIER);
+        ItemMeta meta = placeholder.getItemMeta();
+        if (meta != null) {
+            meta.displayName(Component.text("Missing item", NamedTextColor.RED));
+            placeholder.setItemMeta(meta);
         }
+        return placeholder;
+    }
+
+    /**
+     * Whether this item is still stored in the Java-serialized format.
+     */
+    public boolean isLegacyEncoding() {
+        return data != null && data.startsWith(LEGACY_PREFIX);
+    }
+
+    /**
+     * Returns this item in the current format: itself if it already is, otherwise a
+     * re-encoded copy under the same {@link #hash() key}, which is then no longer the
+     * hash of its bytes (see the class comment).
+     *
+     * @throws IllegalStateException If the legacy data cannot be decoded.
+     */
+    public SerializedItem reencoded() {
+        if (!isLegacyEncoding()) {
+            return this;
+        }
+        return fromItemStack(toItemStack()).withHash(hash());
+    }
+
+    /**
+     * Re-encodes a batch of legacy items, keyed by whatever identifies their records.
+     * Items that cannot be decoded are logged and left out of the result.
+     */
+    public static <K> Map<K, SerializedItem> reencodeAll(Map<K, SerializedItem> items, Logger logger) {
+        Map<K, SerializedItem> reencoded = new LinkedHashMap<>();
+        items.forEach((key, item) -> {
+            try {
+                reencoded.put(key, item.reencoded());
+            } catch (RuntimeException e) {
+                logger.warning("Could not re-encode stored item " + key + ": " + e.getMessage());
+            }
+        });
+        return reencoded;
     }
 
     public static SerializedItem fromItemStack(ItemStack itemStack) {
         if (itemStack == null) {
             return new SerializedItem(null);
         }
-        try {
-            try (ByteArrayOutputStream os = new ByteArrayOutputStream();
-                 BukkitObjectOutputStream oos = new BukkitObjectOutputStream(os)) {
-                oos.writeObject(itemStack);
-                return new SerializedItem(Base64.getEncoder().encodeToString(os.toByteArray()));
-            }
-        } catch (IOException e) {
-            throw new IllegalStateException("Could not serialize ItemStack", e);
-        }
+        String data = Base64.getEncoder().encodeToString(ItemCodec.encode(itemStack));
+        ItemTemplateCache.put(data, itemStack);
+        return new SerializedItem(data);
     }
 
     public static SerializedItem fromBase64(String base64) {
         return new SerializedItem(base64);
     }
 
+    public static SerializedItem fromBytes(byte[] bytes) {
+        return new SerializedItem(bytes != null ? Base64.getEncoder().encodeToString(bytes) : null);
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public String toString() {
         // Avoid logging potentially huge base64 string
         return "SerializedItem{data='...'}";
     }
 }
-
@@ -0,0 +1,117 @@
+package com.minekarta.playerauction.concurrent;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs each task on its own virtual thread, but lets at most {@code maxConcurrency}
+ * of them run at a time. Excess tasks wait for a permit on their (parked) virtual
+ * thread, so submitting never blocks and a burst cannot overrun the backend the
+ * tasks talk to. At most {@code queueCapacity} tasks may wait; beyond that
+ * {@link #execute} throws {@link RejectedExecutionException}, like a bounded pool.
+ */
+public final class BoundedVirtualExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int queueCapacity;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param name           Thread name prefix; threads are numbered from 0.
+     * @param maxConcurrency Most tasks running at once.
+     * @param queueCapacity  Most tasks waiting for a permit.
+     */
+    public BoundedVirtualExecutor(String name, int maxConcurrency, int queueCapacity) {
+        this.delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.permits = new Semaphore(Math.max(1, maxConcurrency));
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Queue full (" + queueCapacity + " tasks waiting)");
+        }
+        try {
+            delegate.execute(() -> {
+                permits.acquireUninterruptibly();
+                waiting.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Tasks currently running.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Tasks submitted but still waiting for a permit.
+     */
+    public int getQueueSize() {
+        return waiting.get();
+    }
+
+    public long getCompletedTaskCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @NotNull
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,17 @@
+package com.minekarta.playerauction.concurrent;
+
+/**
+ * Which kind of threads the plugin's worker and storage pools use.
+ */
+public enum ExecutorMode {
+    /**
+     * Fixed pools of platform threads (the default).
+     */
+    PLATFORM,
+    /**
+     * A virtual thread per task, with a semaphore capping how many tasks of each
+     * pool run at once. Blocking I/O then parks a cheap virtual thread instead of
+     * holding one of a few platform threads.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,287 @@
+package com.minekarta.playerauction.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Creates and owns every executor the plugin uses, configured by the {@code threads}
+ * section of config.yml.
+ * <p>
+ * Each pool has a unique name (also its thread name prefix), a bounded queue that
+ * rejects new tasks with a {@link java.util.concurrent.RejectedExecutionException}
+ * when full, and counters reported by {@link #stats()}. The worker and storage read
+ * pools follow {@link ExecutorMode}; serial and scheduled executors, which exist to
+ * order work (the SQLite writer, the JSON storage threads), are always a single
+ * platform thread.
+ * <p>
+ * Shutdown happens in two steps: {@link #shutdownWorkers(Duration)} drains the
+ * worker pools so no new storage work arrives, the storages then flush, and
+ * {@link #shutdown(Duration)} drains everything else.
+ */
+public final class ExecutorRegistry {
+
+    private static final int DEFAULT_WORKER_CONCURRENCY = 64;
+    private static final int DEFAULT_STORAGE_CONCURRENCY = 16;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    /**
+     * A snapshot of one pool's counters.
+     *
+     * @param threads   Platform threads currently alive, or -1 for virtual pools.
+     * @param queued    Tasks waiting to run (including not-yet-due scheduled tasks).
+     * @param rejected  Tasks refused because the queue was full or the pool shut down.
+     */
+    public record PoolStats(String name, String kind, int threads, int active, int queued,
+                            long completed, long rejected) {
+    }
+
+    private record Pool(String name, String kind, boolean worker, ExecutorService executor,
+                        @Nullable AtomicLong rejected) {
+    }
+
+    private final ExecutorMode mode;
+    private final int workerConcurrency;
+    private final int storageConcurrency;
+    private final int queueCapacity;
+    private final Logger logger;
+    // Guarded by this
+    private final Map<String, Pool> pools = new LinkedHashMap<>();
+
+    public ExecutorRegistry(ExecutorMode mode, int workerConcurrency, int storageConcurrency, int queueCapacity,
+                            Logger logger) {
+        this.mode = mode;
+        this.workerConcurrency = Math.max(1, workerConcurrency);
+        this.storageConcurrency = Math.max(1, storageConcurrency);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.logger = logger;
+    }
+
+    /**
+     * Reads the {@code threads} config section. Missing values use the defaults.
+     */
+    public static ExecutorRegistry fromConfig(@Nullable ConfigurationSection config, Logger logger) {
+        ExecutorMode mode = ExecutorMode.PLATFORM;
+        String modeName = config != null ? config.getString("mode", "PLATFORM") : "PLATFORM";
+        try {
+            mode = ExecutorMode.valueOf(modeName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown threads.mode '" + modeName + "', using PLATFORM.");
+        }
+        int workers = config != null ? config.getInt("worker-concurrency", DEFAULT_WORKER_CONCURRENCY)
+                : DEFAULT_WORKER_CONCURRENCY;
+        int storage = config != null ? config.getInt("storage-concurrency", DEFAULT_STORAGE_CONCURRENCY)
+                : DEFAULT_STORAGE_CONCURRENCY;
+        int capacity = config != null ? config.getInt("queue-capacity", DEFAULT_QUEUE_CAPACITY)
+                : DEFAULT_QUEUE_CAPACITY;
+        return new ExecutorRegistry(mode, workers, storage, capacity, logger);
+    }
+
+    public ExecutorMode getMode() {
+        return mode;
+    }
+
+    public boolean isVirtual() {
+        return mode == ExecutorMode.VIRTUAL;
+    }
+
+    /**
+     * A pool for service orchestration (purchases, name lookups, economy calls,
+     * storage init).
+     */
+    public ExecutorService newWorkerPool(String name, int platformThreads) {
+        return newPool(name, platformThreads, workerConcurrency, true);
+    }
+
+    /**
+     * A pool for one storage backend's blocking reads.
+     *
+     * @param platformThreads Pool size in PLATFORM mode.
+     * @param maxConcurrency  Cap in VIRTUAL mode, or 0 for the configured storage-concurrency.
+     */
+    public ExecutorService newStoragePool(String name, int platformThreads, int maxConcurrency) {
+        return newPool(name, platformThreads, maxConcurrency > 0 ? maxConcurrency : storageConcurrency, false);
+    }
+
+    /**
+     * A single platform thread running tasks one at a time in submission order.
+     */
+    public ExecutorService newSerialExecutor(String name) {
+        AtomicLong rejected = new AtomicLong();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(name, false), abortCounting(rejected));
+        return register(name, "serial", false, executor, rejected);
+    }
+
+    /**
+     * A single platform thread that also runs delayed and periodic tasks. The JDK's
+     * delay queue has no capacity, so new tasks are refused once the queue holds
+     * queue-capacity tasks, not-yet-due ones included.
+     */
+    public ScheduledExecutorService newScheduledExecutor(String name) {
+        AtomicLong rejected = new AtomicLong();
+        ScheduledThreadPoolExecutor executor = new BoundedScheduledExecutor(queueCapacity,
+                threadFactory(name, false), abortCounting(rejected));
+        executor.setRemoveOnCancelPolicy(true);
+        // Pending delayed flushes would only hold up shutdown; the owners flush explicitly first
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        register(name, "scheduled", false, executor, rejected);
+        return executor;
+    }
+
+    private ExecutorService newPool(String name, int platformThreads, int virtualConcurrency, boolean worker) {
+        if (isVirtual()) {
+            BoundedVirtualExecutor executor = new BoundedVirtualExecutor(name, virtualConcurrency, queueCapacity);
+            return register(name, "virtual", worker, executor, null);
+        }
+        int threads = Math.max(1, platformThreads);
+        AtomicLong rejected = new AtomicLong();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(name, true), abortCounting(rejected));
+        return register(name, "platform", worker, executor, rejected);
+    }
+
+    private synchronized ExecutorService register(String name, String kind, boolean worker,
+                                                  ExecutorService executor, @Nullable AtomicLong rejected) {
+        if (pools.containsKey(name)) {
+            executor.shutdownNow();
+            throw new IllegalArgumentException("An executor named '" + name + "' already exists");
+        }
+        pools.put(name, new Pool(name, kind, worker, executor, rejected));
+        return executor;
+    }
+
+    private static ThreadFactory threadFactory(String name, boolean numbered) {
+        return new ThreadFactoryBuilder().setNameFormat(numbered ? name + "-%d" : name).setDaemon(true).build();
+    }
+
+    /**
+     * Checks the queue size as each task is scheduled. Concurrent submitters can
+     * overshoot the capacity by a few tasks; a periodic task's next run is never
+     * refused.
+     */
+    private static final class BoundedScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+        private final int capacity;
+
+        BoundedScheduledExecutor(int capacity, ThreadFactory threadFactory, RejectedExecutionHandler handler) {
+            super(1, threadFactory, handler);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+            rejectIfFull(task);
+            return task;
+        }
+
+        @Override
+        protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+            rejectIfFull(task);
+            return task;
+        }
+
+        private void rejectIfFull(Runnable task) {
+            if (getQueue().size() >= capacity) {
+                getRejectedExecutionHandler().rejectedExecution(task, this);
+            }
+        }
+    }
+
+    private static RejectedExecutionHandler abortCounting(AtomicLong rejected) {
+        RejectedExecutionHandler abort = new ThreadPoolExecutor.AbortPolicy();
+        return (task, executor) -> {
+            rejected.incrementAndGet();
+            abort.rejectedExecution(task, executor);
+        };
+    }
+
+    /**
+     * Current counters of every pool, in registration order.
+     */
+    public synchronized List<PoolStats> stats() {
+        List<PoolStats> stats = new ArrayList<>(pools.size());
+        for (Pool pool : pools.values()) {
+            if (pool.executor() instanceof BoundedVirtualExecutor virtual) {
+                stats.add(new PoolStats(pool.name(), pool.kind(), -1, virtual.getActiveCount(),
+                        virtual.getQueueSize(), virtual.getCompletedTaskCount(), virtual.getRejectedCount()));
+            } else if (pool.executor() instanceof ThreadPoolExecutor executor) {
+                stats.add(new PoolStats(pool.name(), pool.kind(), executor.getPoolSize(), executor.getActiveCount(),
+                        executor.getQueue().size(), executor.getCompletedTaskCount(), pool.rejected().get()));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Stops the worker pools, letting queued and running tasks finish; see
+     * {@link #shutdown(Duration)}. The storage executors keep running.
+     */
+    public void shutdownWorkers(Duration drain) {
+        List<Pool> workers = new ArrayList<>();
+        synchronized (this) {
+            for (Pool pool : pools.values()) {
+                if (pool.worker()) {
+                    workers.add(pool);
+                }
+            }
+        }
+        drain(workers, drain);
+    }
+
+    /**
+     * Stops every pool, letting queued and running tasks finish. Pools are drained one
+     * after another in registration order, all within one shared deadline; whatever
+     * has not finished by then is interrupted and its queued tasks are dropped.
+     *
+     * @param drain How long all pools together may take to finish their work.
+     */
+    public void shutdown(Duration drain) {
+        List<Pool> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(pools.values());
+        }
+        drain(snapshot, drain);
+    }
+
+    private void drain(List<Pool> snapshot, Duration drain) {
+        long deadline = System.nanoTime() + drain.toNanos();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Pool pool = snapshot.get(i);
+            pool.executor().shutdown();
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (!pool.executor().awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    int dropped = pool.executor().shutdownNow().size();
+                    logger.warning("Executor " + pool.name() + " did not finish within " + drain.toMillis()
+                            + " ms; interrupted it and dropped " + dropped + " queued tasks.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Pool rest : snapshot.subList(i, snapshot.size())) {
+                    rest.executor().shutdownNow();
+                }
+                return;
+            }
+        }
+    }
+}
@@ -6,16 +6,22 @@ import org.bukkit.plugin.RegisteredServiceProvider;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class EconomyRouter {
 
     private final JavaPlugin plugin;
     private final ConfigManager configManager;
+    private final Executor executor;
     private EconomyService activeService;
 
-    public EconomyRouter(JavaPlugin plugin, ConfigManager configManager) {
+    /**
+     * @param executor Where the Vault provider's calls run.
+     */
+    public EconomyRouter(JavaPlugin plugin, ConfigManager configManager, Executor executor) {
         this.plugin = plugin;
         this.configManager = configManager;
+        this.executor = executor;
         setupEconomy();
     }
 
@@ -49,7 +55,7 @@ public class EconomyRouter {
         if (rsp == null) {
             return null;
         }
-        return new VaultEconomyService(plugin, rsp.getProvider());
+        return new VaultEconomyService(rsp.getProvider(), executor);
     }
 
     public EconomyService getService() {
@@ -4,20 +4,23 @@ import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 public class VaultEconomyService implements EconomyService {
 
-    private final JavaPlugin plugin;
     private final Economy vault;
+    private final Executor executor;
 
-    public VaultEconomyService(JavaPlugin plugin, Economy vault) {
-        this.plugin = plugin;
+    /**
+     * @param executor Where the (possibly blocking) provider calls run.
+     */
+    public VaultEconomyService(Economy vault, Executor executor) {
         this.vault = vault;
+        this.executor = executor;
     }
 
     @Override
@@ -64,28 +67,11 @@ public class VaultEconomyService implements EconomyService {
     }
 
     private <T> CompletableFuture<T> supplyAsynchronously(Supplier<T> supplier) {
-        CompletableFuture<T> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                future.complete(supplier.get());
-            } catch (Exception e) {
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return CompletableFuture.supplyAsync(supplier, executor);
     }
 
     private CompletableFuture<Void> runAsynchronously(Runnable runnable) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                runnable.run();
-                future.complete(null);
-            } catch (Exception e) {
-                future.completeExceptionally(e);
-            }
-        });
-        return future;
+        return CompletableFuture.runAsync(runnable, executor);
     }
 }
 
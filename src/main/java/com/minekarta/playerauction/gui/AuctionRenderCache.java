@@ -0,0 +1,315 @@
+package com.minekarta.playerauction.gui;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.minekarta.playerauction.PlayerAuction;
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.util.PlaceholderContext;
+import com.minekarta.playerauction.util.TimeUtil;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.inventory.ItemStack;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The parts of an auction's display item in {@link MainAuctionGui} that are the same
+ * for every viewer: the decoded item with its name, and the lore lines with their
+ * placeholders filled in and parsed. Rendered once per auction version, so a page
+ * that many players open is only rendered once.
+ * <p>
+ * Only what differs per viewer or over time is rendered per view: the action lines
+ * (own listing, can buy, or the amount still needed) and the lore lines that show
+ * the time left. An entry is replaced when the auction's version, status or seller
+ * name changes, and the whole cache is dropped when messages are reloaded.
+ * <p>
+ * Seller names are passed in rather than looked up, so that rendering never waits
+ * for a name lookup; see {@link MainAuctionGui#build()}.
+ */
+public class AuctionRenderCache {
+
+    // Lore lines holding these are rendered per view
+    private static final List<String> TIME_PLACEHOLDERS = List.of("{time_left}", "{time_color}");
+
+    private final PlayerAuction plugin;
+    private final Cache<UUID, RenderedAuction> rendered = CacheBuilder.newBuilder()
+            .maximumSize(2048)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
+    public AuctionRenderCache(PlayerAuction plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Viewer-independent render of one auction version.
+     *
+     * @param seller         The seller name it was rendered with.
+     * @param item           Template with the display name set; copy before use.
+     * @param lore           Rendered lore lines, null where a line shows the time left.
+     * @param timeLines      The templates of those lines, null elsewhere.
+     * @param placeholders   The auction's placeholder values, for per-view lines.
+     * @param ownLines       Action lines for the seller.
+     * @param purchaseLines  Action lines for viewers who can afford it.
+     * @param effectivePrice What the auction costs to buy.
+     */
+    private record RenderedAuction(int version, AuctionStatus status, String seller, ItemStack item, List<Component> lore,
+            List<String> timeLines, Map<String, String> placeholders, List<Component> ownLines,
+            List<Component> purchaseLines, double effectivePrice) {
+    }
+
+    /**
+     * Builds the display item of an auction for one viewer, rendering the auction
+     * first unless its current version is cached.
+     *
+     * @param sellerName The seller's name, or a placeholder while it is looked up.
+     * @param viewer     The player looking at it.
+     * @param balance    The viewer's balance, for the affordability lines.
+     */
+    public ItemStack displayItem(Auction auction, String sellerName, UUID viewer, double balance) {
+        RenderedAuction render = get(auction, sellerName);
+        var config = plugin.getConfigManager();
+        long timeLeft = auction.endAt() - System.currentTimeMillis();
+        PlaceholderContext context = new PlaceholderContext()
+                .addPlaceholders(new HashMap<>(render.placeholders()))
+                .addPlaceholder("time_left", TimeUtil.formatDuration(timeLeft))
+                .addPlaceholder("time_color", timeColor(timeLeft));
+
+        List<Component> lore = new ArrayList<>(render.lore().size() + 4);
+        for (int i = 0; i < render.lore().size(); i++) {
+            Component line = render.lore().get(i);
+            lore.add(line != null ? line : config.processMessageAsComponent(render.timeLines().get(i), context));
+        }
+
+        // Add action buttons based on context
+        lore.add(Component.empty());
+        if (viewer.equals(auction.seller())) {
+            lore.addAll(render.ownLines());
+        } else if (balance >= render.effectivePrice()) {
+            lore.addAll(render.purchaseLines());
+        } else {
+            var economyService = plugin.getEconomyRouter().getService();
+            context.addPlaceholder("affordable_text", "Need more money to purchase");
+            context.addPlaceholder("needed_amount", economyService.format(render.effectivePrice() - balance));
+            lore.addAll(renderLines(config.getMessages().getString("gui.item-action.insufficient-funds", ""),
+                    context));
+        }
+
+        return new GuiItemBuilder(render.item()).setLoreComponents(lore).build();
+    }
+
+    /**
+     * Renders the auctions that are not cached yet, so that building their display
+     * items on the main thread afterwards only adds the per-viewer lines. Safe to
+     * call from any thread.
+     *
+     * @param sellerNames The name to render for each auction's seller.
+     */
+    public void prerender(List<Auction> auctions, Function<UUID, String> sellerNames) {
+        for (Auction auction : auctions) {
+            get(auction, sellerNames.apply(auction.seller()));
+        }
+    }
+
+    private RenderedAuction get(Auction auction, String sellerName) {
+        RenderedAuction render = rendered.getIfPresent(auction.id());
+        if (render == null || render.version() != auction.version() || render.status() != auction.status()
+                || !render.seller().equals(sellerName)) {
+            render = render(auction, sellerName);
+            rendered.put(auction.id(), render);
+        }
+        return render;
+    }
+
+    private RenderedAuction render(Auction auction, String sellerName) {
+        var config = plugin.getConfigManager();
+        var economyService = plugin.getEconomyRouter().getService();
+        ItemStack item;
+        try {
+            item = auction.item().toItemStack();
+        } catch (RuntimeException e) {
+            item = null;
+        }
+        if (item == null) {
+            // Cached like any render, so this is logged once per auction version
+            plugin.getLogger().warning("Failed to deserialize item for auction " + auction.id()
+                    + ", showing a placeholder.");
+            item = auction.item().toDisplayStack();
+        }
+        GuiItemBuilder builder = new GuiItemBuilder(item);
+
+        // Get clean item display name
+        boolean hasDisplayName = item.hasItemMeta() && item.getItemMeta().hasDisplayName();
+        Component itemDisplayNameComp = hasDisplayName
+                ? item.getItemMeta().displayName()
+                : Component.text(formatItemName(item.getType().toString()));
+
+        // Serialize component back to minimessage for placeholders so it persists formats
+        String itemDisplayNameStr = MiniMessage.miniMessage().serialize(itemDisplayNameComp);
+        if (hasDisplayName) {
+            builder.setName(itemDisplayNameComp);
+        } else {
+            builder.setName(itemDisplayNameStr);
+        }
+
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("seller", sellerName);
+        placeholders.put("item_name", itemDisplayNameStr);
+        placeholders.put("quantity", String.valueOf(item.getAmount()));
+
+        // Pricing; the current bid equals the starting price until bids are tracked
+        placeholders.put("starting_price", economyService.format(auction.price()));
+        placeholders.put("current_bid", economyService.format(auction.price()));
+        if (auction.buyNowPrice() != null) {
+            placeholders.put("buy_now_price", economyService.format(auction.buyNowPrice()));
+            placeholders.put("buy_now_display", "<#2ECC71>" + economyService.format(auction.buyNowPrice()));
+        } else {
+            placeholders.put("buy_now_price", "N/A");
+            placeholders.put("buy_now_display", "<#7F8C8D>—");
+        }
+        if (auction.reservePrice() != null) {
+            placeholders.put("reserve_price", economyService.format(auction.reservePrice()));
+            placeholders.put("reserve_display", "<#E67E22>" + economyService.format(auction.reservePrice()));
+        } else {
+            placeholders.put("reserve_price", "N/A");
+            placeholders.put("reserve_display", "<#7F8C8D>—");
+        }
+
+        // Bid statistics, until bids are tracked
+        placeholders.put("bid_count", "0");
+        placeholders.put("highest_bidder", "—");
+
+        placeholders.put("duration", TimeUtil.formatDuration(auction.endAt() - auction.createdAt()));
+        placeholders.put("listed_date", new SimpleDateFormat("MMM dd, HH:mm").format(new Date(auction.createdAt())));
+        placeholders.put("status", getStatusText(auction.status()));
+        placeholders.put("status_color", getStatusColor(auction.status()));
+
+        double effectivePrice = auction.buyNowPrice() != null ? auction.buyNowPrice() : auction.price();
+        placeholders.put("price", economyService.format(effectivePrice));
+
+        PlaceholderContext context = new PlaceholderContext().addPlaceholders(new HashMap<>(placeholders));
+        List<Component> lore = new ArrayList<>();
+        List<String> timeLines = new ArrayList<>();
+        for (String line : config.getMessages().getStringList("gui.item-lore")) {
+            boolean timed = TIME_PLACEHOLDERS.stream().anyMatch(line::contains);
+            lore.add(timed ? null : config.processMessageAsComponent(line, context));
+            timeLines.add(timed ? line : null);
+        }
+
+        PlaceholderContext affordable = new PlaceholderContext().addPlaceholders(new HashMap<>(placeholders))
+                .addPlaceholder("affordable_text", "You can afford this item")
+                .addPlaceholder("needed_amount", economyService.format(0));
+        List<Component> ownLines = renderLines(
+                config.getMessages().getString("gui.item-action.own-auction", ""), affordable);
+        List<Component> purchaseLines = renderLines(
+                config.getMessages().getString("gui.item-action.can-purchase", ""), affordable);
+
+        return new RenderedAuction(auction.version(), auction.status(), sellerName, builder.build(),
+                lore, timeLines, placeholders, ownLines, purchaseLines, effectivePrice);
+    }
+
+    private List<Component> renderLines(String rawMessage, PlaceholderContext context) {
+        List<Component> lines = new ArrayList<>();
+        for (String line : rawMessage.split("\n")) {
+            lines.add(plugin.getConfigManager().processMessageAsComponent(line, context));
+        }
+        return lines;
+    }
+
+    private static String timeColor(long timeLeft) {
+        if (timeLeft <= 0) {
+            return "<#E74C3C>"; // Coral Red - expired
+        } else if (timeLeft < 60 * 60 * 1000) { // Less than 1 hour
+            return "<#E74C3C>"; // Coral Red - urgent
+        } else if (timeLeft < 24 * 60 * 60 * 1000) { // Less than 24 hours
+            return "<#E67E22>"; // Carrot - warning
+        }
+        return "<#2ECC71>"; // Emerald - plenty of time
+    }
+
+    /**
+     * Format item type name to be more readable.
+     * Example: DIAMOND_SWORD -> Diamond Sword
+     */
+    private static String formatItemName(String typeName) {
+        if (typeName == null || typeName.isEmpty()) {
+            return "Unknown Item";
+        }
+
+        // Split by underscore and capitalize each word
+        String[] parts = typeName.toLowerCase().split("_");
+        StringBuilder formatted = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                formatted.append(" ");
+            }
+            if (parts[i].length() > 0) {
+                formatted.append(Character.toUpperCase(parts[i].charAt(0)));
+                if (parts[i].length() > 1) {
+                    formatted.append(parts[i].substring(1));
+                }
+            }
+        }
+        return formatted.toString();
+    }
+
+    private static String getStatusText(AuctionStatus status) {
+        switch (status) {
+            case ACTIVE:
+                return "ACTIVE";
+            case FINISHED:
+                return "SOLD";
+            case CANCELLED:
+                return "CANCELLED";
+            case EXPIRED:
+                return "EXPIRED";
+            default:
+                return status.name();
+        }
+    }
+
+    private static String getStatusColor(AuctionStatus status) {
+        // Modern hex colors
+        switch (status) {
+            case ACTIVE:
+                return "<#2ECC71>"; // Emerald for active
+            case FINISHED:
+                return "<#F5A623>"; // Amber Gold for sold
+            case CANCELLED:
+                return "<#7F8C8D>"; // Slate Gray for cancelled
+            case EXPIRED:
+                return "<#E74C3C>"; // Coral Red for expired
+            default:
+                return "<#ECF0F1>"; // Cloud White for unknown
+        }
+    }
+
+    /**
+     * Hit and miss counters since startup.
+     */
+    public CacheStats stats() {
+        return rendered.stats();
+    }
+
+    public long size() {
+        return rendered.size();
+    }
+
+    /**
+     * Drops every render, e.g. after the message templates were reloaded.
+     */
+    public void clear() {
+        rendered.invalidateAll();
+    }
+}
@@ -2,6 +2,7 @@ package com.minekarta.playerauction.gui;
 
 import com.minekarta.playerauction.PlayerAuction;
 import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
 import com.minekarta.playerauction.util.TimeUtil;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -9,7 +10,11 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -19,10 +24,23 @@ public class HistoryGui extends PaginatedGui {
     private final UUID targetPlayerId;
     private List<Transaction> transactions;
 
-    public HistoryGui(PlayerAuction plugin, Player player, UUID targetPlayerId, int page) {
+    // Keyset pagination: element i is the cursor the (i + 1)th page starts after
+    // (null for page 1), so the last element belongs to this page
+    private final List<TransactionCursor> pageCursors;
+
+    /**
+     * Opens the first page of a player's history, newest first.
+     */
+    public HistoryGui(PlayerAuction plugin, Player player, UUID targetPlayerId) {
+        this(plugin, player, targetPlayerId, 1, Collections.singletonList(null));
+    }
+
+    private HistoryGui(PlayerAuction plugin, Player player, UUID targetPlayerId, int page,
+            List<TransactionCursor> pageCursors) {
         super(plugin, player, page, 45);
         this.kah = plugin;
         this.targetPlayerId = targetPlayerId;
+        this.pageCursors = pageCursors;
         // Mark as async GUI - we'll call openInventory() after build completes
         setAsync(true);
     }
@@ -39,18 +57,36 @@ public class HistoryGui extends PaginatedGui {
     @Override
     protected void build() {
         // Fetch transactions and build page
-        kah.getTransactionLogger().getHistory(targetPlayerId, page, itemsPerPage + 1)
-                .thenAccept(fetchedTransactions -> {
+        CompletableFuture<Integer> totalCountFuture = kah.getTransactionLogger().getHistorySize(targetPlayerId);
+        kah.getTransactionLogger().getHistory(targetPlayerId, pageCursors.get(pageCursors.size() - 1),
+                        itemsPerPage + 1)
+                .thenCompose(fetchedTransactions -> {
                     this.hasNextPage = fetchedTransactions.size() > itemsPerPage;
                     this.transactions = hasNextPage ? fetchedTransactions.subList(0, itemsPerPage)
                             : fetchedTransactions;
 
+                    // Look up the names of the page's buyers and sellers in one batch,
+                    // before switching to the main thread
+                    Set<UUID> counterparties = new HashSet<>();
+                    for (Transaction transaction : transactions) {
+                        if (transaction.buyerUuid() != null) {
+                            counterparties.add(transaction.buyerUuid());
+                        }
+                        if (transaction.sellerUuid() != null) {
+                            counterparties.add(transaction.sellerUuid());
+                        }
+                    }
+                    counterparties.remove(player.getUniqueId());
+                    return kah.getPlayerNameCache().getNames(counterparties);
+                })
+                .thenCombine(totalCountFuture, (names, totalCount) -> {
+                    int totalPages = Math.max(1, (int) Math.ceil((double) totalCount / itemsPerPage));
                     // Run on main thread to populate items
                     plugin.getServer().getScheduler().runTask(plugin, () -> {
                         // Populate transaction items
                         for (int i = 0; i < transactions.size(); i++) {
                             Transaction transaction = transactions.get(i);
-                            ItemStack displayItem = createHistoryItem(transaction);
+                            ItemStack displayItem = createHistoryItem(transaction, names);
                             inventory.setItem(i, displayItem);
                         }
 
@@ -70,10 +106,12 @@ public class HistoryGui extends PaginatedGui {
                         // Add control bar and custom controls
                         addControlBar();
                         addCustomControls();
+                        updatePlayerInfoItem(totalPages);
 
                         // ✅ FIX: Open inventory AFTER build is complete
                         openInventory();
                     });
+                    return null;
                 }).exceptionally(ex -> {
                     kah.getLogger().severe("Error building HistoryGui: " + ex.getMessage());
                     ex.printStackTrace();
@@ -93,8 +131,11 @@ public class HistoryGui extends PaginatedGui {
                         .setLore(backLore).build());
     }
 
-    private ItemStack createHistoryItem(Transaction transaction) {
-        ItemStack item = transaction.itemSnapshot().toItemStack();
+    /**
+     * @param names The names of the transaction's buyer and seller, unless either is the viewer.
+     */
+    private ItemStack createHistoryItem(Transaction transaction, Map<UUID, String> names) {
+        ItemStack item = transaction.itemSnapshot().toDisplayStack();
         GuiItemBuilder builder = new GuiItemBuilder(item);
 
         List<String> lore = new ArrayList<>();
@@ -146,7 +187,7 @@ public class HistoryGui extends PaginatedGui {
             if (isSeller) {
                 // User was the seller
                 String buyerName = transaction.buyerUuid() != null
-                        ? kah.getPlayerNameCache().getName(transaction.buyerUuid()).join()
+                        ? names.getOrDefault(transaction.buyerUuid(), "Unknown")
                         : "Unknown";
                 lore.add("<gray>➤ <gold>Sold to: <yellow>" + buyerName);
                 lore.add("<gray>➤ <gold>Earned: <green>+"
@@ -154,7 +195,7 @@ public class HistoryGui extends PaginatedGui {
             } else if (isBuyer) {
                 // User was the buyer
                 String sellerName = transaction.sellerUuid() != null
-                        ? kah.getPlayerNameCache().getName(transaction.sellerUuid()).join()
+                        ? names.getOrDefault(transaction.sellerUuid(), "Unknown")
                         : "Unknown";
                 lore.add("<gray>➤ <gold>Bought from: <yellow>" + sellerName);
                 lore.add("<gray>➤ <gold>Paid: <red>-"
@@ -212,7 +253,7 @@ public class HistoryGui extends PaginatedGui {
             details.add("<gray>Status: " + clickedTransaction.status());
             details.add("<gray>Date: <yellow>" + new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
                     .format(new java.util.Date(clickedTransaction.timestamp())));
-            details.add("<gray>Item: <yellow>" + clickedTransaction.itemSnapshot().toItemStack().getType().toString());
+            details.add("<gray>Item: <yellow>" + clickedTransaction.itemSnapshot().toDisplayStack().getType().toString());
 
             if (clickedTransaction.finalPrice() != null) {
                 details.add(
@@ -233,7 +274,7 @@ public class HistoryGui extends PaginatedGui {
         if (slot == 48) { // My Listings button
             new MyListingsGui(kah, player, 1).open();
         } else if (slot == 50) { // History button - refresh current page
-            new HistoryGui(kah, player, targetPlayerId, page).open();
+            new HistoryGui(kah, player, targetPlayerId, page, pageCursors).open();
         } else if (slot == 51) { // Create Auction button
             net.kyori.adventure.text.Component createUnavailableMsg = kah.getConfigManager().getPrefixedMessage(
                     "info.create-auction-unavailable",
@@ -244,6 +285,27 @@ public class HistoryGui extends PaginatedGui {
 
     @Override
     protected void openPage(int newPage) {
-        new HistoryGui(kah, player, targetPlayerId, newPage).open();
+        // Pages after the first are only reached through the cursors
+        new HistoryGui(kah, player, targetPlayerId).open();
+    }
+
+    @Override
+    protected void openNextPage() {
+        if (transactions == null || transactions.isEmpty()) {
+            return;
+        }
+        List<TransactionCursor> nextCursors = new ArrayList<>(pageCursors);
+        nextCursors.add(TransactionCursor.of(transactions.get(transactions.size() - 1)));
+        new HistoryGui(kah, player, targetPlayerId, page + 1, nextCursors).open();
+    }
+
+    @Override
+    protected void openPreviousPage() {
+        if (pageCursors.size() < 2) {
+            openPage(1);
+            return;
+        }
+        new HistoryGui(kah, player, targetPlayerId, page - 1,
+                new ArrayList<>(pageCursors.subList(0, pageCursors.size() - 1))).open();
     }
 }
@@ -150,7 +150,7 @@ public class MailboxGui extends PaginatedGui {
     }
 
     private ItemStack createItemDisplay(MailboxItem mailboxItem) {
-        ItemStack originalItem = mailboxItem.item().toItemStack();
+        ItemStack originalItem = mailboxItem.item().toDisplayStack();
         GuiItemBuilder builder = new GuiItemBuilder(originalItem);
 
         List<String> lore = new ArrayList<>();
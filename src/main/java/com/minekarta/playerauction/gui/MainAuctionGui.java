@@ -2,25 +2,37 @@ package com.minekarta.playerauction.gui;
 
 import com.minekarta.playerauction.PlayerAuction;
 import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
 import com.minekarta.playerauction.gui.model.AuctionCategory;
 import com.minekarta.playerauction.gui.model.SortOrder;
-import com.minekarta.playerauction.util.PlaceholderContext;
-import com.minekarta.playerauction.util.TimeUtil;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 public class MainAuctionGui extends PaginatedGui {
 
-    private final PlayerAuction kah;
+    protected final PlayerAuction kah;
     private List<Auction> auctions;
-    private final SortOrder sortOrder;
+    protected final SortOrder sortOrder;
+    protected int totalCount;
+
+    // Keyset pagination: element i is the cursor the (i + 1)th page starts after
+    // (null for page 1), so the last element belongs to this page. Null when the
+    // GUI was opened directly at a page number, which falls back to an offset.
+    protected final List<AuctionCursor> pageCursors;
 
     // ✅ FIX: Available slots for auction items (avoiding borders and controls)
     // GUI Layout (54 slots = 6 rows × 9 columns):
@@ -41,9 +53,15 @@ public class MainAuctionGui extends PaginatedGui {
     private static final int ITEMS_PER_PAGE = AUCTION_SLOTS.length; // 28 items per page
 
     public MainAuctionGui(PlayerAuction plugin, Player player, int page, SortOrder sortOrder) {
+        this(plugin, player, page, sortOrder, page == 1 ? Collections.singletonList(null) : null);
+    }
+
+    protected MainAuctionGui(PlayerAuction plugin, Player player, int page, SortOrder sortOrder,
+            @Nullable List<AuctionCursor> pageCursors) {
         super(plugin, player, page, ITEMS_PER_PAGE);
         this.kah = plugin;
         this.sortOrder = sortOrder;
+        this.pageCursors = pageCursors;
 
         // Mark as async GUI - we'll call openInventory() after build completes
         setAsync(true);
@@ -91,13 +109,11 @@ public class MainAuctionGui extends PaginatedGui {
 
     @Override
     protected void build() {
-        // Get auctions for the current page and player balance
-        CompletableFuture<List<Auction>> pageAuctionsFuture = kah.getAuctionService().getActiveAuctions(page,
-                itemsPerPage, AuctionCategory.ALL, sortOrder);
+        // Get auctions for the current page (one extra to detect a next page) and player balance
+        CompletableFuture<List<Auction>> pageAuctionsFuture = fetchPage(itemsPerPage + 1);
         CompletableFuture<Double> balanceFuture = kah.getEconomyRouter().getService().getBalance(player.getUniqueId());
 
-        // Use total count for pagination (no filtering)
-        CompletableFuture<Integer> totalCountFuture = kah.getAuctionService().getTotalActiveAuctionCount();
+        CompletableFuture<Integer> totalCountFuture = fetchTotalCount();
 
         // Combine all futures
         pageAuctionsFuture.thenCombine(balanceFuture, (fetchedAuctions, balance) -> {
@@ -105,17 +121,35 @@ public class MainAuctionGui extends PaginatedGui {
             this.hasNextPage = fetchedAuctions.size() > itemsPerPage;
             this.auctions = hasNextPage ? fetchedAuctions.subList(0, itemsPerPage) : fetchedAuctions;
 
-            // Populate auction items on main thread
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                for (int i = 0; i < this.auctions.size(); i++) {
-                    Auction auction = this.auctions.get(i);
-                    ItemStack displayItem = createAuctionItem(auction, balance);
-                    inventory.setItem(getSlotForItemIndex(i), displayItem);
+            List<Auction> pageAuctions = this.auctions;
+
+            // Look up the page's seller names in one batch. Names that are not cached
+            // show a placeholder first and are patched in once the lookup finishes,
+            // so the page never waits for a lookup
+            List<UUID> sellers = pageAuctions.stream().map(Auction::seller).distinct().toList();
+            CompletableFuture<Map<UUID, String>> namesFuture = kah.getPlayerNameCache().getNames(sellers);
+            Map<UUID, String> sellerNames = namesFuture.getNow(null);
+            if (sellerNames != null) {
+                populate(pageAuctions, sellerNames, balance, null);
+            } else {
+                Map<UUID, String> cachedNames = new HashMap<>();
+                Set<UUID> unresolved = new HashSet<>();
+                for (UUID seller : sellers) {
+                    String name = kah.getPlayerNameCache().getCachedName(seller);
+                    if (name != null) {
+                        cachedNames.put(seller, name);
+                    } else {
+                        unresolved.add(seller);
+                    }
                 }
-            });
+                populate(pageAuctions, cachedNames, balance, null);
+                // Registered after the first pass was queued, so the patch lands on top of it
+                namesFuture.thenAccept(names -> populate(pageAuctions, names, balance, unresolved));
+            }
 
             return balance;
         }).thenCombine(totalCountFuture, (balance, totalCount) -> {
+            this.totalCount = totalCount;
             int totalPages = (int) Math.ceil((double) totalCount / itemsPerPage);
             if (totalPages == 0)
                 totalPages = 1;
@@ -148,13 +182,74 @@ public class MainAuctionGui extends PaginatedGui {
         });
     }
 
+    /**
+     * Renders the page's display items off the main thread, then places them on it,
+     * adding only the viewer's action lines there.
+     *
+     * @param only If not null, only the slots of auctions by these sellers are set.
+     */
+    private void populate(List<Auction> pageAuctions, Map<UUID, String> sellerNames, double balance,
+            @Nullable Set<UUID> only) {
+        AuctionRenderCache renderCache = kah.getAuctionRenderCache();
+        List<Auction> toRender = only == null ? pageAuctions
+                : pageAuctions.stream().filter(a -> only.contains(a.seller())).toList();
+        if (toRender.isEmpty()) {
+            return;
+        }
+        Function<UUID, String> nameOf = seller -> sellerNames.getOrDefault(seller, unresolvedSellerName());
+        renderCache.prerender(toRender, nameOf);
+
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            for (int i = 0; i < pageAuctions.size(); i++) {
+                Auction auction = pageAuctions.get(i);
+                if (only != null && !only.contains(auction.seller())) {
+                    continue;
+                }
+                ItemStack displayItem = renderCache.displayItem(auction, nameOf.apply(auction.seller()),
+                        player.getUniqueId(), balance);
+                inventory.setItem(getSlotForItemIndex(i), displayItem);
+            }
+        });
+    }
+
+    private String unresolvedSellerName() {
+        return kah.getConfigManager().getMessages().getString("gui.seller-unresolved", "...");
+    }
+
+    /**
+     * Fetches the auctions for this page, continuing after the previous page's
+     * cursor when there is one.
+     */
+    protected CompletableFuture<List<Auction>> fetchPage(int limit) {
+        if (pageCursors != null) {
+            return kah.getAuctionService().getActiveAuctionsAfter(pageCursors.get(pageCursors.size() - 1), limit,
+                    AuctionCategory.ALL, sortOrder);
+        }
+        return kah.getAuctionService().getAuctionStorage().findActive(limit, (page - 1) * itemsPerPage,
+                AuctionCategory.ALL, sortOrder);
+    }
+
+    /**
+     * Counts every auction this GUI pages through, for the page total.
+     */
+    protected CompletableFuture<Integer> fetchTotalCount() {
+        return kah.getAuctionService().getTotalActiveAuctionCount();
+    }
+
+    /**
+     * Opens another page or sort order of this same listing.
+     */
+    protected void reopen(int page, SortOrder sortOrder, @Nullable List<AuctionCursor> pageCursors) {
+        new MainAuctionGui(kah, player, page, sortOrder, pageCursors).open();
+    }
+
     @Override
     protected void updatePlayerInfoItem(int totalPages) {
         // Call the parent method to update the player info item
         super.updatePlayerInfoItem(totalPages);
     }
 
-    private void addCustomControls() {
+    protected void addCustomControls() {
         // ═══════════════════════════════════════════════════════════════════════
         // GUI Control Bar Layout (Bottom Row - Slots 45-53):
         // [45] Border | [46] Prev | [47] Sort | [48] Search | [49] Profile
@@ -215,233 +310,6 @@ public class MainAuctionGui extends PaginatedGui {
                 new GuiItemBuilder(Material.ENDER_CHEST).setName(mailboxName).setLore(mailboxLore).build());
     }
 
-    private ItemStack createAuctionItem(Auction auction, double playerBalance) {
-        ItemStack item = auction.item().toItemStack();
-        GuiItemBuilder builder = new GuiItemBuilder(item);
-
-        // Get clean item display name
-        net.kyori.adventure.text.Component itemDisplayNameComp = item.hasItemMeta()
-                && item.getItemMeta().hasDisplayName()
-                        ? item.getItemMeta().displayName()
-                        : net.kyori.adventure.text.Component.text(formatItemName(item.getType().toString()));
-
-        // Serialize component back to minimessage for placeholders so it persists
-        // formats
-        String itemDisplayNameStr = net.kyori.adventure.text.minimessage.MiniMessage.miniMessage()
-                .serialize(itemDisplayNameComp);
-
-        if (item.hasItemMeta() && item.getItemMeta().hasDisplayName()) {
-            builder.setName(itemDisplayNameComp);
-        } else {
-            builder.setName(itemDisplayNameStr);
-        }
-
-        // Get seller name
-        String sellerName = kah.getPlayerNameCache().getName(auction.seller()).join();
-
-        // Check if this is player's own auction
-        boolean isOwnAuction = player.getUniqueId().equals(auction.seller());
-
-        // Economy service for formatting
-        var economyService = kah.getEconomyRouter().getService();
-
-        // Create placeholder context for auction-specific information
-        PlaceholderContext context = new PlaceholderContext()
-                .addPlaceholder("seller", sellerName)
-                .addPlaceholder("item_name", itemDisplayNameStr)
-                .addPlaceholder("quantity", String.valueOf(item.getAmount()));
-
-        // ═══════════════════════════════════════════════
-        // PRICING INFORMATION
-        // ═══════════════════════════════════════════════
-
-        // Starting price (initial bid)
-        context.addPlaceholder("starting_price", economyService.format(auction.price()));
-
-        // Current bid (for now same as starting price, can be enhanced with bid
-        // tracking)
-        // TODO: When bid system is fully implemented, this should show actual current
-        // highest bid
-        context.addPlaceholder("current_bid", economyService.format(auction.price()));
-
-        // Buy Now price with visual indicator
-        if (auction.buyNowPrice() != null) {
-            context.addPlaceholder("buy_now_price", economyService.format(auction.buyNowPrice()));
-            context.addPlaceholder("buy_now_display", "<#2ECC71>" + economyService.format(auction.buyNowPrice()));
-        } else {
-            context.addPlaceholder("buy_now_price", "N/A");
-            context.addPlaceholder("buy_now_display", "<#7F8C8D>—");
-        }
-
-        // Reserve price with visual indicator
-        if (auction.reservePrice() != null) {
-            context.addPlaceholder("reserve_price", economyService.format(auction.reservePrice()));
-            context.addPlaceholder("reserve_display", "<#E67E22>" + economyService.format(auction.reservePrice()));
-        } else {
-            context.addPlaceholder("reserve_price", "N/A");
-            context.addPlaceholder("reserve_display", "<#7F8C8D>—");
-        }
-
-        // ═══════════════════════════════════════════════
-        // BID STATISTICS
-        // ═══════════════════════════════════════════════
-
-        // TODO: These can be enhanced when bid tracking is fully implemented
-        context.addPlaceholder("bid_count", "0"); // Placeholder for bid count
-        context.addPlaceholder("highest_bidder", "—"); // Placeholder for highest bidder name
-
-        // ═══════════════════════════════════════════════
-        // TIME INFORMATION
-        // ═══════════════════════════════════════════════
-
-        // Time left with color coding
-        long timeLeft = auction.endAt() - System.currentTimeMillis();
-        String timeStr = TimeUtil.formatDuration(timeLeft);
-        String timeColor;
-        if (timeLeft <= 0) {
-            timeColor = "<#E74C3C>"; // Coral Red - expired
-        } else if (timeLeft < 60 * 60 * 1000) { // Less than 1 hour
-            timeColor = "<#E74C3C>"; // Coral Red - urgent
-        } else if (timeLeft < 24 * 60 * 60 * 1000) { // Less than 24 hours
-            timeColor = "<#E67E22>"; // Carrot - warning
-        } else {
-            timeColor = "<#2ECC71>"; // Emerald - plenty of time
-        }
-        context.addPlaceholder("time_left", timeStr);
-        context.addPlaceholder("time_color", timeColor);
-
-        // Total duration
-        long totalDuration = auction.endAt() - auction.createdAt();
-        context.addPlaceholder("duration", TimeUtil.formatDuration(totalDuration));
-
-        // Listed date (when the auction was created)
-        java.text.SimpleDateFormat dateFormat = new java.text.SimpleDateFormat("MMM dd, HH:mm");
-        String listedDate = dateFormat.format(new java.util.Date(auction.createdAt()));
-        context.addPlaceholder("listed_date", listedDate);
-
-        // ═══════════════════════════════════════════════
-        // STATUS INFORMATION
-        // ═══════════════════════════════════════════════
-
-        context.addPlaceholder("status", getStatusText(auction.status()));
-        context.addPlaceholder("status_color", getStatusColor(auction.status()));
-
-        // ═══════════════════════════════════════════════
-        // AFFORDABILITY & ACTION CONTEXT
-        // ═══════════════════════════════════════════════
-
-        double effectivePrice = auction.buyNowPrice() != null ? auction.buyNowPrice() : auction.price();
-        context.addPlaceholder("price", economyService.format(effectivePrice));
-
-        boolean canAfford = playerBalance >= effectivePrice;
-        context.addPlaceholder("affordable_text",
-                canAfford ? "You can afford this item" : "Need more money to purchase");
-
-        double neededAmount = effectivePrice - playerBalance;
-        context.addPlaceholder("needed_amount",
-                neededAmount > 0 ? economyService.format(neededAmount) : economyService.format(0));
-
-        // ═══════════════════════════════════════════════
-        // BUILD LORE
-        // ═══════════════════════════════════════════════
-
-        List<net.kyori.adventure.text.Component> lore = new ArrayList<>();
-
-        // Get lore template from messages.yml
-        List<String> rawLore = kah.getConfigManager().getMessages().getStringList("gui.item-lore");
-        for (String loreLine : rawLore) {
-            net.kyori.adventure.text.Component processed = kah.getConfigManager().processMessageAsComponent(loreLine,
-                    context);
-            lore.add(processed);
-        }
-
-        // Add action buttons based on context
-        lore.add(net.kyori.adventure.text.Component.empty());
-
-        if (isOwnAuction) {
-            // Player's own auction - show manage option
-            String rawActionMsg = kah.getConfigManager().getMessages().getString("gui.item-action.own-auction", "");
-            for (String line : rawActionMsg.split("\n")) {
-                lore.add(kah.getConfigManager().processMessageAsComponent(line, context));
-            }
-        } else if (canAfford) {
-            // Can afford - show purchase options
-            String rawActionMsg = kah.getConfigManager().getMessages().getString("gui.item-action.can-purchase", "");
-            for (String line : rawActionMsg.split("\n")) {
-                lore.add(kah.getConfigManager().processMessageAsComponent(line, context));
-            }
-        } else {
-            // Cannot afford - show insufficient funds
-            String rawActionMsg = kah.getConfigManager().getMessages().getString("gui.item-action.insufficient-funds",
-                    "");
-            for (String line : rawActionMsg.split("\n")) {
-                lore.add(kah.getConfigManager().processMessageAsComponent(line, context));
-            }
-        }
-
-        return builder.setLoreComponents(lore).build();
-    }
-
-    /**
-     * Format item type name to be more readable.
-     * Example: DIAMOND_SWORD -> Diamond Sword
-     */
-    private String formatItemName(String typeName) {
-        if (typeName == null || typeName.isEmpty()) {
-            return "Unknown Item";
-        }
-
-        // Split by underscore and capitalize each word
-        String[] parts = typeName.toLowerCase().split("_");
-        StringBuilder formatted = new StringBuilder();
-
-        for (int i = 0; i < parts.length; i++) {
-            if (i > 0) {
-                formatted.append(" ");
-            }
-            // Capitalize first letter
-            if (parts[i].length() > 0) {
-                formatted.append(Character.toUpperCase(parts[i].charAt(0)));
-                if (parts[i].length() > 1) {
-                    formatted.append(parts[i].substring(1));
-                }
-            }
-        }
-
-        return formatted.toString();
-    }
-
-    private String getStatusText(com.minekarta.playerauction.auction.model.AuctionStatus status) {
-        switch (status) {
-            case ACTIVE:
-                return "ACTIVE";
-            case FINISHED:
-                return "SOLD";
-            case CANCELLED:
-                return "CANCELLED";
-            case EXPIRED:
-                return "EXPIRED";
-            default:
-                return status.name();
-        }
-    }
-
-    private String getStatusColor(com.minekarta.playerauction.auction.model.AuctionStatus status) {
-        // Modern hex colors
-        switch (status) {
-            case ACTIVE:
-                return "<#2ECC71>"; // Emerald for active
-            case FINISHED:
-                return "<#F5A623>"; // Amber Gold for sold
-            case CANCELLED:
-                return "<#7F8C8D>"; // Slate Gray for cancelled
-            case EXPIRED:
-                return "<#E74C3C>"; // Coral Red for expired
-            default:
-                return "<#ECF0F1>"; // Cloud White for unknown
-        }
-    }
-
     @Override
     protected void onClick(InventoryClickEvent event) {
         // Handle pagination, close, and player info clicks from the parent
@@ -462,14 +330,14 @@ public class MainAuctionGui extends PaginatedGui {
                     kah.getAuctionService().buyItem(player, clickedAuction.id()).thenAccept(success -> {
                         if (success) {
                             player.sendMessage(kah.getConfigManager().getPrefixedMessage("auction.purchase-success",
-                                    "%item%", clickedAuction.item().toItemStack().getType().toString(),
+                                    "%item%", clickedAuction.itemMetadata().material(),
                                     "%price%", kah.getEconomyRouter().getService().format(clickedAuction.price())));
                         } else {
                             // Purchase failed - item likely already sold or other error occurred
                             player.sendMessage(kah.getConfigManager().getPrefixedMessage("errors.buy-fail"));
                         }
                         // Always refresh GUI to show current state
-                        new MainAuctionGui(kah, player, page, sortOrder).open();
+                        reopen(page, sortOrder, pageCursors);
                     });
                 } else {
                     // Insufficient funds
@@ -486,7 +354,7 @@ public class MainAuctionGui extends PaginatedGui {
 
         if (slot == 47) { // Sort button
             SortOrder nextSortOrder = sortOrder.next();
-            new MainAuctionGui(kah, player, 1, nextSortOrder).open();
+            reopen(1, nextSortOrder, Collections.singletonList(null));
         } else if (slot == 50) { // My Listings button
             new MyListingsGui(kah, player, 1).open();
         } else if (slot == 51) { // Mailbox button
@@ -496,7 +364,27 @@ public class MainAuctionGui extends PaginatedGui {
 
     @Override
     protected void openPage(int newPage) {
-        new MainAuctionGui(kah, player, newPage, sortOrder).open();
+        reopen(newPage, sortOrder, newPage == 1 ? Collections.singletonList(null) : null);
+    }
+
+    @Override
+    protected void openNextPage() {
+        if (pageCursors == null || auctions == null || auctions.isEmpty()) {
+            super.openNextPage();
+            return;
+        }
+        List<AuctionCursor> nextCursors = new ArrayList<>(pageCursors);
+        nextCursors.add(AuctionCursor.of(auctions.get(auctions.size() - 1)));
+        reopen(page + 1, sortOrder, nextCursors);
+    }
+
+    @Override
+    protected void openPreviousPage() {
+        if (pageCursors == null || pageCursors.size() < 2) {
+            super.openPreviousPage();
+            return;
+        }
+        reopen(page - 1, sortOrder, new ArrayList<>(pageCursors.subList(0, pageCursors.size() - 1)));
     }
 
     @Override
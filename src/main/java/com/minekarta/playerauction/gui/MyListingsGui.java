@@ -127,7 +127,7 @@ public class MyListingsGui extends PaginatedGui {
     }
 
     private ItemStack createAuctionItem(Auction auction) {
-        ItemStack item = auction.item().toItemStack();
+        ItemStack item = auction.item().toDisplayStack();
         GuiItemBuilder builder = new GuiItemBuilder(item);
 
         // Get clean item display name
@@ -331,7 +331,7 @@ public class MyListingsGui extends PaginatedGui {
                 player.closeInventory();
                 net.kyori.adventure.text.Component confirmMessage = kah.getConfigManager().getPrefixedMessage(
                         "info.confirm-cancel",
-                        "%item%", clickedAuction.item().toItemStack().getType().toString(),
+                        "%item%", clickedAuction.itemMetadata().material(),
                         "%price%", kah.getEconomyRouter().getService().format(clickedAuction.price()));
                 player.sendMessage(confirmMessage);
 
@@ -340,7 +340,7 @@ public class MyListingsGui extends PaginatedGui {
                     if (success) {
                         net.kyori.adventure.text.Component successMsg = kah.getConfigManager().getPrefixedMessage(
                                 "auction.cancel-success",
-                                "%item%", clickedAuction.item().toItemStack().getType().toString());
+                                "%item%", clickedAuction.itemMetadata().material());
                         player.sendMessage(successMsg);
                         // Refresh the GUI after a short delay
                         plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
@@ -367,7 +367,7 @@ public class MyListingsGui extends PaginatedGui {
         if (slot == 48) { // My Listings button - refresh current page
             new MyListingsGui(kah, player, page).open();
         } else if (slot == 50) { // History button
-            new HistoryGui(kah, player, player.getUniqueId(), 1).open();
+            new HistoryGui(kah, player, player.getUniqueId()).open();
         } else if (slot == 51) { // Create Auction button
             net.kyori.adventure.text.Component createUnavailableMsg = kah.getConfigManager().getPrefixedMessage(
                     "info.create-auction-unavailable",
@@ -124,11 +124,11 @@ public abstract class PaginatedGui extends Gui {
         // Navigation controls
         if (slot == 46 && page > 1) {
             // Previous page
-            openPage(page - 1);
+            openPreviousPage();
             return true;
         } else if (slot == 52 && hasNextPage) {
             // Next page
-            openPage(page + 1);
+            openNextPage();
             return true;
         } else if (slot == 47) {
             // Sort button - to be implemented by subclasses
@@ -145,6 +145,21 @@ public abstract class PaginatedGui extends Gui {
 
     protected abstract void openPage(int newPage);
 
+    /**
+     * Opens the page after this one. GUIs that page with a cursor override this
+     * to continue from the last item shown instead of jumping by page number.
+     */
+    protected void openNextPage() {
+        openPage(page + 1);
+    }
+
+    /**
+     * Opens the page before this one.
+     */
+    protected void openPreviousPage() {
+        openPage(page - 1);
+    }
+
     /**
      * Updates the player info item with complete statistics including balance
      */
@@ -0,0 +1,91 @@
+package com.minekarta.playerauction.gui;
+
+import com.minekarta.playerauction.PlayerAuction;
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
+import com.minekarta.playerauction.gui.model.AuctionCategory;
+import com.minekarta.playerauction.gui.model.SortOrder;
+import com.minekarta.playerauction.util.PlaceholderContext;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The auction browser restricted to the results of {@code /ah search}. Results come
+ * from the storage's search index and page by cursor like the main GUI; the search
+ * slot (48) shows the query and result count and leads back to the full listing.
+ */
+public class SearchResultsGui extends MainAuctionGui {
+
+    private final String query;
+
+    public SearchResultsGui(PlayerAuction plugin, Player player, String query, SortOrder sortOrder) {
+        this(plugin, player, query, 1, sortOrder, Collections.singletonList(null));
+    }
+
+    private SearchResultsGui(PlayerAuction plugin, Player player, String query, int page, SortOrder sortOrder,
+            @Nullable List<AuctionCursor> pageCursors) {
+        super(plugin, player, page, sortOrder, pageCursors);
+        this.query = query;
+    }
+
+    @Override
+    protected net.kyori.adventure.text.Component getTitleComponent() {
+        return kah.getConfigManager().getMessage("gui.search-title",
+                "%query%", query,
+                "%page%", String.valueOf(page));
+    }
+
+    @Override
+    protected CompletableFuture<List<Auction>> fetchPage(int limit) {
+        AuctionCursor after = pageCursors != null ? pageCursors.get(pageCursors.size() - 1) : null;
+        return kah.getAuctionService().searchActiveAuctionsAfter(query, after, limit, AuctionCategory.ALL, sortOrder);
+    }
+
+    @Override
+    protected CompletableFuture<Integer> fetchTotalCount() {
+        return kah.getAuctionService().countSearchResults(query);
+    }
+
+    @Override
+    protected void reopen(int page, SortOrder sortOrder, @Nullable List<AuctionCursor> pageCursors) {
+        // Search results are only reachable by cursor; a bare page number restarts the search
+        if (pageCursors == null) {
+            new SearchResultsGui(kah, player, query, sortOrder).open();
+            return;
+        }
+        new SearchResultsGui(kah, player, query, page, sortOrder, pageCursors).open();
+    }
+
+    @Override
+    protected void addCustomControls() {
+        super.addCustomControls();
+
+        PlaceholderContext context = new PlaceholderContext()
+                .addPlaceholder("query", query)
+                .addPlaceholder("count", String.valueOf(totalCount));
+        List<net.kyori.adventure.text.Component> lore = new ArrayList<>();
+        for (String line : kah.getConfigManager().getMessages().getStringList("gui.control-items.search-results-lore")) {
+            lore.add(kah.getConfigManager().processMessageAsComponent(line, context));
+        }
+        inventory.setItem(48, new GuiItemBuilder(Material.SPYGLASS)
+                .setName(kah.getConfigManager().getMessage("gui.control-items.search-results", context))
+                .setLoreComponents(lore)
+                .build());
+    }
+
+    @Override
+    protected void onClick(InventoryClickEvent event) {
+        if (event.getSlot() == 48) {
+            new MainAuctionGui(kah, player, 1, sortOrder).open();
+            return;
+        }
+        super.onClick(event);
+    }
+}
@@ -3,8 +3,15 @@ package com.minekarta.playerauction.mailbox;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
 import com.minekarta.playerauction.mailbox.model.MailboxItem;
+import com.minekarta.playerauction.storage.ItemBlobStore;
+import com.minekarta.playerauction.storage.SerializedItemAdapter;
+import com.minekarta.playerauction.storage.json.JsonStorageSettings;
+import com.minekarta.playerauction.storage.json.WriteBehind;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.lang.reflect.Type;
@@ -12,37 +19,52 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
+import java.util.function.ObjIntConsumer;
 
 /**
  * JSON-based implementation of MailboxStorage
+ * Items are held in memory in a {@link MailboxIndex}, so per-player queries only
+ * touch that player's items
  */
 public class JsonMailboxStorage implements MailboxStorage {
 
     private final JavaPlugin plugin;
-    private final Executor executor;
+    private final ScheduledExecutorService executor;
+    private final Executor readExecutor;
     private final String filePath;
+    private final ItemBlobStore blobs;
     private final Gson gson;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WriteBehind writeBehind;
 
-    // In-memory cache
-    private volatile List<MailboxItem> mailboxItems = new ArrayList<>();
+    private static final Type LIST_TYPE = new TypeToken<ArrayList<MailboxItem>>(){}.getType();
+    private static final Type COLLECTION_TYPE = new TypeToken<Collection<MailboxItem>>(){}.getType();
 
-    public JsonMailboxStorage(JavaPlugin plugin) {
+    // In-memory cache; guarded by lock
+    private final MailboxIndex index = new MailboxIndex();
+
+    /**
+     * @param blobs        Holds the items; mailbox items refer to them by hash.
+     * @param executors    Creates this storage's own thread.
+     * @param readExecutor Where read-only queries run, or null to run them on this
+     *                     storage's own thread like writes.
+     */
+    public JsonMailboxStorage(JavaPlugin plugin, JsonStorageSettings settings, ItemBlobStore blobs,
+            ExecutorRegistry executors, @Nullable Executor readExecutor) {
         this.plugin = plugin;
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "MailboxStorage-Thread");
-            t.setDaemon(true);
-            return t;
-        });
+        this.executor = executors.newScheduledExecutor("MailboxStorage-Thread");
+        this.readExecutor = readExecutor != null ? readExecutor : executor;
         this.filePath = plugin.getDataFolder().getAbsolutePath() + "/mailbox.json";
+        this.blobs = blobs;
         this.gson = new GsonBuilder()
+            .registerTypeAdapter(SerializedItem.class, SerializedItemAdapter.of(blobs, plugin.getLogger()))
             .setPrettyPrinting()
             .serializeNulls()
             .create();
+        this.writeBehind = new WriteBehind(settings, executor, lock.writeLock(), this::saveData);
     }
 
     @Override
@@ -62,36 +84,34 @@ public class JsonMailboxStorage implements MailboxStorage {
             File file = new File(filePath);
             if (file.exists()) {
                 try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                    Type listType = new TypeToken<ArrayList<MailboxItem>>(){}.getType();
-                    List<MailboxItem> loaded = gson.fromJson(reader, listType);
+                    List<MailboxItem> loaded = gson.fromJson(reader, LIST_TYPE);
+                    index.clear();
                     if (loaded != null) {
-                        this.mailboxItems = new ArrayList<>(loaded);
-                    } else {
-                        this.mailboxItems = new ArrayList<>();
+                        loaded.forEach(index::put);
                     }
                 } catch (IOException e) {
                     plugin.getLogger().severe("Failed to load mailbox from JSON: " + e.getMessage());
-                    this.mailboxItems = new ArrayList<>();
+                    index.clear();
                 }
             } else {
-                this.mailboxItems = new ArrayList<>();
+                index.clear();
             }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private void saveData() {
+    private boolean saveData() {
         lock.readLock().lock();
         try {
             File file = new File(filePath);
             File tempFile = new File(filePath + ".tmp");
 
             try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
-                gson.toJson(mailboxItems, writer);
+                gson.toJson(index.all(), COLLECTION_TYPE, writer);
             } catch (IOException e) {
                 plugin.getLogger().severe("Failed to write mailbox to temporary file: " + e.getMessage());
-                return;
+                return false;
             }
 
             // Atomic move with retry logic
@@ -127,6 +147,7 @@ public class JsonMailboxStorage implements MailboxStorage {
                     plugin.getLogger().severe("Temporary file still exists at: " + tempFile.getAbsolutePath());
                 }
             }
+            return renamed;
         } finally {
             lock.readLock().unlock();
         }
@@ -135,10 +156,29 @@ public class JsonMailboxStorage implements MailboxStorage {
     @Override
     public CompletableFuture<Void> addItem(MailboxItem item) {
         return CompletableFuture.runAsync(() -> {
+            MailboxItem stored = item.item() != null ? item.withItem(blobs.retain(item.item())) : item;
             lock.writeLock().lock();
             try {
-                mailboxItems.add(item);
-                saveData();
+                index.put(stored);
+                writeBehind.changed();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> addItems(List<MailboxItem> items) {
+        return CompletableFuture.runAsync(() -> {
+            List<MailboxItem> stored = new ArrayList<>(items.size());
+            for (MailboxItem item : items) {
+                stored.add(item.item() != null ? item.withItem(blobs.retain(item.item())) : item);
+            }
+            lock.writeLock().lock();
+            try {
+                stored.forEach(index::put);
+                // One change, so the file is rewritten once for the whole batch
+                writeBehind.changed();
             } finally {
                 lock.writeLock().unlock();
             }
@@ -150,18 +190,11 @@ public class JsonMailboxStorage implements MailboxStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return mailboxItems.stream()
-                    .filter(item -> item.playerId().equals(playerId))
-                    .filter(item -> !item.claimed())
-                    .filter(item -> !item.isExpired())
-                    .sorted(Comparator.comparing(MailboxItem::createdAt).reversed())
-                    .skip((page - 1) * limit)
-                    .limit(limit)
-                    .collect(Collectors.toList());
+                return index.unclaimed(playerId, (page - 1) * limit, limit, System.currentTimeMillis());
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -169,15 +202,11 @@ public class JsonMailboxStorage implements MailboxStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return (int) mailboxItems.stream()
-                    .filter(item -> item.playerId().equals(playerId))
-                    .filter(item -> !item.claimed())
-                    .filter(item -> !item.isExpired())
-                    .count();
+                return index.unclaimedCount(playerId, System.currentTimeMillis());
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -185,15 +214,58 @@ public class JsonMailboxStorage implements MailboxStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.writeLock().lock();
             try {
-                for (int i = 0; i < mailboxItems.size(); i++) {
-                    MailboxItem item = mailboxItems.get(i);
-                    if (item.id().equals(itemId) && !item.claimed()) {
-                        mailboxItems.set(i, item.markAsClaimed());
-                        saveData();
-                        return true;
+                MailboxItem item = index.get(itemId);
+                if (item == null || item.claimed()) {
+                    return false;
+                }
+                index.put(item.markAsClaimed());
+                writeBehind.changed();
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<List<MailboxItem>> claimItems(Collection<UUID> itemIds) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<MailboxItem> claimed = new ArrayList<>();
+            lock.writeLock().lock();
+            try {
+                for (UUID itemId : itemIds) {
+                    MailboxItem item = index.get(itemId);
+                    if (item != null && !item.claimed()) {
+                        index.put(item.markAsClaimed());
+                        claimed.add(item);
                     }
                 }
-                return false;
+                if (!claimed.isEmpty()) {
+                    writeBehind.changed();
+                }
+                return claimed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> unclaimItems(Collection<UUID> itemIds) {
+        return CompletableFuture.runAsync(() -> {
+            lock.writeLock().lock();
+            try {
+                boolean changed = false;
+                for (UUID itemId : itemIds) {
+                    MailboxItem item = index.get(itemId);
+                    if (item != null && item.claimed()) {
+                        index.put(item.markAsUnclaimed());
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    writeBehind.changed();
+                }
             } finally {
                 lock.writeLock().unlock();
             }
@@ -205,13 +277,11 @@ public class JsonMailboxStorage implements MailboxStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return mailboxItems.stream()
-                    .filter(item -> item.id().equals(itemId))
-                    .findFirst();
+                return Optional.ofNullable(index.get(itemId));
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -219,12 +289,12 @@ public class JsonMailboxStorage implements MailboxStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.writeLock().lock();
             try {
-                int sizeBefore = mailboxItems.size();
-                mailboxItems.removeIf(item -> item.isExpired() && !item.claimed());
-                int deleted = sizeBefore - mailboxItems.size();
+                List<MailboxItem> removed = index.removeIf(item -> item.isExpired() && !item.claimed());
+                removed.forEach(item -> blobs.release(item.item()));
+                int deleted = removed.size();
 
                 if (deleted > 0) {
-                    saveData();
+                    writeBehind.changed();
                     plugin.getLogger().info("Deleted " + deleted + " expired mailbox items");
                 }
 
@@ -241,14 +311,12 @@ public class JsonMailboxStorage implements MailboxStorage {
             lock.writeLock().lock();
             try {
                 long cutoffTime = System.currentTimeMillis() - (days * 24 * 60 * 60 * 1000L);
-                int sizeBefore = mailboxItems.size();
-
-                mailboxItems.removeIf(item -> item.claimed() && item.createdAt() < cutoffTime);
-
-                int deleted = sizeBefore - mailboxItems.size();
+                List<MailboxItem> removed = index.removeIf(item -> item.claimed() && item.createdAt() < cutoffTime);
+                removed.forEach(item -> blobs.release(item.item()));
+                int deleted = removed.size();
 
                 if (deleted > 0) {
-                    saveData();
+                    writeBehind.changed();
                     plugin.getLogger().info("Deleted " + deleted + " old claimed mailbox items");
                 }
 
@@ -258,4 +326,23 @@ public class JsonMailboxStorage implements MailboxStorage {
             }
         }, executor);
     }
+
+    @Override
+    public void countItemReferences(ObjIntConsumer<String> references) {
+        lock.readLock().lock();
+        try {
+            for (MailboxItem item : index.all()) {
+                if (item.item() != null) {
+                    references.accept(item.item().hash(), 1);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(writeBehind::flush, executor);
+    }
 }
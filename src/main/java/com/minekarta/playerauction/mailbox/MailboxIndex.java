@@ -0,0 +1,143 @@
+package com.minekarta.playerauction.mailbox;
+
+import com.minekarta.playerauction.mailbox.model.MailboxItem;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Indexes over the mailbox items held by {@link JsonMailboxStorage}.
+ * <p>
+ * Keeps every item by ID (in file order) plus, per player, their unclaimed items
+ * newest first and by expiry, so opening a mailbox or counting its unclaimed items
+ * only touches that player's items, however many the server holds.
+ * <p>
+ * Not thread-safe; the owning storage guards all access with its read/write lock.
+ */
+final class MailboxIndex {
+
+    private static final Comparator<MailboxItem> NEWEST_FIRST = Comparator
+            .comparingLong(MailboxItem::createdAt).reversed()
+            .thenComparing(MailboxItem::id);
+    private static final Comparator<MailboxItem> BY_EXPIRY = Comparator
+            .comparingLong(MailboxItem::expiresAt)
+            .thenComparing(MailboxItem::id);
+
+    // All items, insertion order preserved so the saved file keeps its layout
+    private final Map<UUID, MailboxItem> byId = new LinkedHashMap<>();
+
+    private final Map<UUID, PlayerMailbox> unclaimedByPlayer = new HashMap<>();
+
+    /**
+     * One player's unclaimed items, expired ones included until they are deleted.
+     */
+    private static final class PlayerMailbox {
+        final NavigableSet<MailboxItem> newestFirst = new TreeSet<>(NEWEST_FIRST);
+        final NavigableSet<MailboxItem> byExpiry = new TreeSet<>(BY_EXPIRY);
+    }
+
+    void clear() {
+        byId.clear();
+        unclaimedByPlayer.clear();
+    }
+
+    /**
+     * Inserts an item or replaces the stored item with the same ID.
+     */
+    void put(MailboxItem item) {
+        MailboxItem previous = byId.put(item.id(), item);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (!item.claimed()) {
+            PlayerMailbox mailbox = unclaimedByPlayer.computeIfAbsent(item.playerId(), k -> new PlayerMailbox());
+            mailbox.newestFirst.add(item);
+            mailbox.byExpiry.add(item);
+        }
+    }
+
+    MailboxItem get(UUID id) {
+        return byId.get(id);
+    }
+
+    Collection<MailboxItem> all() {
+        return byId.values();
+    }
+
+    /**
+     * Removes every item matching a filter.
+     * @return The items removed.
+     */
+    List<MailboxItem> removeIf(Predicate<MailboxItem> filter) {
+        List<MailboxItem> removed = new ArrayList<>();
+        Iterator<MailboxItem> it = byId.values().iterator();
+        while (it.hasNext()) {
+            MailboxItem item = it.next();
+            if (filter.test(item)) {
+                it.remove();
+                unindex(item);
+                removed.add(item);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * A player's unclaimed, unexpired items, newest first.
+     */
+    List<MailboxItem> unclaimed(UUID playerId, int offset, int limit, long now) {
+        PlayerMailbox mailbox = unclaimedByPlayer.get(playerId);
+        if (mailbox == null) {
+            return List.of();
+        }
+        List<MailboxItem> page = new ArrayList<>(Math.min(limit, mailbox.newestFirst.size()));
+        int skipped = 0;
+        for (MailboxItem item : mailbox.newestFirst) {
+            if (page.size() >= limit) {
+                break;
+            }
+            if (item.expiresAt() < now) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            page.add(item);
+        }
+        return page;
+    }
+
+    /**
+     * Number of a player's unclaimed, unexpired items.
+     */
+    int unclaimedCount(UUID playerId, long now) {
+        PlayerMailbox mailbox = unclaimedByPlayer.get(playerId);
+        if (mailbox == null) {
+            return 0;
+        }
+        // Expired items sort first by expiry, so only those are walked
+        int expired = 0;
+        for (MailboxItem item : mailbox.byExpiry) {
+            if (item.expiresAt() >= now) {
+                break;
+            }
+            expired++;
+        }
+        return mailbox.newestFirst.size() - expired;
+    }
+
+    private void unindex(MailboxItem item) {
+        if (item.claimed()) {
+            return;
+        }
+        PlayerMailbox mailbox = unclaimedByPlayer.get(item.playerId());
+        if (mailbox != null) {
+            mailbox.newestFirst.remove(item);
+            mailbox.byExpiry.remove(item);
+            if (mailbox.newestFirst.isEmpty()) {
+                unclaimedByPlayer.remove(item.playerId());
+            }
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.minekarta.playerauction.mailbox;
 
 import com.minekarta.playerauction.PlayerAuction;
+import com.minekarta.playerauction.auction.model.Auction;
 import com.minekarta.playerauction.common.SerializedItem;
 import com.minekarta.playerauction.economy.EconomyRouter;
 import com.minekarta.playerauction.mailbox.model.MailboxItem;
 import com.minekarta.playerauction.mailbox.model.MailboxItemType;
+import com.minekarta.playerauction.tasks.MailboxDeliverer;
+import com.minekarta.playerauction.util.InventoryUtil;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.IllegalPluginAccessException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -21,12 +26,15 @@ public class MailboxService {
     private final MailboxStorage storage;
     private final EconomyRouter economyRouter;
     private final long retentionDays;
+    private final MailboxDeliverer deliverer;
 
     public MailboxService(PlayerAuction plugin, MailboxStorage storage, EconomyRouter economyRouter) {
         this.plugin = plugin;
         this.storage = storage;
         this.economyRouter = economyRouter;
         this.retentionDays = plugin.getConfigManager().getConfig().getLong("mailbox.retention-days", 30);
+        this.deliverer = new MailboxDeliverer(plugin, this,
+                plugin.getConfigManager().getConfig().getInt("mailbox.deliveries-per-tick", 50));
     }
 
     /**
@@ -39,6 +47,28 @@ public class MailboxService {
         });
     }
 
+    /**
+     * Add the items of several auctions to their sellers' mailboxes in one write
+     * (for expired auctions), then hand them to the sellers who are online
+     * through the {@link MailboxDeliverer}
+     */
+    public CompletableFuture<Void> addReturnedItems(List<Auction> auctions, String reason) {
+        if (auctions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<MailboxItem> mailboxItems = new ArrayList<>(auctions.size());
+        for (Auction auction : auctions) {
+            mailboxItems.add(MailboxItem.forReturnedItem(auction.seller(), auction.item(), reason, auction.id(),
+                    retentionDays));
+        }
+        return storage.addItems(mailboxItems).thenRun(() -> {
+            plugin.getLogger().info("Added " + mailboxItems.size() + " returned items to mailboxes: " + reason);
+            for (int i = 0; i < mailboxItems.size(); i++) {
+                deliverer.enqueue(mailboxItems.get(i), auctions.get(i).itemMetadata().material());
+            }
+        });
+    }
+
     /**
      * Add money to player's mailbox (for sold auctions)
      */
@@ -49,6 +79,29 @@ public class MailboxService {
         });
     }
 
+    /**
+     * Put claimed items that could not be handed out after all back in the mailbox
+     */
+    public void unclaim(List<MailboxItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = items.stream().map(MailboxItem::id).toList();
+        try {
+            storage.unclaimItems(ids).exceptionally(ex -> {
+                plugin.getLogger().severe("Failed to put " + ids.size() + " undelivered items back in the mailbox: "
+                        + ids + " (" + ex.getMessage() + ")");
+                ex.printStackTrace();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // Storage already shut down
+            plugin.getLogger().severe("Failed to put " + ids.size() + " undelivered items back in the mailbox: "
+                    + ids + " (" + e.getMessage() + ")");
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Get unclaimed mailbox items for a player
      */
@@ -161,32 +214,129 @@ public class MailboxService {
     }
 
     /**
-     * Claim all items in mailbox
+     * Claim all items in mailbox, with no limit on how many
+     * All money is claimed and deposited at once, and as many items as the inventory
+     * has free slots are claimed in the same storage write and added in one pass
+     * Call on the main thread
      */
     public CompletableFuture<Integer> claimAll(Player player) {
-        return storage.getUnclaimedItems(player.getUniqueId(), 1, 100).thenCompose(items -> {
+        int freeSlots = InventoryUtil.freeSlots(player);
+        return storage.getUnclaimedItems(player.getUniqueId(), 1, Integer.MAX_VALUE).thenCompose(items -> {
             if (items.isEmpty()) {
                 player.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.no-items"));
                 return CompletableFuture.completedFuture(0);
             }
 
-            // Claim each item
-            CompletableFuture<Integer> future = CompletableFuture.completedFuture(0);
-
+            List<UUID> toClaim = new ArrayList<>(items.size());
+            int slotsLeft = freeSlots;
             for (MailboxItem item : items) {
-                future = future.thenCompose(count ->
-                    claimItem(player, item.id()).thenApply(success -> success ? count + 1 : count)
-                );
+                if (item.type() == MailboxItemType.ITEM) {
+                    if (slotsLeft == 0) {
+                        continue; // Stays in the mailbox
+                    }
+                    slotsLeft--;
+                }
+                toClaim.add(item.id());
+            }
+            if (toClaim.size() < items.size()) {
+                player.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.inventory-full"));
+            }
+            if (toClaim.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
             }
 
-            return future.thenApply(count -> {
-                if (count > 0) {
-                    player.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.claimed-all",
-                        "%count%", String.valueOf(count)));
-                }
+            // Marked as claimed first (to prevent duplicate claims)
+            return storage.claimItems(toClaim).thenCompose(claimed -> handOut(player, claimed));
+        }).thenApply(count -> {
+            if (count > 0) {
+                player.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.claimed-all",
+                    "%count%", String.valueOf(count)));
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Give a player the items they just claimed: physical items in one main thread
+     * pass, money in one deposit. Items that can't be handed out are unclaimed again
+     *
+     * @return CompletableFuture with the number of mailbox items handed out
+     */
+    private CompletableFuture<Integer> handOut(Player player, List<MailboxItem> claimed) {
+        List<MailboxItem> physical = new ArrayList<>();
+        double money = 0;
+        int moneyItems = 0;
+        for (MailboxItem item : claimed) {
+            if (item.type() == MailboxItemType.ITEM) {
+                physical.add(item);
+            } else {
+                money += item.amount();
+                moneyItems++;
+            }
+        }
+
+        CompletableFuture<Integer> given = physical.isEmpty()
+            ? CompletableFuture.completedFuture(0)
+            : giveItems(player, physical);
+        if (moneyItems == 0) {
+            return given;
+        }
+
+        double total = money;
+        int count = moneyItems;
+        CompletableFuture<Integer> deposited = economyRouter.getService()
+            .deposit(player.getUniqueId(), total, "Claimed from mailbox")
+            .thenApply(v -> {
+                player.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.money-claimed",
+                    "%amount%", economyRouter.getService().format(total)));
                 return count;
+            })
+            .exceptionally(ex -> {
+                plugin.getLogger().warning("Failed to deposit money to player " + player.getName() + ": " + ex.getMessage());
+                player.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.deposit-failed"));
+                // Back in the mailbox as one entry, so the money is not lost
+                addMoney(player.getUniqueId(), total, "Failed mailbox claim", null);
+                return 0;
             });
-        });
+        return given.thenCombine(deposited, Integer::sum);
+    }
+
+    /**
+     * Decode and add claimed items to a player's inventory on the main thread
+     *
+     * @return CompletableFuture with the number of items added
+     */
+    private CompletableFuture<Integer> giveItems(Player player, List<MailboxItem> items) {
+        CompletableFuture<Integer> given = new CompletableFuture<>();
+        try {
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                List<MailboxItem> undelivered = new ArrayList<>();
+                int count = 0;
+                for (MailboxItem item : items) {
+                    ItemStack itemStack;
+                    try {
+                        itemStack = item.item() != null ? item.item().toItemStack() : null;
+                    } catch (RuntimeException e) {
+                        plugin.getLogger().warning("Could not decode mailbox item " + item.id() + ": " + e.getMessage());
+                        itemStack = null;
+                    }
+                    if (itemStack == null || !player.isOnline()) {
+                        undelivered.add(item); // Stays in the mailbox
+                        continue;
+                    }
+                    // The inventory may have filled up since the items were picked
+                    InventoryUtil.giveOrDrop(player, itemStack);
+                    count++;
+                }
+                unclaim(undelivered);
+                given.complete(count);
+            });
+        } catch (IllegalPluginAccessException e) {
+            // Disabled while claiming; the storage is flushed after this
+            unclaim(items);
+            given.complete(0);
+        }
+        return given;
     }
 
     /**
@@ -203,6 +353,13 @@ public class MailboxService {
         return storage.deleteOldClaimedItems(days);
     }
 
+    /**
+     * Get the task delivering returned items to online players
+     */
+    public MailboxDeliverer getDeliverer() {
+        return deliverer;
+    }
+
     /**
      * Get the mailbox storage
      */
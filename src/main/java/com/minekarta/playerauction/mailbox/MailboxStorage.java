@@ -2,10 +2,12 @@ package com.minekarta.playerauction.mailbox;
 
 import com.minekarta.playerauction.mailbox.model.MailboxItem;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Storage interface for player mailbox items
@@ -25,6 +27,14 @@ public interface MailboxStorage {
      */
     CompletableFuture<Void> addItem(MailboxItem item);
 
+    /**
+     * Add several items, possibly to different players' mailboxes, in one write
+     *
+     * @param items The mailbox items to add
+     * @return CompletableFuture that completes when all items are saved
+     */
+    CompletableFuture<Void> addItems(List<MailboxItem> items);
+
     /**
      * Get all unclaimed items for a player (with pagination)
      *
@@ -51,6 +61,24 @@ public interface MailboxStorage {
      */
     CompletableFuture<Boolean> claimItem(UUID itemId);
 
+    /**
+     * Mark several items as claimed in one write. Items that are missing or already
+     * claimed are skipped
+     *
+     * @param itemIds The mailbox item IDs
+     * @return CompletableFuture with the items this call claimed
+     */
+    CompletableFuture<List<MailboxItem>> claimItems(Collection<UUID> itemIds);
+
+    /**
+     * Mark several claimed items as unclaimed again in one write, for items that
+     * could not be handed out after all. Items that are missing or not claimed are skipped
+     *
+     * @param itemIds The mailbox item IDs
+     * @return CompletableFuture that completes when done
+     */
+    CompletableFuture<Void> unclaimItems(Collection<UUID> itemIds);
+
     /**
      * Get a specific mailbox item by ID
      *
@@ -74,4 +102,24 @@ public interface MailboxStorage {
      * @return CompletableFuture with count of deleted items
      */
     CompletableFuture<Integer> deleteOldClaimedItems(int days);
+
+    /**
+     * Report how many mailbox items refer to each stored item, for the
+     * {@link com.minekarta.playerauction.storage.ItemBlobStore} reference count at startup
+     * Runs on the calling thread
+     *
+     * @param references Receives each item hash and its number of mailbox items
+     */
+    void countItemReferences(ObjIntConsumer<String> references);
+
+    /**
+     * Write any changes still buffered in memory to disk
+     * Storages that write through immediately have nothing to do
+     *
+     * @return CompletableFuture that completes once pending changes are on disk,
+     *         or exceptionally if they could not be written
+     */
+    default CompletableFuture<Void> flush() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -84,6 +84,43 @@ public record MailboxItem(
         );
     }
 
+    /**
+     * Mark this mailbox item as unclaimed again
+     */
+    public MailboxItem markAsUnclaimed() {
+        return new MailboxItem(
+            id,
+            playerId,
+            type,
+            item,
+            amount,
+            reason,
+            relatedAuctionId,
+            createdAt,
+            expiresAt,
+            false
+        );
+    }
+
+    /**
+     * The same mailbox item holding another instance of its item,
+     * e.g. the one shared through the item store
+     */
+    public MailboxItem withItem(SerializedItem newItem) {
+        return new MailboxItem(
+            id,
+            playerId,
+            type,
+            newItem,
+            amount,
+            reason,
+            relatedAuctionId,
+            createdAt,
+            expiresAt,
+            claimed
+        );
+    }
+
     /**
      * Check if this mailbox item is expired
      */
@@ -0,0 +1,27 @@
+package com.minekarta.playerauction.players;
+
+import com.minekarta.playerauction.util.PlayerNameCache;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+/**
+ * Keeps the {@link PlayerNameCache} current: a joining player's name is recorded
+ * (and persisted if it changed), so their listings never need an offline-player lookup.
+ */
+public class PlayerNameListener implements Listener {
+
+    private final PlayerNameCache playerNameCache;
+
+    public PlayerNameListener(PlayerNameCache playerNameCache) {
+        this.playerNameCache = playerNameCache;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        playerNameCache.update(player.getUniqueId(), player.getName());
+    }
+}
@@ -1,13 +1,18 @@
 package com.minekarta.playerauction.storage;
 
 import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
 import com.minekarta.playerauction.gui.model.AuctionCategory;
 import com.minekarta.playerauction.gui.model.SortOrder;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.ObjIntConsumer;
 
 public interface AuctionStorage {
     /**
@@ -31,6 +36,25 @@ public interface AuctionStorage {
     CompletableFuture<List<Auction>> findActiveAuctions(int page, int limit, AuctionCategory category,
             SortOrder sortOrder);
 
+    /**
+     * Finds the next active auctions in sort order, starting right after a cursor
+     * (keyset pagination). Unlike an offset, this costs the same on every page.
+     *
+     * @param after The position of the last auction already shown, or null for the first page.
+     */
+    CompletableFuture<List<Auction>> findActiveAfter(@Nullable AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder);
+
+    /**
+     * Finds the next active auctions matching a search query, in sort order, starting
+     * right after a cursor. Every word of the query must be the start of a word in the
+     * item's material, display name, lore or enchantments.
+     *
+     * @param after The position of the last result already shown, or null for the first page.
+     */
+    CompletableFuture<List<Auction>> searchActiveAfter(String query, @Nullable AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder);
+
     /**
      * Finds auctions listed by a specific seller.
      */
@@ -41,6 +65,11 @@ public interface AuctionStorage {
      */
     CompletableFuture<List<Auction>> findPlayerHistory(UUID playerId, int page, int limit);
 
+    /**
+     * Finds everyone who currently has an active auction.
+     */
+    CompletableFuture<Set<UUID>> findActiveSellers();
+
     /**
      * Counts the number of active auctions for a specific seller.
      */
@@ -58,7 +87,8 @@ public interface AuctionStorage {
     CompletableFuture<Integer> countAllActiveAuctions();
 
     /**
-     * Counts the number of active auctions matching the category and search query.
+     * Counts the number of active auctions matching the category and search query,
+     * using the same matching as {@link #searchActiveAfter}.
      */
     CompletableFuture<Integer> countActiveAuctions(AuctionCategory category, SortOrder sortOrder, String searchQuery);
 
@@ -76,8 +106,35 @@ public interface AuctionStorage {
      */
     CompletableFuture<Boolean> updateAuctionIfVersionMatches(Auction a, int expectedVersion);
 
+    /**
+     * Expires every given auction that is still active and due as of a timestamp, all
+     * in one write (one transaction or journal batch). Each one gets status EXPIRED and
+     * its version incremented, exactly like {@link #updateAuctionIfVersionMatches}, so
+     * a concurrent update of an auction either wins or loses as a whole.
+     *
+     * @return A future completing with the auctions this call expired, as now stored.
+     */
+    CompletableFuture<List<Auction>> expireAll(Collection<UUID> ids, long nowEpochMillis);
+
     /**
      * Finds a batch of auctions that have expired as of a given timestamp.
      */
     CompletableFuture<List<Auction>> findExpiredUpTo(long nowEpochMillis, int batchSize);
+
+    /**
+     * Reports how many auctions refer to each stored item, for the
+     * {@link ItemBlobStore} reference count at startup. Runs on the calling thread.
+     * @param references Receives each item hash and its number of auctions.
+     */
+    void countItemReferences(ObjIntConsumer<String> references);
+
+    /**
+     * Writes any changes still buffered in memory to disk. Storages that write
+     * through immediately have nothing to do.
+     * @return A CompletableFuture that completes once pending changes are on disk,
+     *         or exceptionally if they could not be written.
+     */
+    default CompletableFuture<Void> flush() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
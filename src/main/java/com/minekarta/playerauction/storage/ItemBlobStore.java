@@ -0,0 +1,169 @@
+package com.minekarta.playerauction.storage;
+
+import com.minekarta.playerauction.common.SerializedItem;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Content-addressed store of encoded items shared by the auction, transaction and
+ * mailbox storages. Records hold an item's {@link SerializedItem#hash() hash} and the
+ * bytes are stored once, however many listings, log entries and mailbox items carry
+ * the same stack. Loaded records share one {@link SerializedItem} instance per item,
+ * so the item is also held in memory and decoded only once.
+ * <p>
+ * Reference counts live in memory: they are rebuilt at startup from the storages
+ * ({@link #addReferences} for every record, then {@link #finishCounting}), and kept up
+ * by {@link #retain} and {@link #release} afterwards. A count may end up too high
+ * (a write that failed after retaining), which only keeps a blob around until the
+ * next start; it is never too low, so no record loses its item. Items whose last
+ * reference is released are deleted by {@link #sweep}, but only once the storages
+ * have written out the deletions that released them: take the released items with
+ * {@link #takeReleased()}, flush the storages, then sweep what was taken (see
+ * {@code PlayerAuction#flushStorages}).
+ */
+public abstract class ItemBlobStore {
+
+    private final Object countLock = new Object();
+    // Guarded by countLock
+    private final Map<String, Integer> references = new HashMap<>();
+    private final Set<String> released = new HashSet<>();
+    private boolean counted;
+
+    /**
+     * Creates the backing file or table. Call before any storage is initialized.
+     */
+    public abstract void init();
+
+    /**
+     * Stores an item unless an item with the same hash is already stored, and returns
+     * the stored instance. The item is durable when this returns, so a record may
+     * refer to it by hash.
+     */
+    public abstract SerializedItem store(SerializedItem item);
+
+    /**
+     * Looks up a stored item.
+     * @return The item, or null if nothing is stored under the hash.
+     */
+    @Nullable
+    public abstract SerializedItem resolve(String hash);
+
+    /**
+     * Number of distinct items stored.
+     */
+    public abstract int size();
+
+    /**
+     * One batch of {@link #reencodeLegacy}.
+     * @param selected  Legacy items looked at; 0 once none are left after the cursor.
+     * @param rewritten Items rewritten; fewer than selected if some could not be decoded.
+     * @param lastHash  The hash to continue after, null if nothing was selected.
+     */
+    public record ReencodeBatch(int selected, int rewritten, @Nullable String lastHash) {
+    }
+
+    /**
+     * Rewrites the next {@code limit} stored items that are still Java-serialized, in
+     * hash order after {@code afterHash}, in the current
+     * {@link com.minekarta.playerauction.common.ItemCodec} format under their existing
+     * hashes. Items that cannot be decoded are logged and left as they are; the cursor
+     * moves past them, so they are not selected again.
+     * @param afterHash The {@link ReencodeBatch#lastHash()} of the previous batch, null to start.
+     */
+    public abstract CompletableFuture<ReencodeBatch> reencodeLegacy(@Nullable String afterHash, int limit);
+
+    /**
+     * Deletes the given items, unless {@link #isReferenced} says one is in use again.
+     * Must exclude concurrent {@link #store} calls while checking and deleting.
+     * @return The number deleted.
+     */
+    protected abstract int delete(Set<String> hashes);
+
+    /**
+     * All hashes currently stored.
+     */
+    protected abstract Set<String> storedHashes();
+
+    /**
+     * Stores an item for a new record and counts the reference. Use the returned
+     * instance in the record.
+     */
+    public SerializedItem retain(SerializedItem item) {
+        // Counted before storing, so a sweep running meanwhile cannot delete it
+        addReferences(item.hash(), 1);
+        return store(item);
+    }
+
+    /**
+     * Drops a reference from a record that was deleted.
+     */
+    public void release(@Nullable SerializedItem item) {
+        if (item == null) {
+            return;
+        }
+        synchronized (countLock) {
+            Integer remaining = references.computeIfPresent(item.hash(), (hash, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null && counted) {
+                released.add(item.hash());
+            }
+        }
+    }
+
+    /**
+     * Counts references to an item, during the startup count or for a new record.
+     */
+    public void addReferences(String hash, int count) {
+        synchronized (countLock) {
+            references.merge(hash, count, Integer::sum);
+        }
+    }
+
+    /**
+     * Ends the startup count and deletes every stored item no record refers to.
+     * From now on released items are collected for {@link #takeReleased()}.
+     */
+    public int finishCounting() {
+        Set<String> unreferenced = new HashSet<>(storedHashes());
+        synchronized (countLock) {
+            unreferenced.removeAll(references.keySet());
+            counted = true;
+        }
+        return unreferenced.isEmpty() ? 0 : delete(unreferenced);
+    }
+
+    /**
+     * Returns and forgets the items whose last reference was released since the last call.
+     */
+    public Set<String> takeReleased() {
+        synchronized (countLock) {
+            Set<String> taken = new HashSet<>(released);
+            released.clear();
+            return taken;
+        }
+    }
+
+    /**
+     * Deletes released items that are still unreferenced. Call once the deletions
+     * that released them are on disk.
+     * @param candidates From {@link #takeReleased()}.
+     * @return The number deleted.
+     */
+    public int sweep(Set<String> candidates) {
+        return candidates.isEmpty() ? 0 : delete(candidates);
+    }
+
+    /**
+     * Whether any record refers to the item. Implementations check this again inside
+     * {@link #delete}, where no item can be stored concurrently.
+     */
+    protected boolean isReferenced(String hash) {
+        synchronized (countLock) {
+            return references.containsKey(hash);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.minekarta.playerauction.storage;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.minekarta.playerauction.common.SerializedItem;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+/**
+ * Writes items in JSON files as a reference into the {@link ItemBlobStore},
+ * {@code {"ref": "<hash>"}}. Reads both references and the inline
+ * {@code {"data": "<base64>"}} form of files written by older versions; inline items
+ * are handed to {@code store}, so the next save writes them as references.
+ */
+public final class SerializedItemAdapter extends TypeAdapter<SerializedItem> {
+
+    private final Function<String, SerializedItem> resolver;
+    private final UnaryOperator<SerializedItem> store;
+    private final Logger logger;
+
+    /**
+     * @param resolver Looks up a referenced item by hash, null if missing.
+     * @param store    Stores an inline item and returns the instance to use.
+     */
+    public SerializedItemAdapter(Function<String, SerializedItem> resolver, UnaryOperator<SerializedItem> store,
+            Logger logger) {
+        this.resolver = resolver;
+        this.store = store;
+        this.logger = logger;
+    }
+
+    /**
+     * An adapter backed by a blob store.
+     */
+    public static SerializedItemAdapter of(ItemBlobStore blobs, Logger logger) {
+        return new SerializedItemAdapter(blobs::resolve, blobs::store, logger);
+    }
+
+    @Override
+    public void write(JsonWriter out, SerializedItem item) throws IOException {
+        if (item == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject().name("ref").value(item.hash()).endObject();
+    }
+
+    @Override
+    public SerializedItem read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String ref = null;
+        String data = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (name.equals("ref")) {
+                ref = in.nextString();
+            } else if (name.equals("data")) {
+                data = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (ref != null) {
+            SerializedItem item = resolver.apply(ref);
+            if (item == null) {
+                logger.warning("Stored item " + ref + " is missing from the item store.");
+                // Keeps the reference, so the record still points at the item if it turns up
+                return SerializedItem.fromBase64(null).withHash(ref);
+            }
+            return item;
+        }
+        return data != null ? store.apply(SerializedItem.fromBase64(data)) : null;
+    }
+}
@@ -1,17 +1,211 @@
 package com.minekarta.playerauction.storage;
 
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
+import com.minekarta.playerauction.mailbox.JsonMailboxStorage;
+import com.minekarta.playerauction.mailbox.MailboxStorage;
 import com.minekarta.playerauction.storage.json.JsonAuctionStorage;
+import com.minekarta.playerauction.storage.json.JsonItemBlobStore;
+import com.minekarta.playerauction.storage.json.JsonStorageSettings;
 import com.minekarta.playerauction.storage.json.JsonTransactionStorage;
+import com.minekarta.playerauction.storage.json.TransactionLogSettings;
+import com.minekarta.playerauction.storage.sqlite.JsonToSQLiteMigrator;
+import com.minekarta.playerauction.storage.sqlite.SQLiteAuctionStorage;
+import com.minekarta.playerauction.storage.sqlite.SQLiteConnectionPool;
+import com.minekarta.playerauction.storage.sqlite.SQLiteItemBlobStore;
+import com.minekarta.playerauction.storage.sqlite.SQLiteTransactionStorage;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates the storages for the backend selected by {@code storage.type} in config.yml.
+ * The SQLite storages share one connection pool, owned by this factory. In
+ * {@code threads.mode: VIRTUAL} the JSON storages also share one bounded
+ * virtual-thread executor for their reads. All storages, the mailbox included,
+ * keep their items in the backend's {@link ItemBlobStore}.
+ */
 public class StorageFactory {
 
-    public static AuctionStorage createAuctionStorage(JavaPlugin plugin) {
-        return new JsonAuctionStorage(plugin);
+    public enum StorageType {
+        JSON,
+        SQLITE
+    }
+
+    private final JavaPlugin plugin;
+    private final ExecutorRegistry executors;
+    private final StorageType type;
+    private final JsonStorageSettings jsonSettings;
+    private final TransactionLogSettings transactionLogSettings;
+    private final boolean migrateFromJson;
+    @Nullable
+    private final SQLiteConnectionPool pool;
+    // Null in PLATFORM mode: each JSON storage then reads on its own thread
+    @Nullable
+    private final ExecutorService jsonReadExecutor;
+    private final ItemBlobStore itemBlobs;
+
+    public StorageFactory(JavaPlugin plugin, @Nullable ConfigurationSection config, ExecutorRegistry executors) {
+        this.plugin = plugin;
+        this.executors = executors;
+        this.jsonSettings = JsonStorageSettings.fromConfig(config != null ? config.getConfigurationSection("json") : null);
+        this.transactionLogSettings = TransactionLogSettings.fromConfig(
+                config != null ? config.getConfigurationSection("json.transactions") : null);
+
+        StorageType requested = StorageType.JSON;
+        String typeName = config != null ? config.getString("type", "JSON") : "JSON";
+        try {
+            requested = StorageType.valueOf(typeName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Unknown storage.type '" + typeName + "', using JSON.");
+        }
+
+        SQLiteConnectionPool sqlitePool = null;
+        boolean migrate = false;
+        if (requested == StorageType.SQLITE) {
+            ConfigurationSection sqlite = config.getConfigurationSection("sqlite");
+            String fileName = sqlite != null ? sqlite.getString("file", "auctions.db") : "auctions.db";
+            int readers = sqlite != null ? sqlite.getInt("reader-connections", 4) : 4;
+            migrate = sqlite == null || sqlite.getBoolean("migrate-from-json", true);
+            try {
+                sqlitePool = new SQLiteConnectionPool(new File(plugin.getDataFolder(), fileName), readers,
+                        plugin.getLogger(), executors);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to open SQLite database, falling back to JSON storage.");
+                e.printStackTrace();
+                requested = StorageType.JSON;
+            }
+        }
+
+        this.type = requested;
+        this.pool = sqlitePool;
+        this.migrateFromJson = migrate;
+        this.jsonReadExecutor = executors.isVirtual()
+                ? executors.newStoragePool("PlayerAuction-JSON-Reader", 1, 0)
+                : null;
+        this.itemBlobs = sqlitePool != null
+                ? new SQLiteItemBlobStore(sqlitePool, plugin.getLogger())
+                : new JsonItemBlobStore(plugin.getDataFolder(), plugin.getLogger(), executors);
     }
 
-    public static TransactionStorage createTransactionStorage(JavaPlugin plugin) {
-        return new JsonTransactionStorage(plugin);
+    public StorageType getType() {
+        return type;
     }
-}
 
+    public JsonStorageSettings getJsonSettings() {
+        return jsonSettings;
+    }
+
+    /**
+     * The item store shared by all storages of the backend.
+     */
+    public ItemBlobStore getItemBlobStore() {
+        return itemBlobs;
+    }
+
+    public AuctionStorage createAuctionStorage() {
+        if (pool != null) {
+            return new SQLiteAuctionStorage(plugin, pool, (SQLiteItemBlobStore) itemBlobs);
+        }
+        return new JsonAuctionStorage(plugin, jsonSettings, itemBlobs, executors, jsonReadExecutor);
+    }
+
+    public TransactionStorage createTransactionStorage() {
+        if (pool != null) {
+            return new SQLiteTransactionStorage(plugin, pool, (SQLiteItemBlobStore) itemBlobs);
+        }
+        return new JsonTransactionStorage(plugin, jsonSettings, transactionLogSettings, itemBlobs, executors,
+                jsonReadExecutor);
+    }
+
+    /**
+     * The mailbox always uses JSON, whatever the backend; its items go to the
+     * backend's item store.
+     */
+    public MailboxStorage createMailboxStorage() {
+        return new JsonMailboxStorage(plugin, jsonSettings, itemBlobs, executors, jsonReadExecutor);
+    }
+
+    /**
+     * Initializes the item store and, when switching to SQLite, imports the JSON one.
+     * Must run before the storages are initialized, since they load records that
+     * refer to it.
+     */
+    public void initItemStore() {
+        itemBlobs.init();
+        JsonToSQLiteMigrator migrator = createMigrator();
+        if (migrator == null || !migrateFromJson) {
+            return;
+        }
+        try {
+            migrator.migrateItems();
+        } catch (Exception e) {
+            plugin.getLogger().severe("Migrating the JSON item store to SQLite failed; it will be retried on next start.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rebuilds the item store's reference counts from the storages and deletes the
+     * items nothing refers to. Must run once all storages are initialized and
+     * {@link #migrateIfNeeded()} has finished.
+     */
+    public void countItemReferences(AuctionStorage auctions, TransactionStorage transactions,
+            MailboxStorage mailbox) {
+        auctions.countItemReferences(itemBlobs::addReferences);
+        transactions.countItemReferences(itemBlobs::addReferences);
+        mailbox.countItemReferences(itemBlobs::addReferences);
+        int deleted = itemBlobs.finishCounting();
+        if (deleted > 0) {
+            plugin.getLogger().info("Deleted " + deleted + " stored items that nothing refers to.");
+        }
+    }
+
+    /**
+     * Returns a migrator for copying the JSON files into SQLite, or null when the
+     * SQLite backend is not in use.
+     */
+    @Nullable
+    public JsonToSQLiteMigrator createMigrator() {
+        if (pool == null) {
+            return null;
+        }
+        return new JsonToSQLiteMigrator(pool, (SQLiteItemBlobStore) itemBlobs, plugin.getDataFolder(),
+                plugin.getLogger());
+    }
+
+    /**
+     * Imports leftover JSON data into SQLite if enabled and there is anything to import.
+     * Must run after the storages have been initialized (tables exist).
+     */
+    public void migrateIfNeeded() {
+        JsonToSQLiteMigrator migrator = createMigrator();
+        if (migrator == null || !migrateFromJson || !migrator.hasPendingData()) {
+            return;
+        }
+
+        plugin.getLogger().info("Found JSON storage files, migrating them to SQLite...");
+        try {
+            JsonToSQLiteMigrator.Result result = migrator.migrate();
+            plugin.getLogger().info("JSON to SQLite migration complete: " + result.auctions() + " auctions, "
+                    + result.journalEntries() + " journal entries, " + result.transactions() + " transactions.");
+        } catch (Exception e) {
+            plugin.getLogger().severe("JSON to SQLite migration failed; it will be retried on next start.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the SQLite connections, if any. Call after the storages have been
+     * flushed; the executors themselves are shut down by the {@link ExecutorRegistry}.
+     */
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.minekarta.playerauction.storage;
 
 import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.ObjIntConsumer;
 
 public interface TransactionStorage {
     /**
@@ -20,12 +23,45 @@ public interface TransactionStorage {
     CompletableFuture<Void> logTransaction(Transaction transaction);
 
     /**
-     * Finds a list of transactions for a specific player (as either seller or buyer).
+     * Logs several transactions in one write.
+     * @param transactions The transactions to log, in order.
+     * @return A CompletableFuture that completes when the operation is finished.
+     */
+    CompletableFuture<Void> logTransactions(List<Transaction> transactions);
+
+    /**
+     * Finds the next transactions of a specific player (as either seller or buyer),
+     * newest first (ties broken by ID), starting right after a cursor.
      * @param playerId The UUID of the player.
+     * @param after The position of the last transaction already shown, or null for the newest.
      * @param limit The maximum number of transactions to return.
-     * @param offset The offset to start from (for pagination).
      * @return A future completing with the list of transactions.
      */
-    CompletableFuture<List<Transaction>> findTransactionsByPlayer(UUID playerId, int limit, int offset);
+    CompletableFuture<List<Transaction>> findTransactionsByPlayer(UUID playerId, @Nullable TransactionCursor after,
+            int limit);
+
+    /**
+     * Counts a player's transactions (as either seller or buyer), without loading them.
+     * @param playerId The UUID of the player.
+     * @return A future completing with the number of transactions.
+     */
+    CompletableFuture<Integer> countTransactionsByPlayer(UUID playerId);
+
+    /**
+     * Reports how many transactions refer to each stored item snapshot, for the
+     * {@link ItemBlobStore} reference count at startup. Runs on the calling thread.
+     * @param references Receives each item hash and its number of transactions.
+     */
+    void countItemReferences(ObjIntConsumer<String> references);
+
+    /**
+     * Writes any transactions still buffered in memory to disk.
+     * Storages that write through immediately have nothing to do.
+     * @return A CompletableFuture that completes once pending changes are on disk,
+     *         or exceptionally if they could not be written.
+     */
+    default CompletableFuture<Void> flush() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
 
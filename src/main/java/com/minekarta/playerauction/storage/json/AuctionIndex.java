@@ -0,0 +1,265 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.gui.model.AuctionCategory;
+import com.minekarta.playerauction.gui.model.SortOrder;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Secondary indexes over the auctions held by {@link JsonAuctionStorage}.
+ * <p>
+ * Keeps every auction by ID (in file order) plus live views of the active ones:
+ * by seller, by category, by search word and pre-sorted for every {@link SortOrder},
+ * so browsing and searching never have to scan finished/expired history.
+ * <p>
+ * Not thread-safe; the owning storage guards all access with its read/write lock.
+ */
+final class AuctionIndex {
+
+    // All auctions, insertion order preserved so the saved file keeps its layout
+    private final Map<UUID, Auction> byId = new LinkedHashMap<>();
+
+    private final Map<UUID, Auction> activeById = new HashMap<>();
+    private final Map<UUID, Set<UUID>> activeBySeller = new HashMap<>();
+
+    // Inverted index: search word -> active auctions containing it. Sorted, so a
+    // prefix maps to one contiguous range of words.
+    private final NavigableMap<String, Set<UUID>> activeByToken = new TreeMap<>();
+
+    // Every auction of a seller (any status), newest first
+    private final Map<UUID, NavigableSet<Auction>> bySeller = new HashMap<>();
+
+    // Active auctions per category (including ALL) per sort order; an auction sits in
+    // every category that matches its material
+    private final Map<AuctionCategory, Map<SortOrder, NavigableSet<Auction>>> sortedActive =
+            new EnumMap<>(AuctionCategory.class);
+
+    AuctionIndex() {
+        for (AuctionCategory category : AuctionCategory.values()) {
+            Map<SortOrder, NavigableSet<Auction>> views = new EnumMap<>(SortOrder.class);
+            for (SortOrder sortOrder : SortOrder.values()) {
+                views.put(sortOrder, new TreeSet<>(comparator(sortOrder)));
+            }
+            sortedActive.put(category, views);
+        }
+    }
+
+    void clear() {
+        byId.clear();
+        activeById.clear();
+        activeBySeller.clear();
+        activeByToken.clear();
+        bySeller.clear();
+        sortedActive.values().forEach(views -> views.values().forEach(Set::clear));
+    }
+
+    /**
+     * Inserts an auction or replaces the stored auction with the same ID,
+     * moving it in or out of the active views as its status requires.
+     */
+    void put(Auction auction) {
+        Auction previous = byId.put(auction.id(), auction);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(auction);
+    }
+
+    Auction get(UUID id) {
+        return byId.get(id);
+    }
+
+    Collection<Auction> all() {
+        return byId.values();
+    }
+
+    int activeCount() {
+        return activeById.size();
+    }
+
+    int activeCount(AuctionCategory category) {
+        return sortedActive.get(category).get(SortOrder.TIME_LEFT).size();
+    }
+
+    int activeCountBySeller(UUID seller) {
+        Set<UUID> ids = activeBySeller.get(seller);
+        return ids != null ? ids.size() : 0;
+    }
+
+    Set<UUID> activeSellers() {
+        return new HashSet<>(activeBySeller.keySet());
+    }
+
+    /**
+     * Returns the live, sorted view of active auctions in a category.
+     */
+    NavigableSet<Auction> activeView(AuctionCategory category, SortOrder sortOrder) {
+        return sortedActive.get(category).get(sortOrder);
+    }
+
+    /**
+     * Returns the active auctions in a category that sort strictly after a cursor.
+     */
+    NavigableSet<Auction> activeViewAfter(AuctionCategory category, SortOrder sortOrder, AuctionCursor cursor) {
+        return activeView(category, sortOrder).tailSet(probe(cursor), false);
+    }
+
+    /**
+     * Returns the active auctions in a category whose search words cover every
+     * query word as a prefix, in sort order, starting after an optional cursor.
+     */
+    List<Auction> search(List<String> queryTokens, AuctionCategory category, SortOrder sortOrder,
+            @Nullable AuctionCursor after, int limit) {
+        Comparator<Auction> comparator = comparator(sortOrder);
+        Auction probe = after != null ? probe(after) : null;
+        List<Auction> matches = new ArrayList<>();
+        for (UUID id : matchingIds(queryTokens)) {
+            Auction auction = activeById.get(id);
+            if (inCategory(auction, category) && (probe == null || comparator.compare(auction, probe) > 0)) {
+                matches.add(auction);
+            }
+        }
+        matches.sort(comparator);
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Counts the active auctions in a category matching a search, see {@link #search}.
+     */
+    int searchCount(List<String> queryTokens, AuctionCategory category) {
+        int count = 0;
+        for (UUID id : matchingIds(queryTokens)) {
+            if (inCategory(activeById.get(id), category)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Set<UUID> matchingIds(List<String> queryTokens) {
+        Set<UUID> result = null;
+        for (String queryToken : queryTokens) {
+            // Every indexed word starting with the query word
+            Set<UUID> tokenMatches = new HashSet<>();
+            for (Set<UUID> ids : activeByToken.subMap(queryToken, true, queryToken + Character.MAX_VALUE, true)
+                    .values()) {
+                tokenMatches.addAll(ids);
+            }
+            if (result == null) {
+                result = tokenMatches;
+            } else {
+                result.retainAll(tokenMatches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result != null ? result : Collections.emptySet();
+    }
+
+    private static boolean inCategory(Auction auction, AuctionCategory category) {
+        return category.matches(auction.itemMetadata().material());
+    }
+
+    /**
+     * Every category whose filter accepts the auction's item, ALL included. An item
+     * can match several, e.g. a stone sword is both a weapon and a block.
+     */
+    private static List<AuctionCategory> categories(Auction auction) {
+        List<AuctionCategory> categories = new ArrayList<>(2);
+        for (AuctionCategory category : AuctionCategory.values()) {
+            if (inCategory(auction, category)) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    // The comparators only look at the sort keys and the ID, so a probe carrying just those works
+    private static Auction probe(AuctionCursor cursor) {
+        return new Auction(cursor.id(), null, null, null, cursor.price(), null, null,
+                cursor.createdAt(), cursor.endAt(), AuctionStatus.ACTIVE, 0);
+    }
+
+    /**
+     * Returns every auction listed by a seller, newest first.
+     */
+    NavigableSet<Auction> bySeller(UUID seller) {
+        NavigableSet<Auction> auctions = bySeller.get(seller);
+        return auctions != null ? auctions : Collections.emptyNavigableSet();
+    }
+
+    private void index(Auction auction) {
+        bySeller.computeIfAbsent(auction.seller(), k -> new TreeSet<>(NEWEST_FIRST)).add(auction);
+
+        if (auction.status() != AuctionStatus.ACTIVE) {
+            return;
+        }
+        activeById.put(auction.id(), auction);
+        activeBySeller.computeIfAbsent(auction.seller(), k -> new HashSet<>()).add(auction.id());
+        for (AuctionCategory category : categories(auction)) {
+            sortedActive.get(category).values().forEach(view -> view.add(auction));
+        }
+        for (String token : auction.itemMetadata().searchTokens()) {
+            activeByToken.computeIfAbsent(token, k -> new HashSet<>()).add(auction.id());
+        }
+    }
+
+    private void unindex(Auction auction) {
+        NavigableSet<Auction> sellerAuctions = bySeller.get(auction.seller());
+        if (sellerAuctions != null) {
+            sellerAuctions.remove(auction);
+            if (sellerAuctions.isEmpty()) {
+                bySeller.remove(auction.seller());
+            }
+        }
+
+        if (activeById.remove(auction.id()) == null) {
+            return;
+        }
+        Set<UUID> sellerActive = activeBySeller.get(auction.seller());
+        if (sellerActive != null) {
+            sellerActive.remove(auction.id());
+            if (sellerActive.isEmpty()) {
+                activeBySeller.remove(auction.seller());
+            }
+        }
+        for (AuctionCategory category : categories(auction)) {
+            sortedActive.get(category).values().forEach(view -> view.remove(auction));
+        }
+        for (String token : auction.itemMetadata().searchTokens()) {
+            Set<UUID> ids = activeByToken.get(token);
+            if (ids != null) {
+                ids.remove(auction.id());
+                if (ids.isEmpty()) {
+                    activeByToken.remove(token);
+                }
+            }
+        }
+    }
+
+    private static final Comparator<Auction> NEWEST_FIRST = Comparator.comparingLong(Auction::createdAt).reversed()
+            .thenComparing(Auction::id);
+
+    /**
+     * Total ordering for a sort order. The auction ID breaks ties so that
+     * distinct auctions with equal sort keys can live in the same set.
+     */
+    static Comparator<Auction> comparator(SortOrder sortOrder) {
+        switch (sortOrder) {
+            case PRICE_ASC:
+                return Comparator.comparingDouble(Auction::price).thenComparing(Auction::id);
+            case PRICE_DESC:
+                return Comparator.comparingDouble(Auction::price).reversed().thenComparing(Auction::id);
+            case NEWEST:
+                return NEWEST_FIRST;
+            case TIME_LEFT:
+            default:
+                return Comparator.comparingLong(Auction::endAt).thenComparing(Auction::id);
+        }
+    }
+}
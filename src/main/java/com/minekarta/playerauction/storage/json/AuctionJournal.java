@@ -0,0 +1,284 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.ItemMetadata;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Append-only write-ahead log of auction mutations for {@link JsonAuctionStorage}.
+ * <p>
+ * Every insert and status/version change is written as one JSON line, so a write
+ * costs the same no matter how many auctions exist. The storage periodically
+ * compacts the log into the {@code auctions.json} snapshot; on startup the
+ * snapshot is loaded and the log is replayed on top of it.
+ * <p>
+ * Compaction first rotates the live log to {@code .compacting} so writers are
+ * never blocked while the snapshot is written. Replay is idempotent, so a crash
+ * at any point during compaction only means some entries are replayed twice.
+ * <p>
+ * Not thread-safe; the owning storage holds its write lock while appending or rotating.
+ * {@link #readAll} is public so other backends can import a journal.
+ */
+public final class AuctionJournal {
+
+    private enum Op { INSERT, UPDATE }
+
+    private record Entry(Op op, Auction auction, UUID id, AuctionStatus status, Integer version) {
+        static Entry insert(Auction auction) {
+            return new Entry(Op.INSERT, auction, null, null, null);
+        }
+
+        static Entry update(Auction auction) {
+            return new Entry(Op.UPDATE, null, auction.id(), auction.status(), auction.version());
+        }
+    }
+
+    private final File file;
+    private final File compactingFile;
+    private final Logger logger;
+    // Compact (single line) form, nulls omitted
+    private final Gson gson;
+
+    private Writer writer;
+    // The live log ends in a torn line from a crash
+    private boolean needsNewline;
+    private int size;
+    private int rotations;
+
+    /**
+     * @param gson Must write items the same way as the snapshot, i.e. with the
+     *             storage's {@link com.minekarta.playerauction.storage.SerializedItemAdapter}.
+     */
+    AuctionJournal(File file, Gson gson, Logger logger) {
+        this.file = file;
+        this.compactingFile = new File(file.getPath() + ".compacting");
+        this.gson = gson;
+        this.logger = logger;
+    }
+
+    /**
+     * Number of entries in the live log since the last rotation.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Receives journal entries in the order they were written.
+     */
+    public interface Visitor {
+        /**
+         * @return Whether the entry changed anything.
+         */
+        boolean insert(Auction auction);
+
+        /**
+         * @return Whether the entry changed anything.
+         */
+        boolean update(UUID id, AuctionStatus status, int version);
+    }
+
+    /**
+     * Replays a leftover {@code .compacting} log and then the live log onto the index.
+     * @return The number of entries applied.
+     */
+    int replay(AuctionIndex index) {
+        Visitor visitor = new Visitor() {
+            @Override
+            public boolean insert(Auction auction) {
+                if (index.get(auction.id()) != null) {
+                    return false; // Already part of the snapshot
+                }
+                index.put(auction.metadata() != null ? auction
+                        : auction.withMetadata(ItemMetadata.of(auction.item())));
+                return true;
+            }
+
+            @Override
+            public boolean update(UUID id, AuctionStatus status, int version) {
+                Auction existing = index.get(id);
+                // Equal versions are re-applied: journals from older builds hold purchase rollbacks
+                // that reused the reservation's version, and replaying in order lets the last one win
+                if (existing == null || existing.version() > version) {
+                    return false;
+                }
+                index.put(new Auction(existing.id(), existing.seller(), existing.item(), existing.metadata(),
+                        existing.price(), existing.buyNowPrice(), existing.reservePrice(), existing.createdAt(),
+                        existing.endAt(), status, version));
+                return true;
+            }
+        };
+
+        int applied = read(compactingFile, gson, logger, visitor);
+        size = read(file, gson, logger, visitor);
+        try {
+            needsNewline = endsWithTornLine(file);
+        } catch (IOException e) {
+            logger.warning("Failed to check the end of auction journal: " + e.getMessage());
+            needsNewline = true; // A blank line is skipped on replay, a merged one is not
+        }
+        return applied + size;
+    }
+
+    /**
+     * Streams the entries of the journal files belonging to a snapshot (a leftover
+     * {@code .compacting} log first, then the live log) without loading them into memory.
+     * @param journalFile The live journal, e.g. {@code auctions.journal}.
+     * @param gson        Reads the entries; needs a {@link com.minekarta.playerauction.storage.SerializedItemAdapter}.
+     * @return The number of entries the visitor applied.
+     */
+    public static int readAll(File journalFile, Gson gson, Logger logger, Visitor visitor) {
+        return read(new File(journalFile.getPath() + ".compacting"), gson, logger, visitor)
+                + read(journalFile, gson, logger, visitor);
+    }
+
+    private static int read(File source, Gson gson, Logger logger, Visitor visitor) {
+        if (!source.exists()) {
+            return 0;
+        }
+        int applied = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = gson.fromJson(line, Entry.class);
+                } catch (JsonParseException e) {
+                    // A torn line from a crash or failed append; the entries around it are intact
+                    logger.warning("Skipping unreadable line " + lineNumber + " in " + source.getName()
+                            + ": " + e.getMessage());
+                    continue;
+                }
+                if (entry != null && apply(entry, visitor)) {
+                    applied++;
+                }
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to replay auction journal " + source.getName() + ": " + e.getMessage());
+        }
+        return applied;
+    }
+
+    private static boolean apply(Entry entry, Visitor visitor) {
+        if (entry.op() == Op.INSERT && entry.auction() != null) {
+            return visitor.insert(entry.auction());
+        }
+        if (entry.op() == Op.UPDATE && entry.id() != null && entry.status() != null && entry.version() != null) {
+            return visitor.update(entry.id(), entry.status(), entry.version());
+        }
+        return false;
+    }
+
+    void appendInsert(Auction auction) throws IOException {
+        append(Entry.insert(auction));
+    }
+
+    void appendUpdate(Auction auction) throws IOException {
+        append(Entry.update(auction));
+    }
+
+    private void append(Entry entry) throws IOException {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            if (needsNewline) {
+                // Otherwise the first entry would continue the torn line and be skipped with it
+                writer.write('\n');
+                needsNewline = false;
+            }
+        }
+        writer.write(gson.toJson(entry));
+        writer.write('\n');
+        size++;
+    }
+
+    /**
+     * Pushes appended entries to the file. Until then they only live in the
+     * writer's buffer, which lets write-behind mode batch many appends per write.
+     */
+    void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Moves the live log aside so a snapshot can be written while new entries go
+     * to a fresh log. If a previous compaction never finished, the live log is
+     * appended to the leftover {@code .compacting} file instead of replacing it.
+     * @return A token for {@link #finishCompaction(int)}.
+     */
+    int rotate() throws IOException {
+        close();
+        if (file.exists()) {
+            if (compactingFile.exists()) {
+                // Leading newline terminates a torn last line so the merged entries stay readable
+                byte[] pending = Files.readAllBytes(file.toPath());
+                Files.write(compactingFile.toPath(), new byte[]{'\n'}, StandardOpenOption.APPEND);
+                Files.write(compactingFile.toPath(), pending, StandardOpenOption.APPEND);
+                Files.delete(file.toPath());
+            } else {
+                Files.move(file.toPath(), compactingFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        size = 0;
+        needsNewline = false;
+        return ++rotations;
+    }
+
+    /**
+     * Whether a rotated log is waiting to be folded into a snapshot.
+     */
+    boolean hasRotated() {
+        return compactingFile.exists();
+    }
+
+    /**
+     * Discards the rotated log once its entries are safely in the snapshot. Does
+     * nothing if the log was rotated again since, as the rotated file then also
+     * holds entries the snapshot does not cover.
+     */
+    void finishCompaction(int rotation) {
+        if (rotation == rotations && compactingFile.exists() && !compactingFile.delete()) {
+            logger.warning("Failed to delete compacted auction journal: " + compactingFile.getAbsolutePath());
+        }
+    }
+
+    private static boolean endsWithTornLine(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(file.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close auction journal: " + e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -4,12 +4,19 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
 import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.ItemMetadata;
+import com.minekarta.playerauction.common.SearchTokens;
 import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
 import com.minekarta.playerauction.gui.model.AuctionCategory;
 import com.minekarta.playerauction.gui.model.SortOrder;
 import com.minekarta.playerauction.storage.AuctionStorage;
+import com.minekarta.playerauction.storage.ItemBlobStore;
+import com.minekarta.playerauction.storage.SerializedItemAdapter;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.lang.reflect.Type;
@@ -17,34 +24,58 @@ import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 public class JsonAuctionStorage implements AuctionStorage {
+    // Journal entries after which a compaction is queued without waiting for the timer
+    private static final int COMPACTION_THRESHOLD = 1000;
+    private static final long COMPACTION_INTERVAL_MINUTES = 5;
+
     private final JavaPlugin plugin;
-    private final Executor executor;
+    private final ScheduledExecutorService executor;
+    private final Executor readExecutor;
+    private final ScheduledExecutorService compactor;
     private final String filePath;
+    private final ItemBlobStore blobs;
     private final Gson gson;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
-    // In-memory cache for performance
-    private volatile List<Auction> auctions = new ArrayList<>();
-
-    public JsonAuctionStorage(JavaPlugin plugin) {
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+    // In-memory cache with secondary indexes, guarded by the lock
+    private final AuctionIndex index = new AuctionIndex();
+    // Append-only log of changes since the last snapshot, guarded by the write lock
+    private final AuctionJournal journal;
+    private final WriteBehind writeBehind;
+
+    /**
+     * @param blobs        Holds the items; auctions refer to them by hash.
+     * @param executors    Creates this storage's own thread.
+     * @param readExecutor Where read-only queries run, or null to run them on this
+     *                     storage's own thread like writes.
+     */
+    public JsonAuctionStorage(JavaPlugin plugin, JsonStorageSettings settings, ItemBlobStore blobs,
+            ExecutorRegistry executors, @Nullable Executor readExecutor) {
         this.plugin = plugin;
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "JsonAuctionStorage-Thread");
-            t.setDaemon(true);
-            return t;
-        });
+        this.executor = executors.newScheduledExecutor("JsonAuctionStorage-Thread");
+        this.readExecutor = readExecutor != null ? readExecutor : executor;
+        this.compactor = executors.newScheduledExecutor("JsonAuctionStorage-Compactor");
         this.filePath = plugin.getDataFolder().getAbsolutePath() + "/auctions.json";
+        this.blobs = blobs;
+        SerializedItemAdapter items = SerializedItemAdapter.of(blobs, plugin.getLogger());
         this.gson = new GsonBuilder()
+                .registerTypeAdapter(SerializedItem.class, items)
                 .setPrettyPrinting()
                 .serializeNulls()
                 .create();
+        this.journal = new AuctionJournal(new File(plugin.getDataFolder(), "auctions.journal"),
+                new GsonBuilder().registerTypeAdapter(SerializedItem.class, items).create(), plugin.getLogger());
+        this.writeBehind = new WriteBehind(settings, executor, lock.writeLock(), this::flushJournal);
 
         // Load existing data on initialization
         loadData();
@@ -61,12 +92,18 @@ public class JsonAuctionStorage implements AuctionStorage {
         // Load existing data
         loadData();
 
+        compactor.scheduleWithFixedDelay(this::compact,
+                COMPACTION_INTERVAL_MINUTES, COMPACTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+
         plugin.getLogger().info("JSON auction storage initialized successfully.");
     }
 
     private void loadData() {
         lock.writeLock().lock();
         try {
+            journal.close();
+            index.clear();
+
             File file = new File(filePath);
             if (file.exists()) {
                 try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
@@ -74,76 +111,170 @@ public class JsonAuctionStorage implements AuctionStorage {
                     }.getType();
                     List<Auction> loadedAuctions = gson.fromJson(reader, listType);
                     if (loadedAuctions != null) {
-                        this.auctions = new ArrayList<>(loadedAuctions);
-                    } else {
-                        this.auctions = new ArrayList<>();
+                        for (Auction auction : loadedAuctions) {
+                            // Backfill records saved before item metadata was captured (decoded once here)
+                            index.put(auction.metadata() != null ? auction
+                                    : auction.withMetadata(ItemMetadata.of(auction.item())));
+                        }
                     }
                 } catch (IOException e) {
                     plugin.getLogger().severe("Failed to load auctions from JSON file: " + e.getMessage());
-                    this.auctions = new ArrayList<>();
+                    index.clear();
                 }
-            } else {
-                this.auctions = new ArrayList<>();
+            }
+
+            // Bring the snapshot up to date with changes made after it was written
+            int replayed = journal.replay(index);
+            if (replayed > 0) {
+                plugin.getLogger().info("Replayed " + replayed + " auction journal entries.");
             }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private void saveData() {
-        lock.readLock().lock();
+    /**
+     * Records a change in the journal. Must be called while holding the write lock,
+     * after the index has been updated.
+     */
+    private void journal(Auction auction, boolean insert) {
+        journal(List.of(auction), insert);
+    }
+
+    /**
+     * Appends several entries as one change, so write-through mode saves them in a
+     * single write.
+     */
+    private void journal(List<Auction> auctions, boolean insert) {
         try {
-            File file = new File(filePath);
-            File tempFile = new File(filePath + ".tmp");
+            for (Auction auction : auctions) {
+                if (insert) {
+                    journal.appendInsert(auction);
+                } else {
+                    journal.appendUpdate(auction);
+                }
+            }
+        } catch (IOException e) {
+            abandonJournal(e);
+            return;
+        }
+        writeBehind.changed();
+
+        if (journal.size() >= COMPACTION_THRESHOLD && compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
 
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
-                gson.toJson(auctions, writer);
-            } catch (IOException e) {
-                plugin.getLogger().severe("Failed to write auctions to temporary file: " + e.getMessage());
+    private boolean flushJournal() {
+        try {
+            journal.flush();
+            return true;
+        } catch (IOException e) {
+            abandonJournal(e);
+            return false;
+        }
+    }
+
+    /**
+     * Stops appending after a failed (possibly partial) write and gets the
+     * in-memory state into a snapshot instead. Must be called while holding the write lock.
+     */
+    private void abandonJournal(IOException cause) {
+        plugin.getLogger().severe("Failed to write auction journal, compacting now: " + cause.getMessage());
+        try {
+            journal.rotate();
+        } catch (IOException rotateError) {
+            plugin.getLogger().severe("Failed to rotate auction journal: " + rotateError.getMessage());
+        }
+        if (compactionQueued.compareAndSet(false, true)) {
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Folds the journal into the auctions.json snapshot. Only the journal rotation
+     * and a shallow copy of the index happen under the write lock; the snapshot
+     * itself is serialized on the compactor thread while writes continue.
+     */
+    private void compact() {
+        compactionQueued.set(false);
+        List<Auction> snapshot;
+        int rotation;
+        lock.writeLock().lock();
+        try {
+            if (journal.size() == 0 && !journal.hasRotated()) {
                 return;
             }
+            snapshot = new ArrayList<>(index.all());
+            rotation = journal.rotate();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to rotate auction journal for compaction: " + e.getMessage());
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
 
-            // Atomic move with retry logic to prevent corruption
-            int retries = 3;
-            boolean renamed = false;
+        // On failure the rotated journal is kept and replayed (or merged) next time
+        if (saveData(snapshot)) {
+            lock.writeLock().lock();
+            try {
+                journal.finishCompaction(rotation);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
 
-            while (retries > 0 && !renamed) {
-                // Delete old file if exists to prevent conflicts
-                if (file.exists()) {
-                    if (!file.delete()) {
-                        plugin.getLogger()
-                                .warning("Failed to delete old file before rename (attempt " + (4 - retries) + ")");
-                    }
-                }
+    private boolean saveData(List<Auction> auctions) {
+        File file = new File(filePath);
+        File tempFile = new File(filePath + ".tmp");
 
-                // Try to rename temp file to final file
-                renamed = tempFile.renameTo(file);
-
-                if (!renamed) {
-                    retries--;
-                    if (retries > 0) {
-                        try {
-                            Thread.sleep(100); // Wait 100ms before retry
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            plugin.getLogger().warning("Interrupted while waiting to retry file rename");
-                            break;
-                        }
-                    }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+            gson.toJson(auctions, writer);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to write auctions to temporary file: " + e.getMessage());
+            return false;
+        }
+
+        // Atomic move with retry logic to prevent corruption
+        int retries = 3;
+        boolean renamed = false;
+
+        while (retries > 0 && !renamed) {
+            // Delete old file if exists to prevent conflicts
+            if (file.exists()) {
+                if (!file.delete()) {
+                    plugin.getLogger()
+                            .warning("Failed to delete old file before rename (attempt " + (4 - retries) + ")");
                 }
             }
 
+            // Try to rename temp file to final file
+            renamed = tempFile.renameTo(file);
+
             if (!renamed) {
-                plugin.getLogger().severe(
-                        "Failed to rename temporary file to final file after 3 attempts. Data may not be saved!");
-                // Try to restore temp file info for debugging
-                if (tempFile.exists()) {
-                    plugin.getLogger().severe("Temporary file still exists at: " + tempFile.getAbsolutePath());
+                retries--;
+                if (retries > 0) {
+                    try {
+                        Thread.sleep(100); // Wait 100ms before retry
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        plugin.getLogger().warning("Interrupted while waiting to retry file rename");
+                        break;
+                    }
                 }
             }
-        } finally {
-            lock.readLock().unlock();
         }
+
+        if (!renamed) {
+            plugin.getLogger().severe(
+                    "Failed to rename temporary file to final file after 3 attempts. Data may not be saved!");
+            // Try to restore temp file info for debugging
+            if (tempFile.exists()) {
+                plugin.getLogger().severe("Temporary file still exists at: " + tempFile.getAbsolutePath());
+            }
+        }
+        return renamed;
     }
 
     @Override
@@ -151,13 +282,11 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return auctions.stream()
-                        .filter(auction -> auction.id().equals(id))
-                        .findFirst();
+                return Optional.ofNullable(index.get(id));
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -166,18 +295,14 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return auctions.stream()
-                        .filter(auction -> auction.status() == AuctionStatus.ACTIVE)
-                        .filter(auction -> category == AuctionCategory.ALL ||
-                                category.matches(auction.item().toItemStack().getType().name()))
-                        .sorted(getComparator(sortOrder))
+                return index.activeView(category, sortOrder).stream()
                         .skip(offset)
                         .limit(limit)
                         .collect(Collectors.toList());
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -186,21 +311,54 @@ public class JsonAuctionStorage implements AuctionStorage {
         return findActive(limit, (page - 1) * limit, category, sortOrder);
     }
 
+    @Override
+    public CompletableFuture<List<Auction>> findActiveAfter(AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder) {
+        return CompletableFuture.supplyAsync(() -> {
+            lock.readLock().lock();
+            try {
+                NavigableSet<Auction> view = after != null
+                        ? index.activeViewAfter(category, sortOrder, after)
+                        : index.activeView(category, sortOrder);
+                return view.stream()
+                        .limit(limit)
+                        .collect(Collectors.toList());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }, readExecutor);
+    }
+
+    @Override
+    public CompletableFuture<List<Auction>> searchActiveAfter(String query, AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder) {
+        List<String> queryTokens = SearchTokens.tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            lock.readLock().lock();
+            try {
+                return index.search(queryTokens, category, sortOrder, after, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }, readExecutor);
+    }
+
     @Override
     public CompletableFuture<List<Auction>> findBySeller(UUID seller, int limit, int offset) {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return auctions.stream()
-                        .filter(auction -> auction.seller().equals(seller))
-                        .sorted((a1, a2) -> Long.compare(a2.createdAt(), a1.createdAt())) // Sort by newest first
+                return index.bySeller(seller).stream() // Already sorted newest first
                         .skip(offset)
                         .limit(limit)
                         .collect(Collectors.toList());
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -208,17 +366,27 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return auctions.stream()
-                        .filter(auction -> auction.seller().equals(playerId))
+                return index.bySeller(playerId).stream() // Already sorted newest first
                         .filter(auction -> auction.status() != AuctionStatus.ACTIVE)
-                        .sorted((a1, a2) -> Long.compare(a2.createdAt(), a1.createdAt())) // Sort by newest first
                         .skip((page - 1) * limit)
                         .limit(limit)
                         .collect(Collectors.toList());
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> findActiveSellers() {
+        return CompletableFuture.supplyAsync(() -> {
+            lock.readLock().lock();
+            try {
+                return index.activeSellers();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }, readExecutor);
     }
 
     @Override
@@ -226,14 +394,11 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return (int) auctions.stream()
-                        .filter(auction -> auction.seller().equals(sellerId))
-                        .filter(auction -> auction.status() == AuctionStatus.ACTIVE)
-                        .count();
+                return index.activeCountBySeller(sellerId);
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -246,13 +411,11 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return (int) auctions.stream()
-                        .filter(auction -> auction.status() == AuctionStatus.ACTIVE)
-                        .count();
+                return index.activeCount();
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
     @Override
@@ -261,49 +424,25 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return (int) auctions.stream()
-                        .filter(auction -> auction.status() == AuctionStatus.ACTIVE)
-                        .filter(auction -> category == AuctionCategory.ALL ||
-                                category.matches(auction.item().toItemStack().getType().name()))
-                        .filter(auction -> matchesSearch(auction, searchQuery))
-                        .count();
+                if (searchQuery == null || searchQuery.trim().isEmpty()) {
+                    return index.activeCount(category);
+                }
+                return index.searchCount(SearchTokens.tokenize(searchQuery), category);
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
-    }
-
-    private boolean matchesSearch(Auction auction, String searchQuery) {
-        if (searchQuery == null || searchQuery.trim().isEmpty()) {
-            return true;
-        }
-        String query = searchQuery.trim().toLowerCase();
-
-        org.bukkit.inventory.ItemStack itemStack = auction.item().toItemStack();
-        if (itemStack == null)
-            return false;
-
-        if (itemStack.getType().name().toLowerCase().contains(query)) {
-            return true;
-        }
-
-        if (itemStack.hasItemMeta() && itemStack.getItemMeta().hasDisplayName()) {
-            String displayName = itemStack.getItemMeta().getDisplayName().toLowerCase();
-            if (displayName.contains(query)) {
-                return true;
-            }
-        }
-
-        return false;
+        }, readExecutor);
     }
 
     @Override
     public CompletableFuture<Void> insertAuction(Auction a) {
         return CompletableFuture.runAsync(() -> {
+            // Stored before the journal entry that refers to it
+            Auction stored = a.withItem(blobs.retain(a.item()));
             lock.writeLock().lock();
             try {
-                auctions.add(a);
-                saveData();
+                index.put(stored);
+                journal(stored, true);
             } finally {
                 lock.writeLock().unlock();
             }
@@ -315,21 +454,13 @@ public class JsonAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             lock.writeLock().lock();
             try {
-                // Find the auction with the same ID
-                OptionalInt indexOpt = IntStream.range(0, auctions.size())
-                        .filter(i -> auctions.get(i).id().equals(a.id()))
-                        .findFirst();
-
-                if (indexOpt.isPresent()) {
-                    int index = indexOpt.getAsInt();
-                    Auction existing = auctions.get(index);
-
-                    // Check if version matches
-                    if (existing.version() == expectedVersion) {
-                        auctions.set(index, a);
-                        saveData();
-                        return true;
-                    }
+                Auction existing = index.get(a.id());
+
+                // Check if version matches
+                if (existing != null && existing.version() == expectedVersion) {
+                    index.put(a);
+                    journal(a, false);
+                    return true;
                 }
                 return false;
             } finally {
@@ -338,33 +469,61 @@ public class JsonAuctionStorage implements AuctionStorage {
         }, executor);
     }
 
+    @Override
+    public CompletableFuture<List<Auction>> expireAll(Collection<UUID> ids, long nowEpochMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Auction> expired = new ArrayList<>();
+            lock.writeLock().lock();
+            try {
+                for (UUID id : ids) {
+                    Auction existing = index.get(id);
+                    if (existing != null && existing.status() == AuctionStatus.ACTIVE
+                            && existing.endAt() <= nowEpochMillis) {
+                        Auction updated = existing.withStatus(AuctionStatus.EXPIRED).withIncrementedVersion();
+                        index.put(updated);
+                        expired.add(updated);
+                    }
+                }
+                if (!expired.isEmpty()) {
+                    journal(expired, false);
+                }
+                return expired;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, executor);
+    }
+
     @Override
     public CompletableFuture<List<Auction>> findExpiredUpTo(long nowEpochMillis, int batchSize) {
         return CompletableFuture.supplyAsync(() -> {
             lock.readLock().lock();
             try {
-                return auctions.stream()
-                        .filter(auction -> auction.status() == AuctionStatus.ACTIVE)
-                        .filter(auction -> auction.endAt() <= nowEpochMillis)
+                // Active auctions ordered by end time, so stop at the first one still running
+                return index.activeView(AuctionCategory.ALL, SortOrder.TIME_LEFT).stream()
+                        .takeWhile(auction -> auction.endAt() <= nowEpochMillis)
                         .limit(batchSize)
                         .collect(Collectors.toList());
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+        }, readExecutor);
     }
 
-    private Comparator<Auction> getComparator(SortOrder sortOrder) {
-        switch (sortOrder) {
-            case PRICE_ASC:
-                return Comparator.comparing(Auction::price);
-            case PRICE_DESC:
-                return Comparator.comparing(Auction::price).reversed();
-            case NEWEST:
-                return Comparator.comparing(Auction::createdAt).reversed();
-            case TIME_LEFT:
-            default:
-                return Comparator.comparing(Auction::endAt);
+    @Override
+    public void countItemReferences(ObjIntConsumer<String> references) {
+        lock.readLock().lock();
+        try {
+            for (Auction auction : index.all()) {
+                references.accept(auction.item().hash(), 1);
+            }
+        } finally {
+            lock.readLock().unlock();
         }
     }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(writeBehind::flush, executor);
+    }
 }
@@ -0,0 +1,225 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
+import com.minekarta.playerauction.storage.ItemBlobStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * {@link ItemBlobStore} for the JSON backend: every item in memory, persisted to the
+ * append-only {@code items.blobs} file as one {@code <hash> <base64>} line per item.
+ * A re-encoded item is appended again under the same hash (the later line wins on
+ * load); the file is rewritten without deleted and superseded lines once they make
+ * up more than half of it.
+ * <p>
+ * Loaded in the constructor, because the JSON storages resolve their items while
+ * loading in theirs. All methods are synchronized, which also keeps {@link #store}
+ * and {@link #delete} apart.
+ */
+public class JsonItemBlobStore extends ItemBlobStore {
+
+    private final File file;
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final Map<String, SerializedItem> blobs = new HashMap<>();
+
+    private Writer writer;
+    // Lines in the file that no longer hold a live item
+    private int staleLines;
+
+    public JsonItemBlobStore(File dataFolder, Logger logger, ExecutorRegistry executors) {
+        this.file = new File(dataFolder, "items.blobs");
+        this.logger = logger;
+        this.executor = executors.newSerialExecutor("ItemBlobStore-Thread");
+        load();
+    }
+
+    /**
+     * Reads the items in a blob file without keeping it open, for importing them
+     * into another backend.
+     * @return The items by hash; empty if the file does not exist.
+     */
+    public static Map<String, SerializedItem> readAll(File dataFolder, Logger logger) {
+        Map<String, SerializedItem> items = new HashMap<>();
+        readInto(new File(dataFolder, "items.blobs"), logger, items);
+        return items;
+    }
+
+    private static int readInto(File source, Logger logger, Map<String, SerializedItem> items) {
+        if (!source.exists()) {
+            return 0;
+        }
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator <= 0 || separator == line.length() - 1) {
+                    // A torn line from a crash during an append
+                    continue;
+                }
+                String hash = line.substring(0, separator);
+                items.put(hash, SerializedItem.fromBase64(line.substring(separator + 1)).withHash(hash));
+                lines++;
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to read item store " + source.getName() + ": " + e.getMessage());
+        }
+        return lines;
+    }
+
+    private synchronized void load() {
+        blobs.clear();
+        int lines = readInto(file, logger, blobs);
+        staleLines = lines - blobs.size();
+    }
+
+    @Override
+    public void init() {
+        logger.info("JSON item store initialized with " + size() + " items.");
+    }
+
+    @Override
+    public synchronized SerializedItem store(SerializedItem item) {
+        if (item.getBase64() == null) {
+            return item;
+        }
+        SerializedItem existing = blobs.get(item.hash());
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            append(item);
+        } catch (IOException e) {
+            // The record keeps working from memory; its item is lost on restart unless stored again
+            logger.severe("Failed to write item to " + file.getName() + ": " + e.getMessage());
+        }
+        blobs.put(item.hash(), item);
+        return item;
+    }
+
+    @Override
+    @Nullable
+    public synchronized SerializedItem resolve(String hash) {
+        return blobs.get(hash);
+    }
+
+    @Override
+    public synchronized int size() {
+        return blobs.size();
+    }
+
+    @Override
+    protected synchronized Set<String> storedHashes() {
+        return new HashSet<>(blobs.keySet());
+    }
+
+    @Override
+    protected synchronized int delete(Set<String> hashes) {
+        int deleted = 0;
+        for (String hash : hashes) {
+            if (!isReferenced(hash) && blobs.remove(hash) != null) {
+                deleted++;
+            }
+        }
+        staleLines += deleted;
+        compactIfNeeded();
+        return deleted;
+    }
+
+    @Override
+    public CompletableFuture<ReencodeBatch> reencodeLegacy(@Nullable String afterHash, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            // The first legacy items after the cursor, in hash order
+            TreeMap<String, SerializedItem> legacy = new TreeMap<>();
+            synchronized (this) {
+                for (SerializedItem item : blobs.values()) {
+                    if (item.isLegacyEncoding() && (afterHash == null || item.hash().compareTo(afterHash) > 0)) {
+                        legacy.put(item.hash(), item);
+                        if (legacy.size() > limit) {
+                            legacy.pollLastEntry();
+                        }
+                    }
+                }
+            }
+            if (legacy.isEmpty()) {
+                return new ReencodeBatch(0, 0, null);
+            }
+            // Decoded outside the lock; reencoded() keeps each item's hash
+            Map<String, SerializedItem> reencoded = SerializedItem.reencodeAll(legacy, logger);
+
+            synchronized (this) {
+                int rewritten = 0;
+                for (SerializedItem item : reencoded.values()) {
+                    SerializedItem current = blobs.get(item.hash());
+                    if (current == null || !current.isLegacyEncoding()) {
+                        continue;
+                    }
+                    try {
+                        append(item);
+                    } catch (IOException e) {
+                        logger.severe("Failed to write item to " + file.getName() + ": " + e.getMessage());
+                        break;
+                    }
+                    blobs.put(item.hash(), item);
+                    staleLines++;
+                    rewritten++;
+                }
+                compactIfNeeded();
+                return new ReencodeBatch(legacy.size(), rewritten, legacy.lastKey());
+            }
+        }, executor);
+    }
+
+    private void append(SerializedItem item) throws IOException {
+        if (writer == null) {
+            file.getParentFile().mkdirs();
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        }
+        writer.write(item.hash());
+        writer.write(' ');
+        writer.write(item.getBase64());
+        writer.write('\n');
+        // Records may refer to the item as soon as this returns
+        writer.flush();
+    }
+
+    private void compactIfNeeded() {
+        if (staleLines == 0 || staleLines <= blobs.size()) {
+            return;
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+                for (SerializedItem item : blobs.values()) {
+                    out.write(item.hash());
+                    out.write(' ');
+                    out.write(item.getBase64());
+                    out.write('\n');
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            staleLines = 0;
+        } catch (IOException e) {
+            // The old file is still complete, just larger than needed
+            logger.severe("Failed to compact item store " + file.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.minekarta.playerauction.util.DurationParser;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durability settings shared by the JSON storages ({@code storage.json} in config.yml).
+ *
+ * @param writeMode           When changes reach the disk.
+ * @param flushIntervalMillis Upper bound on how long a change may stay in memory in write-behind mode.
+ * @param maxPendingWrites    Changes after which a write-behind flush happens without waiting for the interval.
+ */
+public record JsonStorageSettings(WriteMode writeMode, long flushIntervalMillis, int maxPendingWrites) {
+
+    public enum WriteMode {
+        /** Every change is written before its future completes (the historical behaviour). */
+        IMMEDIATE,
+        /** Changes mark the store dirty and are written at most once per flush interval. */
+        WRITE_BEHIND
+    }
+
+    private static final long MIN_FLUSH_INTERVAL_MILLIS = 250;
+    // Keeps the data-loss window on a crash bounded no matter what is configured
+    private static final long MAX_FLUSH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    public static final JsonStorageSettings DEFAULTS =
+            new JsonStorageSettings(WriteMode.IMMEDIATE, TimeUnit.SECONDS.toMillis(5), 500);
+
+    public JsonStorageSettings {
+        flushIntervalMillis = Math.max(MIN_FLUSH_INTERVAL_MILLIS, Math.min(MAX_FLUSH_INTERVAL_MILLIS, flushIntervalMillis));
+        maxPendingWrites = Math.max(1, maxPendingWrites);
+    }
+
+    public boolean writeBehind() {
+        return writeMode == WriteMode.WRITE_BEHIND;
+    }
+
+    /**
+     * Reads the settings from the {@code storage.json} section, falling back to
+     * {@link #DEFAULTS} for anything missing or invalid.
+     */
+    public static JsonStorageSettings fromConfig(@Nullable ConfigurationSection section) {
+        if (section == null) {
+            return DEFAULTS;
+        }
+
+        WriteMode writeMode;
+        try {
+            writeMode = WriteMode.valueOf(section.getString("write-mode", DEFAULTS.writeMode().name())
+                    .toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            writeMode = DEFAULTS.writeMode();
+        }
+
+        long flushInterval = DurationParser.parse(section.getString("flush-interval"))
+                .orElse(DEFAULTS.flushIntervalMillis());
+        int maxPendingWrites = section.getInt("max-pending-writes", DEFAULTS.maxPendingWrites());
+
+        return new JsonStorageSettings(writeMode, flushInterval, maxPendingWrites);
+    }
+}
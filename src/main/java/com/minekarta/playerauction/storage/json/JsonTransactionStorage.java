@@ -2,47 +2,67 @@ package com.minekarta.playerauction.storage.json;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
+import com.minekarta.playerauction.storage.ItemBlobStore;
+import com.minekarta.playerauction.storage.SerializedItemAdapter;
 import com.minekarta.playerauction.storage.TransactionStorage;
 import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
+import java.util.function.ObjIntConsumer;
 
+/**
+ * Transactions in a segmented, append-only {@link TransactionLog} in the
+ * {@code transactions/} folder. A {@code transactions.json} written by older
+ * versions is imported into the log once and renamed to {@code transactions.json.migrated}.
+ */
 public class JsonTransactionStorage implements TransactionStorage {
     private final JavaPlugin plugin;
-    private final Executor executor;
-    private final String filePath;
+    private final ScheduledExecutorService executor;
+    private final Executor readExecutor;
+    private final File legacyFile;
+    private final ItemBlobStore blobs;
     private final Gson gson;
+    private final TransactionLogSettings logSettings;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    
-    // In-memory cache for performance
-    private volatile List<Transaction> transactions = new ArrayList<>();
-    
-    public JsonTransactionStorage(JavaPlugin plugin) {
+    private final WriteBehind writeBehind;
+    private final TransactionLog log;
+
+    /**
+     * @param blobs        Holds the item snapshots; transactions refer to them by hash.
+     * @param executors    Creates this storage's own thread.
+     * @param readExecutor Where read-only queries run, or null to run them on this
+     *                     storage's own thread like writes.
+     */
+    public JsonTransactionStorage(JavaPlugin plugin, JsonStorageSettings settings, TransactionLogSettings logSettings,
+            ItemBlobStore blobs, ExecutorRegistry executors, @Nullable Executor readExecutor) {
         this.plugin = plugin;
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "JsonTransactionStorage-Thread");
-            t.setDaemon(true);
-            return t;
-        });
-        this.filePath = plugin.getDataFolder().getAbsolutePath() + "/transactions.json";
+        this.executor = executors.newScheduledExecutor("JsonTransactionStorage-Thread");
+        this.readExecutor = readExecutor != null ? readExecutor : executor;
+        this.legacyFile = new File(plugin.getDataFolder(), "transactions.json");
+        this.blobs = blobs;
+        this.logSettings = logSettings;
         this.gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .serializeNulls()
+            .registerTypeAdapter(SerializedItem.class, SerializedItemAdapter.of(blobs, plugin.getLogger()))
             .create();
-        
-        // Load existing data on initialization
-        loadData();
+        this.log = new TransactionLog(new File(plugin.getDataFolder(), "transactions"),
+                logSettings.maxSegmentBytes(), gson, plugin.getLogger());
+        this.writeBehind = new WriteBehind(settings, executor, lock.writeLock(), this::flushLog);
     }
 
     @Override
@@ -52,67 +72,165 @@ public class JsonTransactionStorage implements TransactionStorage {
         if (!dataFolder.exists()) {
             dataFolder.mkdirs();
         }
-        
-        // Load existing data
-        loadData();
-        
-        plugin.getLogger().info("JSON transaction storage initialized successfully.");
-    }
 
-    private void loadData() {
+        List<String> uncompressed;
         lock.writeLock().lock();
         try {
-            File file = new File(filePath);
-            if (file.exists()) {
-                try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
-                    Type listType = new TypeToken<ArrayList<Transaction>>(){}.getType();
-                    List<Transaction> loadedTransactions = gson.fromJson(reader, listType);
-                    if (loadedTransactions != null) {
-                        this.transactions = new ArrayList<>(loadedTransactions);
-                    } else {
-                        this.transactions = new ArrayList<>();
-                    }
-                } catch (IOException e) {
-                    plugin.getLogger().severe("Failed to load transactions from JSON file: " + e.getMessage());
-                    this.transactions = new ArrayList<>();
-                }
-            } else {
-                this.transactions = new ArrayList<>();
-            }
+            uncompressed = log.open();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to open transaction log: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            importLegacyFile();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to import " + legacyFile.getName() + ": " + e.getMessage());
+            e.printStackTrace();
         } finally {
             lock.writeLock().unlock();
         }
+        if (logSettings.compressSegments()) {
+            uncompressed.forEach(this::scheduleCompression);
+        }
+
+        plugin.getLogger().info("JSON transaction storage initialized with " + size() + " transactions.");
     }
 
-    private void saveData() {
+    private int size() {
         lock.readLock().lock();
         try {
-            File file = new File(filePath);
-            File tempFile = new File(filePath + ".tmp");
-            
-            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
-                gson.toJson(transactions, writer);
-            } catch (IOException e) {
-                plugin.getLogger().severe("Failed to write transactions to temporary file: " + e.getMessage());
-                return;
-            }
-            
-            // Atomic move to prevent corruption
-            if (!tempFile.renameTo(file)) {
-                plugin.getLogger().severe("Failed to rename temporary file to final file");
-            }
+            return log.size();
         } finally {
             lock.readLock().unlock();
         }
     }
 
+    /**
+     * Moves the transactions of a {@code transactions.json} from before the log into it,
+     * streamed so the file never has to fit in memory. Called with the write lock held.
+     * <p>
+     * If the file breaks off partway, what was read stays in the log and the file is
+     * renamed to {@code .partial} rather than {@code .migrated}, so a restart cannot
+     * append the same transactions twice; the rest is left in it for an admin.
+     */
+    private void importLegacyFile() throws IOException {
+        if (!legacyFile.exists()) {
+            return;
+        }
+        int imported = 0;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new FileInputStream(legacyFile), StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Transaction transaction = gson.fromJson(reader, Transaction.class);
+                if (transaction != null) {
+                    appendAndCompress(transaction);
+                    imported++;
+                }
+            }
+            reader.endArray();
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            if (imported == 0) {
+                // Nothing reached the log, so the next start can simply try again
+                throw new IOException("Unreadable " + legacyFile.getName(), e);
+            }
+            File partial = new File(legacyFile.getPath() + ".partial");
+            log.flush();
+            Files.move(legacyFile.toPath(), partial.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            plugin.getLogger().severe("Moved " + imported + " transactions from " + legacyFile.getName()
+                    + " to the transaction log before the file became unreadable; the transactions after them were"
+                    + " not imported. Renamed it to " + partial.getName() + " so they are not imported again: "
+                    + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        log.flush();
+        Files.move(legacyFile.toPath(), new File(legacyFile.getPath() + ".migrated").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        plugin.getLogger().info("Moved " + imported + " transactions from " + legacyFile.getName()
+                + " to the transaction log.");
+    }
+
+    /**
+     * Appends to the log, compressing the segment it closed, if any, in the
+     * background. Called with the write lock held.
+     */
+    private void appendAndCompress(Transaction transaction) throws IOException {
+        String closed = log.append(transaction);
+        if (closed != null && logSettings.compressSegments()) {
+            scheduleCompression(closed);
+        }
+    }
+
+    private void scheduleCompression(String segment) {
+        executor.execute(() -> {
+            try {
+                // Closed segments never change, so the copy is written without the lock
+                File compressed = log.compress(segment);
+                lock.writeLock().lock();
+                try {
+                    log.finishCompression(segment, compressed);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (IOException e) {
+                // Stays readable uncompressed; retried on the next start
+                plugin.getLogger().warning("Failed to compress transaction log segment " + segment + ": "
+                        + e.getMessage());
+            }
+        });
+    }
+
+    private boolean flushLog() {
+        try {
+            log.flush();
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to write transaction log: " + e.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public CompletableFuture<Void> logTransaction(Transaction transaction) {
         return CompletableFuture.runAsync(() -> {
+            SerializedItem snapshot = transaction.itemSnapshot();
+            Transaction stored = snapshot != null ? transaction.withItemSnapshot(blobs.retain(snapshot)) : transaction;
             lock.writeLock().lock();
             try {
-                transactions.add(transaction);
-                saveData();
+                appendAndCompress(stored);
+                writeBehind.changed();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to append to transaction log: " + e.getMessage());
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> logTransactions(List<Transaction> transactions) {
+        return CompletableFuture.runAsync(() -> {
+            List<Transaction> stored = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                SerializedItem snapshot = transaction.itemSnapshot();
+                stored.add(snapshot != null ? transaction.withItemSnapshot(blobs.retain(snapshot)) : transaction);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Transaction transaction : stored) {
+                    appendAndCompress(transaction);
+                }
+                // One change, so write-through mode flushes the whole batch at once
+                writeBehind.changed();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Failed to append to transaction log: " + e.getMessage());
+                throw new UncheckedIOException(e);
             } finally {
                 lock.writeLock().unlock();
             }
@@ -120,21 +238,45 @@ public class JsonTransactionStorage implements TransactionStorage {
     }
 
     @Override
-    public CompletableFuture<List<Transaction>> findTransactionsByPlayer(UUID playerId, int limit, int offset) {
+    public CompletableFuture<List<Transaction>> findTransactionsByPlayer(UUID playerId,
+            @Nullable TransactionCursor after, int limit) {
         return CompletableFuture.supplyAsync(() -> {
+            TransactionLog.Query query;
             lock.readLock().lock();
             try {
-                return transactions.stream()
-                    .filter(transaction -> 
-                        (transaction.actorUuid() != null && transaction.actorUuid().equals(playerId)) ||
-                        (transaction.sellerUuid() != null && transaction.sellerUuid().equals(playerId)))
-                    .sorted((t1, t2) -> Long.compare(t2.timestamp(), t1.timestamp())) // Sort by newest first
-                    .skip(offset)
-                    .limit(limit)
-                    .collect(Collectors.toList());
+                query = log.query(playerId, after, limit);
             } finally {
                 lock.readLock().unlock();
             }
-        }, executor);
+            // Older segments are read from disk without blocking writers
+            return query.run();
+        }, readExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Integer> countTransactionsByPlayer(UUID playerId) {
+        return CompletableFuture.supplyAsync(() -> {
+            lock.readLock().lock();
+            try {
+                return log.count(playerId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }, readExecutor);
+    }
+
+    @Override
+    public void countItemReferences(ObjIntConsumer<String> references) {
+        lock.readLock().lock();
+        try {
+            log.countItemReferences(references);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(writeBehind::flush, executor);
     }
 }
@@ -0,0 +1,590 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Append-only transaction log for {@link JsonTransactionStorage}, split into segments.
+ * <p>
+ * Transactions never change once logged, so each one is written as a single JSON line
+ * to the current segment, {@code transactions/transactions-<day>-<n>.log}; logging
+ * costs the same however long the history is. A new segment starts every day and
+ * whenever the current one reaches the configured size. Closed segments get a
+ * summary ({@code .idx}) of the time span they cover and how many transactions each
+ * player and each stored item has in them, and are optionally gzipped.
+ * <p>
+ * Only the summaries and the current segment are held in memory, plus each player's
+ * total so their history can be counted without reading it. A page of a player's
+ * history is served by walking the segments latest first, skipping those the player
+ * has no transactions in or that lie entirely before the page's cursor, so a query
+ * reads only the segments it returns transactions from.
+ * <p>
+ * Not thread-safe; the owning storage holds its write lock while appending or
+ * rotating and its read lock while planning a {@link Query}, which then reads the
+ * segment files without any lock. {@link #readAll} is public so other backends can
+ * import the log.
+ */
+public final class TransactionLog {
+
+    private static final String PREFIX = "transactions-";
+    private static final String SUFFIX = ".log";
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Newest first, ties broken by ID, as {@link TransactionCursor} expects.
+     */
+    private static final Comparator<Transaction> HISTORY_ORDER = Comparator
+            .comparingLong(Transaction::timestamp).reversed()
+            .thenComparing(Transaction::id);
+
+    /**
+     * What a closed segment's {@code .idx} file holds. The timestamps are null in
+     * summaries written before they were added, which are then rebuilt.
+     */
+    private record Summary(int entries, Long minTimestamp, Long maxTimestamp, Map<UUID, Integer> players,
+            Map<String, Integer> items) {
+    }
+
+    private static final class Segment {
+        final String name;
+        final LocalDate day;
+        final int sequence;
+        int entries;
+        long bytes;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        boolean compressed;
+        final Map<UUID, Integer> players = new HashMap<>();
+        final Map<String, Integer> items = new HashMap<>();
+
+        Segment(String name, LocalDate day, int sequence) {
+            this.name = name;
+            this.day = day;
+            this.sequence = sequence;
+        }
+
+        void add(Transaction transaction) {
+            entries++;
+            minTimestamp = Math.min(minTimestamp, transaction.timestamp());
+            maxTimestamp = Math.max(maxTimestamp, transaction.timestamp());
+            for (UUID player : players(transaction)) {
+                players.merge(player, 1, Integer::sum);
+            }
+            if (transaction.itemSnapshot() != null) {
+                items.merge(transaction.itemSnapshot().hash(), 1, Integer::sum);
+            }
+        }
+
+        void load(Summary summary) {
+            entries = summary.entries();
+            minTimestamp = summary.minTimestamp();
+            maxTimestamp = summary.maxTimestamp();
+            if (summary.players() != null) {
+                players.putAll(summary.players());
+            }
+            if (summary.items() != null) {
+                items.putAll(summary.items());
+            }
+        }
+
+        Summary summary() {
+            return new Summary(entries, minTimestamp, maxTimestamp, players, items);
+        }
+    }
+
+    private final File directory;
+    private final Gson gson;
+    private final Logger logger;
+    private final long maxSegmentBytes;
+
+    // Oldest first; the last one is being written to
+    private final List<Segment> closed = new ArrayList<>();
+    private Segment current;
+    private final List<Transaction> currentEntries = new ArrayList<>();
+    // Transactions per player over all segments, for counting a history without reading it
+    private final Map<UUID, Integer> playerTotals = new HashMap<>();
+    private Writer writer;
+    // The current segment ends in a torn line from a crash
+    private boolean needsNewline;
+
+    /**
+     * @param gson Writes single-line JSON; needs the storage's
+     *             {@link com.minekarta.playerauction.storage.SerializedItemAdapter}.
+     */
+    TransactionLog(File directory, long maxSegmentBytes, Gson gson, Logger logger) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.gson = gson;
+        this.logger = logger;
+    }
+
+    /**
+     * Loads the summaries of the closed segments and the current segment, and
+     * finishes anything a crash interrupted.
+     * @return The closed segments that are not compressed yet.
+     */
+    List<String> open() throws IOException {
+        directory.mkdirs();
+        closed.clear();
+        currentEntries.clear();
+        playerTotals.clear();
+        current = null;
+
+        List<String> uncompressed = new ArrayList<>();
+        List<String> names = segmentNames(directory);
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            Segment segment = parseName(name);
+            if (segment == null) {
+                continue;
+            }
+            File plain = new File(directory, name);
+            File gzipped = new File(directory, name + GZIP_SUFFIX);
+            if (plain.exists() && gzipped.exists()) {
+                // Compressed, but the original was not deleted yet; the .gz is only renamed into place once complete
+                Files.delete(plain.toPath());
+            }
+            segment.compressed = !plain.exists();
+
+            boolean last = i == names.size() - 1;
+            if (last && !segment.compressed) {
+                current = segment;
+                segment.bytes = plain.length();
+                needsNewline = endsWithTornLine(plain);
+                read(plain, false, gson, logger, transaction -> {
+                    segment.add(transaction);
+                    currentEntries.add(transaction);
+                });
+                continue;
+            }
+
+            Summary summary = readSummary(segment);
+            if (summary != null && summary.minTimestamp() != null && summary.maxTimestamp() != null) {
+                segment.load(summary);
+            } else {
+                // Summary lost or never written; rebuild it from the segment
+                read(plain.exists() ? plain : gzipped, segment.compressed, gson, logger, segment::add);
+                writeSummary(segment);
+            }
+            closed.add(segment);
+            if (!segment.compressed) {
+                uncompressed.add(segment.name);
+            }
+        }
+        for (Segment segment : closed) {
+            segment.players.forEach((player, count) -> playerTotals.merge(player, count, Integer::sum));
+        }
+        if (current != null) {
+            current.players.forEach((player, count) -> playerTotals.merge(player, count, Integer::sum));
+        }
+        return uncompressed;
+    }
+
+    /**
+     * Number of transactions in the log.
+     */
+    int size() {
+        int size = current != null ? current.entries : 0;
+        for (Segment segment : closed) {
+            size += segment.entries;
+        }
+        return size;
+    }
+
+    /**
+     * Appends a transaction, first closing the current segment if it is from an
+     * earlier day or full.
+     * @return The name of the segment that was closed, or null.
+     */
+    String append(Transaction transaction) throws IOException {
+        String line = gson.toJson(transaction);
+        String closedName = null;
+        LocalDate today = LocalDate.now();
+        if (current != null && (!current.day.equals(today) || current.bytes >= maxSegmentBytes)) {
+            closedName = rotate();
+        }
+        if (current == null) {
+            int sequence = nextSequence(today);
+            current = new Segment(segmentName(today, sequence), today, sequence);
+        }
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(new File(directory, current.name), true), StandardCharsets.UTF_8));
+            if (needsNewline) {
+                writer.write('\n');
+                needsNewline = false;
+            }
+        }
+        writer.write(line);
+        writer.write('\n');
+        current.bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        current.add(transaction);
+        currentEntries.add(transaction);
+        for (UUID player : players(transaction)) {
+            playerTotals.merge(player, 1, Integer::sum);
+        }
+        return closedName;
+    }
+
+    private int nextSequence(LocalDate day) {
+        int sequence = 0;
+        for (Segment segment : closed) {
+            if (segment.day.equals(day)) {
+                sequence = Math.max(sequence, segment.sequence);
+            }
+        }
+        if (current != null && current.day.equals(day)) {
+            sequence = Math.max(sequence, current.sequence);
+        }
+        return sequence + 1;
+    }
+
+    private String rotate() throws IOException {
+        close();
+        Segment segment = current;
+        writeSummary(segment);
+        closed.add(segment);
+        current = null;
+        currentEntries.clear();
+        return segment.name;
+    }
+
+    /**
+     * Pushes appended transactions to the file. Until then they only live in the
+     * writer's buffer, which lets write-behind mode batch many appends per write.
+     */
+    void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close transaction log: " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    /**
+     * Writes a gzipped copy of a closed segment next to it. Needs no lock, as closed
+     * segments never change; {@link #finishCompression} then swaps it in.
+     * @return The temporary file holding the copy.
+     */
+    File compress(String name) throws IOException {
+        File source = new File(directory, name);
+        File target = new File(directory, name + GZIP_SUFFIX + TEMP_SUFFIX);
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(target))) {
+            in.transferTo(out);
+        }
+        return target;
+    }
+
+    /**
+     * Replaces a closed segment with its compressed copy.
+     */
+    void finishCompression(String name, File compressed) throws IOException {
+        Files.move(compressed.toPath(), new File(directory, name + GZIP_SUFFIX).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (Segment segment : closed) {
+            if (segment.name.equals(name)) {
+                segment.compressed = true;
+            }
+        }
+        // A query that already opened it keeps reading; one that did not yet falls back to the .gz
+        Files.deleteIfExists(new File(directory, name).toPath());
+    }
+
+    /**
+     * Reports every item snapshot the log refers to, with its number of transactions.
+     */
+    void countItemReferences(ObjIntConsumer<String> references) {
+        for (Segment segment : closed) {
+            segment.items.forEach(references::accept);
+        }
+        if (current != null) {
+            current.items.forEach(references::accept);
+        }
+    }
+
+    /**
+     * Number of a player's transactions in the log.
+     */
+    int count(UUID playerId) {
+        return playerTotals.getOrDefault(playerId, 0);
+    }
+
+    /**
+     * Plans a query for a player's transactions after a cursor, newest first. Call
+     * with the storage's read lock held; run the query after releasing it.
+     */
+    Query query(UUID playerId, @Nullable TransactionCursor after, int limit) {
+        // The current segment is in memory
+        List<Transaction> recent = new ArrayList<>();
+        for (Transaction transaction : currentEntries) {
+            if (players(transaction).contains(playerId) && isAfter(transaction, after)) {
+                recent.add(transaction);
+            }
+        }
+
+        // Segments the player is in and that reach back past the cursor, latest first
+        List<Segment> candidates = new ArrayList<>();
+        for (Segment segment : closed) {
+            if (segment.players.getOrDefault(playerId, 0) > 0
+                    && (after == null || segment.minTimestamp <= after.timestamp())) {
+                candidates.add(segment);
+            }
+        }
+        candidates.sort(Comparator.comparingLong((Segment segment) -> segment.maxTimestamp).reversed());
+
+        List<Step> steps = new ArrayList<>(candidates.size());
+        for (Segment segment : candidates) {
+            steps.add(new Step(segment.name, segment.compressed, segment.maxTimestamp));
+        }
+        return new Query(playerId, after, limit, recent, steps);
+    }
+
+    /**
+     * Whether a transaction comes after a cursor in {@link #HISTORY_ORDER}.
+     */
+    private static boolean isAfter(Transaction transaction, @Nullable TransactionCursor cursor) {
+        if (cursor == null) {
+            return true;
+        }
+        if (transaction.timestamp() != cursor.timestamp()) {
+            return transaction.timestamp() < cursor.timestamp();
+        }
+        return transaction.id().compareTo(cursor.id()) > 0;
+    }
+
+    private record Step(String segment, boolean compressed, long maxTimestamp) {
+    }
+
+    /**
+     * A planned history query; {@link #run()} reads the segments it needs.
+     */
+    final class Query {
+        private final UUID playerId;
+        private final TransactionCursor after;
+        private final int limit;
+        private final List<Transaction> recent;
+        private final List<Step> steps;
+
+        private Query(UUID playerId, @Nullable TransactionCursor after, int limit, List<Transaction> recent,
+                List<Step> steps) {
+            this.playerId = playerId;
+            this.after = after;
+            this.limit = limit;
+            this.recent = recent;
+            this.steps = steps;
+        }
+
+        List<Transaction> run() {
+            List<Transaction> result = new ArrayList<>(recent);
+            trim(result);
+            String needle = playerId.toString();
+            for (Step step : steps) {
+                // Segments are walked latest first, so once one ends before the page does, the rest do too.
+                // Segments are normally in time order and this stops after one or two; imported history
+                // can overlap newer segments, which are then merged in.
+                if (result.size() >= limit && step.maxTimestamp() < result.get(result.size() - 1).timestamp()) {
+                    break;
+                }
+                readSegment(step.segment(), step.compressed(), needle, transaction -> {
+                    if (players(transaction).contains(playerId) && isAfter(transaction, after)) {
+                        result.add(transaction);
+                    }
+                });
+                trim(result);
+            }
+            return result;
+        }
+
+        private void trim(List<Transaction> result) {
+            result.sort(HISTORY_ORDER);
+            if (result.size() > limit) {
+                result.subList(limit, result.size()).clear();
+            }
+        }
+    }
+
+    private void readSegment(String name, boolean compressed, String needle, Consumer<Transaction> visitor) {
+        File plain = new File(directory, name);
+        File gzipped = new File(directory, name + GZIP_SUFFIX);
+        // Compressed since the query was planned
+        boolean useGzip = compressed || !plain.exists();
+        readLines(useGzip ? gzipped : plain, useGzip, needle, gson, logger, visitor);
+    }
+
+    /**
+     * Streams every transaction in a log directory, oldest segment first, without
+     * loading them into memory.
+     * @param gson Reads the transactions; needs a {@link com.minekarta.playerauction.storage.SerializedItemAdapter}.
+     * @return The number of transactions read.
+     */
+    public static int readAll(File directory, Gson gson, Logger logger, Consumer<Transaction> visitor) {
+        int read = 0;
+        for (String name : segmentNames(directory)) {
+            File plain = new File(directory, name);
+            boolean compressed = !plain.exists();
+            read += read(compressed ? new File(directory, name + GZIP_SUFFIX) : plain, compressed, gson, logger,
+                    visitor);
+        }
+        return read;
+    }
+
+    private static int read(File source, boolean gzipped, Gson gson, Logger logger, Consumer<Transaction> visitor) {
+        return readLines(source, gzipped, null, gson, logger, visitor);
+    }
+
+    /**
+     * @param needle If not null, lines not containing it are skipped without parsing.
+     */
+    private static int readLines(File source, boolean gzipped, String needle, Gson gson, Logger logger,
+            Consumer<Transaction> visitor) {
+        if (!source.exists()) {
+            return 0;
+        }
+        int read = 0;
+        try (InputStream file = new FileInputStream(source);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     gzipped ? new GZIPInputStream(file) : file, StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (needle != null && !line.contains(needle))) {
+                    continue;
+                }
+                Transaction transaction;
+                try {
+                    transaction = gson.fromJson(line, Transaction.class);
+                } catch (JsonParseException e) {
+                    // A torn line from a crash or failed append; the lines around it are intact
+                    logger.warning("Skipping unreadable line " + lineNumber + " in " + source.getName()
+                            + ": " + e.getMessage());
+                    continue;
+                }
+                if (transaction != null) {
+                    visitor.accept(transaction);
+                    read++;
+                }
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to read transaction log " + source.getName() + ": " + e.getMessage());
+        }
+        return read;
+    }
+
+    private Summary readSummary(Segment segment) {
+        File file = new File(directory, segment.name + INDEX_SUFFIX);
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, Summary.class);
+        } catch (IOException | JsonParseException e) {
+            logger.warning("Rebuilding unreadable index " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeSummary(Segment segment) {
+        File file = new File(directory, segment.name + INDEX_SUFFIX);
+        File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        try {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                gson.toJson(segment.summary(), out);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Rebuilt from the segment on the next start
+            logger.warning("Failed to write index " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean endsWithTornLine(File file) throws IOException {
+        if (file.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(file.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    /**
+     * The segment names in a directory (without {@code .gz}), oldest first.
+     */
+    private static List<String> segmentNames(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return List.of();
+        }
+        SortedSet<String> names = new TreeSet<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX + GZIP_SUFFIX)) {
+                name = name.substring(0, name.length() - GZIP_SUFFIX.length());
+            }
+            if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                names.add(name);
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static String segmentName(LocalDate day, int sequence) {
+        return String.format(Locale.ROOT, "%s%s-%03d%s", PREFIX, day, sequence, SUFFIX);
+    }
+
+    private Segment parseName(String name) {
+        // transactions-<yyyy-MM-dd>-<n>.log
+        try {
+            String body = name.substring(PREFIX.length(), name.length() - SUFFIX.length());
+            int dash = body.lastIndexOf('-');
+            return new Segment(name, LocalDate.parse(body.substring(0, dash)),
+                    Integer.parseInt(body.substring(dash + 1)));
+        } catch (RuntimeException e) {
+            logger.warning("Ignoring unexpected file in transaction log: " + name);
+            return null;
+        }
+    }
+
+    /**
+     * Everyone a transaction belongs to in history queries: the actor and the seller.
+     */
+    private static Set<UUID> players(Transaction transaction) {
+        if (transaction.actorUuid() == null) {
+            return transaction.sellerUuid() != null ? Set.of(transaction.sellerUuid()) : Set.of();
+        }
+        if (transaction.sellerUuid() == null || transaction.sellerUuid().equals(transaction.actorUuid())) {
+            return Set.of(transaction.actorUuid());
+        }
+        return Set.of(transaction.actorUuid(), transaction.sellerUuid());
+    }
+}
@@ -0,0 +1,34 @@
+package com.minekarta.playerauction.storage.json;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Segment settings of the JSON transaction log ({@code storage.json.transactions} in config.yml).
+ *
+ * @param maxSegmentBytes  Size after which the log starts a new segment, even within a day.
+ * @param compressSegments Whether closed segments are gzipped.
+ */
+public record TransactionLogSettings(long maxSegmentBytes, boolean compressSegments) {
+
+    private static final long MIN_SEGMENT_BYTES = 64 * 1024;
+
+    public static final TransactionLogSettings DEFAULTS = new TransactionLogSettings(4L * 1024 * 1024, true);
+
+    public TransactionLogSettings {
+        maxSegmentBytes = Math.max(MIN_SEGMENT_BYTES, maxSegmentBytes);
+    }
+
+    /**
+     * Reads the settings from the {@code storage.json.transactions} section, falling
+     * back to {@link #DEFAULTS} for anything missing.
+     */
+    public static TransactionLogSettings fromConfig(@Nullable ConfigurationSection section) {
+        if (section == null) {
+            return DEFAULTS;
+        }
+        long segmentSizeMb = section.getLong("segment-size-mb", DEFAULTS.maxSegmentBytes() / (1024 * 1024));
+        boolean compress = section.getBoolean("compress-closed-segments", DEFAULTS.compressSegments());
+        return new TransactionLogSettings(segmentSizeMb * 1024 * 1024, compress);
+    }
+}
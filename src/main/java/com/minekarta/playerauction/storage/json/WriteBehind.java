@@ -0,0 +1,85 @@
+package com.minekarta.playerauction.storage.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decides when a JSON storage writes its in-memory state to disk.
+ * <p>
+ * In {@link JsonStorageSettings.WriteMode#IMMEDIATE IMMEDIATE} mode every change is
+ * written straight away. In {@link JsonStorageSettings.WriteMode#WRITE_BEHIND WRITE_BEHIND}
+ * mode a change only marks the store dirty; a burst of changes is then coalesced into
+ * a single write, issued on the storage's own thread every flush interval or as soon as
+ * {@code max-pending-writes} changes have piled up, whichever comes first.
+ */
+public final class WriteBehind {
+
+    private final JsonStorageSettings settings;
+    private final Lock writeLock;
+    private final BooleanSupplier save;
+
+    // Guarded by the storage's write lock
+    private int pendingWrites;
+
+    /**
+     * @param settings  The durability settings.
+     * @param executor  The storage's single-threaded executor; periodic flushes run on it.
+     * @param writeLock The lock guarding the storage's in-memory state.
+     * @param save      Writes the in-memory state to disk and reports success; called with the write lock held.
+     */
+    public WriteBehind(JsonStorageSettings settings, ScheduledExecutorService executor, Lock writeLock,
+            BooleanSupplier save) {
+        this.settings = settings;
+        this.writeLock = writeLock;
+        this.save = save;
+
+        if (settings.writeBehind()) {
+            // Never throws: an exception would cancel the schedule
+            executor.scheduleWithFixedDelay(this::tryFlush,
+                    settings.flushIntervalMillis(), settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records a change to the in-memory state. Must be called with the write lock held.
+     */
+    public void changed() {
+        pendingWrites++;
+        if (!settings.writeBehind() || pendingWrites >= settings.maxPendingWrites()) {
+            saveNow();
+        }
+    }
+
+    /**
+     * Writes any pending changes to disk.
+     *
+     * @throws UncheckedIOException If the write failed; the changes stay pending.
+     */
+    public void flush() {
+        if (!tryFlush()) {
+            throw new UncheckedIOException(new IOException("Failed to write pending changes; they stay pending"));
+        }
+    }
+
+    private boolean tryFlush() {
+        writeLock.lock();
+        try {
+            return pendingWrites == 0 || saveNow();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean saveNow() {
+        // A failed write keeps the changes pending so the next flush retries them
+        if (save.getAsBoolean()) {
+            pendingWrites = 0;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,352 @@
+package com.minekarta.playerauction.storage.sqlite;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.storage.SerializedItemAdapter;
+import com.minekarta.playerauction.storage.json.AuctionJournal;
+import com.minekarta.playerauction.storage.json.JsonItemBlobStore;
+import com.minekarta.playerauction.storage.json.TransactionLog;
+import com.minekarta.playerauction.transaction.model.Transaction;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Copies the JSON storage files into the SQLite database while the server keeps running.
+ * <p>
+ * {@code auctions.json} and {@code transactions.json} are streamed record by record
+ * with a {@link JsonReader}, so the files never have to fit in memory, and written in
+ * batches of {@value #BATCH_SIZE} rows per transaction. The writer connection is only
+ * held for one batch at a time, so live writes interleave with the migration. Rows are
+ * inserted with {@code INSERT OR IGNORE}, so re-running is safe and anything written
+ * to SQLite in the meantime wins. The auction journal is replayed afterwards, and the
+ * segments of the {@code transactions/} log are read the same way, one line at a time.
+ * <p>
+ * The JSON item store ({@code items.blobs}) is copied separately and first, by
+ * {@link #migrateItems()}, since the JSON mailbox refers to it as well. Records
+ * from files written before the item store existed carry their items inline; those
+ * are added to {@code item_blobs} with the rows.
+ * <p>
+ * Migrated files and the log folder are renamed to {@code *.migrated} so they are not
+ * imported twice.
+ */
+public final class JsonToSQLiteMigrator {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String MIGRATED_SUFFIX = ".migrated";
+
+    /**
+     * Number of rows each source contributed.
+     */
+    public record Result(int auctions, int journalEntries, int transactions) {
+    }
+
+    @FunctionalInterface
+    private interface Binder<T> {
+        void bind(PreparedStatement ps, T value) throws SQLException;
+    }
+
+    private record StatusUpdate(UUID id, AuctionStatus status, int version) {
+    }
+
+    private final SQLiteConnectionPool pool;
+    private final Logger logger;
+    private final File auctionsFile;
+    private final File journalFile;
+    private final File transactionsFile;
+    private final File transactionLogDir;
+    private final File dataFolder;
+    private final File itemsFile;
+    private final Gson gson;
+
+    /**
+     * @param blobs Resolves the items records refer to, once {@link #migrateItems()} has copied them.
+     */
+    public JsonToSQLiteMigrator(SQLiteConnectionPool pool, SQLiteItemBlobStore blobs, File dataFolder,
+            Logger logger) {
+        this.pool = pool;
+        this.logger = logger;
+        this.auctionsFile = new File(dataFolder, "auctions.json");
+        this.journalFile = new File(dataFolder, "auctions.journal");
+        this.transactionsFile = new File(dataFolder, "transactions.json");
+        this.transactionLogDir = new File(dataFolder, "transactions");
+        this.dataFolder = dataFolder;
+        this.itemsFile = new File(dataFolder, "items.blobs");
+        // Inline items are left as they are and inserted by the binders
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(SerializedItem.class,
+                        new SerializedItemAdapter(blobs::resolve, item -> item, logger))
+                .create();
+    }
+
+    /**
+     * Copies the JSON item store into {@code item_blobs}, if there is one. Runs on the
+     * calling thread; call once the item store is initialized, before the storages
+     * load any record referring to it.
+     * @return The number of items copied.
+     */
+    public synchronized int migrateItems() throws IOException, SQLException {
+        if (!itemsFile.exists()) {
+            return 0;
+        }
+        Map<String, SerializedItem> items = JsonItemBlobStore.readAll(dataFolder, logger);
+        List<SerializedItem> batch = new ArrayList<>(BATCH_SIZE);
+        for (SerializedItem item : items.values()) {
+            batch.add(item);
+            if (batch.size() >= BATCH_SIZE) {
+                insertBatch(INSERT_ITEM, JsonToSQLiteMigrator::bindItem, batch);
+                batch.clear();
+            }
+        }
+        insertBatch(INSERT_ITEM, JsonToSQLiteMigrator::bindItem, batch);
+        markMigrated(itemsFile);
+        logger.info("Migrated " + items.size() + " items from " + itemsFile.getName() + " to SQLite.");
+        return items.size();
+    }
+
+    private static void bindItem(PreparedStatement ps, SerializedItem item) throws SQLException {
+        ps.setString(1, item.hash());
+        ps.setBytes(2, item.toBytes());
+    }
+
+    private static void bindAuction(PreparedStatement ps, Auction auction) throws SQLException {
+        SQLiteItemBlobStore.insert(ps.getConnection(), auction.item());
+        SQLiteAuctionStorage.bindInsert(ps, auction);
+    }
+
+    private static void bindTransaction(PreparedStatement ps, Transaction transaction) throws SQLException {
+        if (transaction.itemSnapshot() != null) {
+            SQLiteItemBlobStore.insert(ps.getConnection(), transaction.itemSnapshot());
+        }
+        SQLiteTransactionStorage.bindInsert(ps, transaction);
+    }
+
+    /**
+     * Whether there are JSON files that have not been migrated yet.
+     */
+    public boolean hasPendingData() {
+        return auctionsFile.exists() || journalFile.exists() || compactingJournal().exists()
+                || transactionsFile.exists() || transactionLogDir.isDirectory() || itemsFile.exists();
+    }
+
+    /**
+     * Runs the migration on the calling thread.
+     */
+    public synchronized Result migrate() throws IOException, SQLException {
+        // Normally done at startup already
+        migrateItems();
+        int auctions = copyArray(auctionsFile, Auction.class, SQLiteAuctionStorage.INSERT_AUCTION_IF_ABSENT,
+                JsonToSQLiteMigrator::bindAuction);
+        int journalEntries = replayJournal();
+        markMigrated(auctionsFile);
+        markMigrated(compactingJournal());
+        markMigrated(journalFile);
+
+        int transactions = copyArray(transactionsFile, Transaction.class,
+                SQLiteTransactionStorage.INSERT_TRANSACTION_IF_ABSENT, JsonToSQLiteMigrator::bindTransaction);
+        markMigrated(transactionsFile);
+        transactions += copyTransactionLog();
+        markMigrated(transactionLogDir);
+
+        return new Result(auctions, journalEntries, transactions);
+    }
+
+    private <T> int copyArray(File source, Class<T> type, String sql, Binder<T> binder)
+            throws IOException, SQLException {
+        if (!source.exists()) {
+            return 0;
+        }
+
+        int copied = 0;
+        try (JsonReader reader = new JsonReader(
+                new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8)))) {
+            if (reader.peek() == JsonToken.NULL) {
+                return 0;
+            }
+            List<T> batch = new ArrayList<>(BATCH_SIZE);
+            reader.beginArray();
+            while (reader.hasNext()) {
+                T value = gson.fromJson(reader, type);
+                if (value != null) {
+                    batch.add(value);
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    copied += insertBatch(sql, binder, batch);
+                    batch.clear();
+                }
+            }
+            reader.endArray();
+            copied += insertBatch(sql, binder, batch);
+        }
+        logger.info("Migrated " + copied + " rows from " + source.getName() + " to SQLite.");
+        return copied;
+    }
+
+    private int copyTransactionLog() throws SQLException {
+        if (!transactionLogDir.isDirectory()) {
+            return 0;
+        }
+
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        int[] copied = {0};
+        try {
+            TransactionLog.readAll(transactionLogDir, gson, logger, transaction -> {
+                batch.add(transaction);
+                if (batch.size() >= BATCH_SIZE) {
+                    copied[0] += insertTransactions(batch);
+                    batch.clear();
+                }
+            });
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+        copied[0] += insertBatch(SQLiteTransactionStorage.INSERT_TRANSACTION_IF_ABSENT,
+                JsonToSQLiteMigrator::bindTransaction, batch);
+        logger.info("Migrated " + copied[0] + " rows from " + transactionLogDir.getName() + "/ to SQLite.");
+        return copied[0];
+    }
+
+    private int insertTransactions(List<Transaction> batch) {
+        try {
+            return insertBatch(SQLiteTransactionStorage.INSERT_TRANSACTION_IF_ABSENT,
+                    JsonToSQLiteMigrator::bindTransaction, batch);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Carries a {@link SQLException} out of the log reader's callback.
+     */
+    private static final class UncheckedSQLException extends RuntimeException {
+        UncheckedSQLException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    private <T> int insertBatch(String sql, Binder<T> binder, List<T> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = pool.writer(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (T value : batch) {
+                binder.bind(ps, value);
+                ps.addBatch();
+            }
+            int inserted = 0;
+            for (int count : ps.executeBatch()) {
+                if (count > 0) {
+                    inserted += count;
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            return inserted;
+        }
+    }
+
+    private int replayJournal() throws SQLException {
+        // Entries are buffered so each batch commits in one transaction, in journal order
+        List<Object> pending = new ArrayList<>(BATCH_SIZE);
+        int[] applied = {0};
+        SQLException[] failure = {null};
+
+        AuctionJournal.readAll(journalFile, gson, logger, new AuctionJournal.Visitor() {
+            @Override
+            public boolean insert(Auction auction) {
+                return buffer(auction);
+            }
+
+            @Override
+            public boolean update(UUID id, AuctionStatus status, int version) {
+                return buffer(new StatusUpdate(id, status, version));
+            }
+
+            private boolean buffer(Object entry) {
+                if (failure[0] != null) {
+                    return false;
+                }
+                pending.add(entry);
+                if (pending.size() >= BATCH_SIZE) {
+                    try {
+                        applied[0] += applyJournalBatch(pending);
+                    } catch (SQLException e) {
+                        failure[0] = e;
+                    }
+                    pending.clear();
+                }
+                return true;
+            }
+        });
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        applied[0] += applyJournalBatch(pending);
+        if (applied[0] > 0) {
+            logger.info("Replayed " + applied[0] + " auction journal entries into SQLite.");
+        }
+        return applied[0];
+    }
+
+    private int applyJournalBatch(List<Object> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = pool.writer();
+                PreparedStatement insert = conn.prepareStatement(SQLiteAuctionStorage.INSERT_AUCTION_IF_ABSENT);
+                PreparedStatement update = conn.prepareStatement(SQLiteAuctionStorage.APPLY_STATUS_IF_NOT_NEWER)) {
+            conn.setAutoCommit(false);
+            int applied = 0;
+            for (Object entry : entries) {
+                if (entry instanceof Auction auction) {
+                    bindAuction(insert, auction);
+                    applied += insert.executeUpdate();
+                } else if (entry instanceof StatusUpdate statusUpdate) {
+                    update.setString(1, statusUpdate.status().name());
+                    update.setInt(2, statusUpdate.version());
+                    update.setString(3, statusUpdate.id().toString());
+                    update.setInt(4, statusUpdate.version());
+                    applied += update.executeUpdate();
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            return applied;
+        }
+    }
+
+    private static final String INSERT_ITEM = "INSERT OR IGNORE INTO item_blobs (hash, data) VALUES (?, ?);";
+
+    private File compactingJournal() {
+        return new File(journalFile.getPath() + ".compacting");
+    }
+
+    private void markMigrated(File file) throws IOException {
+        if (file.exists()) {
+            Files.move(file.toPath(), new File(file.getPath() + MIGRATED_SUFFIX).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
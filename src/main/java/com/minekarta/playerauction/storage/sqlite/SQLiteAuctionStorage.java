@@ -1,55 +1,46 @@
 package com.minekarta.playerauction.storage.sqlite;
 
 import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
 import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.ItemMetadata;
+import com.minekarta.playerauction.common.SearchTokens;
 import com.minekarta.playerauction.common.SerializedItem;
 import com.minekarta.playerauction.gui.model.AuctionCategory;
 import com.minekarta.playerauction.gui.model.SortOrder;
 import com.minekarta.playerauction.storage.AuctionStorage;
-import org.bukkit.Material;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Executor;
-import java.util.stream.Collectors;
+import java.util.function.ObjIntConsumer;
 
 public class SQLiteAuctionStorage implements AuctionStorage {
 
     private final JavaPlugin plugin;
-    private final Executor executor;
-    private final String databasePath;
+    private final SQLiteConnectionPool pool;
+    private final SQLiteItemBlobStore blobs;
 
-    public SQLiteAuctionStorage(JavaPlugin plugin) {
+    public SQLiteAuctionStorage(JavaPlugin plugin, SQLiteConnectionPool pool, SQLiteItemBlobStore blobs) {
         this.plugin = plugin;
-        this.executor = Executors.newSingleThreadExecutor();
-        this.databasePath = plugin.getDataFolder().getAbsolutePath() + "/auctions.db";
-        createDatabaseDirectory();
-    }
-
-    private void createDatabaseDirectory() {
-        java.io.File dataFolder = plugin.getDataFolder();
-        if (!dataFolder.exists()) {
-            dataFolder.mkdirs();
-        }
-    }
-
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+        this.pool = pool;
+        this.blobs = blobs;
     }
 
     @Override
     public void init() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
-            stmt.execute("PRAGMA foreign_keys = ON");
-            stmt.execute(CREATE_AUCTIONS_TABLE);
-            stmt.execute(CREATE_AUCTIONS_INDEX);
+        try (Connection conn = pool.writer()) {
+            SchemaMigrator.migrate(conn, "auctions", migrations, plugin.getLogger());
+            rebuildSearchIndex(conn);
             plugin.getLogger().info("SQLite auctions table initialized successfully.");
         } catch (SQLException e) {
             plugin.getLogger().severe("Failed to initialize SQLite auction storage.");
@@ -57,10 +48,28 @@ public class SQLiteAuctionStorage implements AuctionStorage {
         }
     }
 
+    /**
+     * Refills the search index from the active auctions. The index is keyed by the
+     * auctions table's rowid, which SQLite may renumber on VACUUM (the table has no
+     * INTEGER PRIMARY KEY), so it is rebuilt on every start rather than trusted.
+     * It only holds active auctions, so this is cheap.
+     */
+    private void rebuildSearchIndex(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM auctions_fts");
+            stmt.execute("INSERT INTO auctions_fts (rowid, search_text) "
+                    + "SELECT rowid, search_text FROM auctions WHERE status = 'ACTIVE'");
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
     @Override
     public CompletableFuture<Optional<Auction>> findById(UUID id) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(FIND_BY_ID)) {
                 ps.setString(1, id.toString());
                 try (ResultSet rs = ps.executeQuery()) {
@@ -72,7 +81,7 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return Optional.empty();
-        }, executor);
+        }, pool.readExecutor());
     }
 
     @Override
@@ -81,37 +90,18 @@ public class SQLiteAuctionStorage implements AuctionStorage {
         return CompletableFuture.supplyAsync(() -> {
             List<Auction> auctions = new ArrayList<>();
 
-            StringBuilder sql = new StringBuilder("SELECT * FROM auctions WHERE status = 'ACTIVE'");
+            StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM auctions WHERE status = 'ACTIVE'");
             List<Object> params = new ArrayList<>();
 
-            // Add category filter if specified
-            if (category != AuctionCategory.ALL) {
-                sql.append(" AND item_type = ?");
-                params.add(category.name());
-            }
-
-            // Add sorting
-            sql.append(" ORDER BY ");
-            switch (sortOrder) {
-                case PRICE_ASC:
-                    sql.append("price ASC");
-                    break;
-                case PRICE_DESC:
-                    sql.append("price DESC");
-                    break;
-                case NEWEST:
-                    sql.append("created_at DESC");
-                    break;
-                default: // TIME_LEFT
-                    sql.append("end_at ASC");
-            }
+            appendCategoryFilter(sql, params, category);
+            appendOrderBy(sql, sortOrder);
 
             // Add pagination
             sql.append(" LIMIT ? OFFSET ?");
             params.add(limit);
             params.add(offset);
 
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(sql.toString())) {
 
                 for (int i = 0; i < params.size(); i++) {
@@ -127,7 +117,7 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return auctions;
-        }, executor);
+        }, pool.readExecutor());
     }
 
     @Override
@@ -136,11 +126,97 @@ public class SQLiteAuctionStorage implements AuctionStorage {
         return findActive(limit, (page - 1) * limit, category, sortOrder);
     }
 
+    @Override
+    public CompletableFuture<List<Auction>> findActiveAfter(@Nullable AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder) {
+        return CompletableFuture.supplyAsync(() -> queryActiveAfter(null, after, limit, category, sortOrder),
+                pool.readExecutor());
+    }
+
+    @Override
+    public CompletableFuture<List<Auction>> searchActiveAfter(String query, @Nullable AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder) {
+        String match = toMatchExpression(query);
+        if (match == null) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return CompletableFuture.supplyAsync(() -> queryActiveAfter(match, after, limit, category, sortOrder),
+                pool.readExecutor());
+    }
+
+    /**
+     * Keyset query shared by browsing and searching.
+     * @param match An FTS5 match expression to restrict results to, or null for all auctions.
+     */
+    private List<Auction> queryActiveAfter(@Nullable String match, @Nullable AuctionCursor after, int limit,
+            AuctionCategory category, SortOrder sortOrder) {
+        List<Auction> auctions = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM auctions WHERE status = 'ACTIVE'");
+        List<Object> params = new ArrayList<>();
+        appendSearchFilter(sql, params, match);
+        appendCategoryFilter(sql, params, category);
+
+        // Seek past the cursor on (sort key, auction_id) instead of counting rows with OFFSET
+        if (after != null) {
+            String column;
+            Object key;
+            String comparison;
+            switch (sortOrder) {
+                case PRICE_ASC:
+                    column = "price";
+                    key = after.price();
+                    comparison = ">";
+                    break;
+                case PRICE_DESC:
+                    column = "price";
+                    key = after.price();
+                    comparison = "<";
+                    break;
+                case NEWEST:
+                    column = "created_at";
+                    key = after.createdAt();
+                    comparison = "<";
+                    break;
+                default: // TIME_LEFT
+                    column = "end_at";
+                    key = after.endAt();
+                    comparison = ">";
+            }
+            sql.append(" AND (").append(column).append(' ').append(comparison).append(" ? OR (")
+                    .append(column).append(" = ? AND auction_id > ?))");
+            params.add(key);
+            params.add(key);
+            params.add(after.id().toString());
+        }
+
+        appendOrderBy(sql, sortOrder);
+        sql.append(" LIMIT ?");
+        params.add(limit);
+
+        try (Connection conn = pool.reader();
+                PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    auctions.add(mapRowToAuction(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return auctions;
+    }
+
     @Override
     public CompletableFuture<List<Auction>> findBySeller(UUID seller, int limit, int offset) {
         return CompletableFuture.supplyAsync(() -> {
             List<Auction> auctions = new ArrayList<>();
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(FIND_BY_SELLER)) {
                 ps.setString(1, seller.toString());
                 ps.setInt(2, limit);
@@ -154,14 +230,14 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return auctions;
-        }, executor);
+        }, pool.readExecutor());
     }
 
     @Override
     public CompletableFuture<List<Auction>> findPlayerHistory(UUID playerId, int page, int limit) {
         return CompletableFuture.supplyAsync(() -> {
             List<Auction> auctions = new ArrayList<>();
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(FIND_PLAYER_HISTORY)) {
                 ps.setString(1, playerId.toString());
                 ps.setInt(2, limit);
@@ -175,13 +251,30 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return auctions;
-        }, executor);
+        }, pool.readExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Set<UUID>> findActiveSellers() {
+        return CompletableFuture.supplyAsync(() -> {
+            Set<UUID> sellers = new HashSet<>();
+            try (Connection conn = pool.reader();
+                    PreparedStatement ps = conn.prepareStatement(FIND_ACTIVE_SELLERS);
+                    ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sellers.add(UUID.fromString(rs.getString(1)));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return sellers;
+        }, pool.readExecutor());
     }
 
     @Override
     public CompletableFuture<Integer> countActiveBySeller(UUID sellerId) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(COUNT_ACTIVE_BY_SELLER)) {
                 ps.setString(1, sellerId.toString());
                 try (ResultSet rs = ps.executeQuery()) {
@@ -193,7 +286,7 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return 0;
-        }, executor);
+        }, pool.readExecutor());
     }
 
     @Override
@@ -204,7 +297,7 @@ public class SQLiteAuctionStorage implements AuctionStorage {
     @Override
     public CompletableFuture<Integer> countAllActiveAuctions() {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(COUNT_ALL_ACTIVE)) {
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
@@ -215,7 +308,7 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return 0;
-        }, executor);
+        }, pool.readExecutor());
     }
 
     @Override
@@ -225,19 +318,17 @@ public class SQLiteAuctionStorage implements AuctionStorage {
             StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM auctions WHERE status = 'ACTIVE'");
             List<Object> params = new ArrayList<>();
 
-            if (category != AuctionCategory.ALL) {
-                sql.append(" AND item_type = ?");
-                params.add(category.name());
-            }
+            appendCategoryFilter(sql, params, category);
 
             if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-                sql.append(" AND (LOWER(item_type) LIKE ? OR LOWER(item_name) LIKE ?)");
-                String likeQuery = "%" + searchQuery.trim().toLowerCase() + "%";
-                params.add(likeQuery);
-                params.add(likeQuery);
+                String match = toMatchExpression(searchQuery);
+                if (match == null) {
+                    return 0;
+                }
+                appendSearchFilter(sql, params, match);
             }
 
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(sql.toString())) {
 
                 for (int i = 0; i < params.size(); i++) {
@@ -253,40 +344,26 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return 0;
-        }, executor);
+        }, pool.readExecutor());
     }
 
     @Override
     public CompletableFuture<Void> insertAuction(Auction a) {
         return CompletableFuture.runAsync(() -> {
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.writer();
                     PreparedStatement ps = conn.prepareStatement(INSERT_AUCTION)) {
-                ps.setString(1, a.id().toString());
-                ps.setString(2, a.seller().toString());
-                ps.setString(3, a.item().getBase64());
-                ps.setString(4, a.item().toItemStack().getType().name());
-                ps.setString(5,
-                        a.item().toItemStack().hasItemMeta() && a.item().toItemStack().getItemMeta().hasDisplayName()
-                                ? a.item().toItemStack().getItemMeta().getDisplayName()
-                                : null);
-                ps.setDouble(6, a.price());
-                setNullableDouble(ps, 7, a.buyNowPrice());
-                setNullableDouble(ps, 8, a.reservePrice());
-                ps.setLong(9, a.createdAt());
-                ps.setLong(10, a.endAt());
-                ps.setString(11, a.status().name());
-                ps.setInt(12, a.version());
+                bindInsert(ps, a.withItem(blobs.retain(conn, a.item())));
                 ps.executeUpdate();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
-        }, executor);
+        }, pool.writeExecutor());
     }
 
     @Override
     public CompletableFuture<Boolean> updateAuctionIfVersionMatches(Auction a, int expectedVersion) {
         return CompletableFuture.supplyAsync(() -> {
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.writer();
                     PreparedStatement ps = conn.prepareStatement(UPDATE_AUCTION_VERSIONED)) {
                 ps.setString(1, a.status().name());
                 ps.setInt(2, a.version());
@@ -298,14 +375,76 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
                 return false;
             }
-        }, executor);
+        }, pool.writeExecutor());
+    }
+
+    @Override
+    public CompletableFuture<List<Auction>> expireAll(Collection<UUID> ids, long nowEpochMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Auction> expired = new ArrayList<>();
+            if (ids.isEmpty()) {
+                return expired;
+            }
+            try (Connection conn = pool.writer()) {
+                conn.setAutoCommit(false);
+                try {
+                    // Read and updated in the same transaction on the only writer, so nothing
+                    // can change in between; the version check is kept as a safeguard anyway
+                    List<Auction> due = new ArrayList<>();
+                    List<UUID> idList = new ArrayList<>(ids);
+                    for (int start = 0; start < idList.size(); start += EXPIRE_CHUNK_SIZE) {
+                        List<UUID> chunk = idList.subList(start, Math.min(idList.size(), start + EXPIRE_CHUNK_SIZE));
+                        String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                        try (PreparedStatement ps = conn.prepareStatement(
+                                "SELECT " + COLUMNS + " FROM auctions WHERE status = 'ACTIVE' AND end_at <= ? AND auction_id IN ("
+                                        + placeholders + ")")) {
+                            ps.setLong(1, nowEpochMillis);
+                            for (int i = 0; i < chunk.size(); i++) {
+                                ps.setString(i + 2, chunk.get(i).toString());
+                            }
+                            try (ResultSet rs = ps.executeQuery()) {
+                                while (rs.next()) {
+                                    due.add(mapRowToAuction(rs));
+                                }
+                            }
+                        }
+                    }
+
+                    try (PreparedStatement ps = conn.prepareStatement(UPDATE_AUCTION_VERSIONED)) {
+                        for (Auction auction : due) {
+                            ps.setString(1, AuctionStatus.EXPIRED.name());
+                            ps.setInt(2, auction.version() + 1);
+                            ps.setString(3, auction.id().toString());
+                            ps.setInt(4, auction.version());
+                            ps.addBatch();
+                        }
+                        int[] counts = ps.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] > 0) {
+                                expired.add(due.get(i).withStatus(AuctionStatus.EXPIRED).withIncrementedVersion());
+                            }
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    expired.clear();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return expired;
+        }, pool.writeExecutor());
     }
 
     @Override
     public CompletableFuture<List<Auction>> findExpiredUpTo(long nowEpochMillis, int batchSize) {
         return CompletableFuture.supplyAsync(() -> {
             List<Auction> auctions = new ArrayList<>();
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.reader();
                     PreparedStatement ps = conn.prepareStatement(FIND_EXPIRED)) {
                 ps.setLong(1, nowEpochMillis);
                 ps.setInt(2, batchSize);
@@ -318,14 +457,85 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 e.printStackTrace();
             }
             return auctions;
-        }, executor);
+        }, pool.readExecutor());
+    }
+
+    @Override
+    public void countItemReferences(ObjIntConsumer<String> references) {
+        try (Connection conn = pool.reader();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(COUNT_ITEM_REFERENCES)) {
+            while (rs.next()) {
+                references.accept(rs.getString(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void appendSearchFilter(StringBuilder sql, List<Object> params, @Nullable String match) {
+        if (match != null) {
+            sql.append(" AND rowid IN (SELECT rowid FROM auctions_fts WHERE auctions_fts MATCH ?)");
+            params.add(match);
+        }
+    }
+
+    /**
+     * Turns a search query into an FTS5 expression requiring every word as a prefix,
+     * e.g. {@code dia sword} becomes {@code "dia"* "sword"*}. Returns null when the
+     * query has no words. Tokens are letters and digits only, so quoting is safe.
+     */
+    @Nullable
+    private static String toMatchExpression(String query) {
+        List<String> tokens = SearchTokens.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String token : tokens) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(token).append("\"*");
+        }
+        return match.toString();
+    }
+
+    private void appendCategoryFilter(StringBuilder sql, List<Object> params, AuctionCategory category) {
+        if (category != AuctionCategory.ALL) {
+            sql.append(" AND category = ?");
+            params.add(category.name());
+        }
+    }
+
+    /**
+     * Appends the ORDER BY for a sort order. The auction ID breaks ties so the
+     * order is total, which keyset pagination relies on.
+     */
+    private void appendOrderBy(StringBuilder sql, SortOrder sortOrder) {
+        sql.append(" ORDER BY ");
+        switch (sortOrder) {
+            case PRICE_ASC:
+                sql.append("price ASC");
+                break;
+            case PRICE_DESC:
+                sql.append("price DESC");
+                break;
+            case NEWEST:
+                sql.append("created_at DESC");
+                break;
+            default: // TIME_LEFT
+                sql.append("end_at ASC");
+        }
+        sql.append(", auction_id ASC");
     }
 
     private Auction mapRowToAuction(ResultSet rs) throws SQLException {
         return new Auction(
                 UUID.fromString(rs.getString("auction_id")),
                 UUID.fromString(rs.getString("seller_uuid")),
-                SerializedItem.fromBase64(rs.getString("item_base64")),
+                readItem(rs),
+                null, // Metadata is decoded lazily via Auction#itemMetadata()
                 rs.getDouble("price"),
                 (Double) rs.getObject("buy_now_price"),
                 (Double) rs.getObject("reserve_price"),
@@ -335,7 +545,40 @@ public class SQLiteAuctionStorage implements AuctionStorage {
                 rs.getInt("version"));
     }
 
-    private void setNullableDouble(PreparedStatement ps, int index, @Nullable Double value) throws SQLException {
+    private SerializedItem readItem(ResultSet rs) throws SQLException {
+        String hash = rs.getString("item_hash");
+        if (hash == null) {
+            // Only rows from before schema version 4, which moves them all
+            return SerializedItem.fromBase64(rs.getString("item_base64"));
+        }
+        return blobs.fromRow(hash, rs.getBytes("item_blob"));
+    }
+
+    /**
+     * Binds all columns of {@link #INSERT_AUCTION} / {@link #INSERT_AUCTION_IF_ABSENT}.
+     * The item must already be in the item store.
+     */
+    static void bindInsert(PreparedStatement ps, Auction a) throws SQLException {
+        ItemMetadata metadata = a.itemMetadata();
+        ps.setString(1, a.id().toString());
+        ps.setString(2, a.seller().toString());
+        // Kept for the NOT NULL constraint; the item is in item_blobs
+        ps.setString(3, "");
+        ps.setString(4, metadata.material());
+        setNullableString(ps, 5, metadata.displayName());
+        ps.setDouble(6, a.price());
+        setNullableDouble(ps, 7, a.buyNowPrice());
+        setNullableDouble(ps, 8, a.reservePrice());
+        ps.setLong(9, a.createdAt());
+        ps.setLong(10, a.endAt());
+        ps.setString(11, a.status().name());
+        ps.setInt(12, a.version());
+        ps.setString(13, metadata.category().name());
+        ps.setString(14, metadata.searchKey());
+        ps.setString(15, a.item().hash());
+    }
+
+    private static void setNullableDouble(PreparedStatement ps, int index, @Nullable Double value) throws SQLException {
         if (value != null) {
             ps.setDouble(index, value);
         } else {
@@ -343,7 +586,7 @@ public class SQLiteAuctionStorage implements AuctionStorage {
         }
     }
 
-    private void setNullableString(PreparedStatement ps, int index, @Nullable String value) throws SQLException {
+    private static void setNullableString(PreparedStatement ps, int index, @Nullable String value) throws SQLException {
         if (value != null) {
             ps.setString(index, value);
         } else {
@@ -370,12 +613,167 @@ public class SQLiteAuctionStorage implements AuctionStorage {
 
     private static final String CREATE_AUCTIONS_INDEX = "CREATE INDEX IF NOT EXISTS idx_auctions_active ON auctions (status, end_at);";
 
-    private static final String INSERT_AUCTION = "INSERT INTO auctions (auction_id, seller_uuid, item_base64, item_type, item_name, price, buy_now_price, reserve_price, created_at, end_at, status, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    /**
+     * Version 2: a category column matching {@link AuctionCategory} (the old code
+     * compared category names against the material), and indexes that serve every
+     * browse, seller and expiry query without a full scan or temp B-tree sort.
+     * The browse indexes are partial (active auctions only), so finished history
+     * does not make them bigger or slow down writes to it.
+     */
+    private static void addCategoryAndIndexes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE auctions ADD COLUMN category TEXT NOT NULL DEFAULT 'MISC'");
+        }
+
+        // Backfill from the material name, one update per distinct material
+        List<String> materials = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT DISTINCT item_type FROM auctions")) {
+            while (rs.next()) {
+                materials.add(rs.getString(1));
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE auctions SET category = ? WHERE item_type = ?")) {
+            for (String material : materials) {
+                ps.setString(1, AuctionCategory.getCategoryForItemType(material).name());
+                ps.setString(2, material);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String index : INDEXES_V2) {
+                stmt.execute(index);
+            }
+            // Superseded by idx_auctions_active_end
+            stmt.execute("DROP INDEX IF EXISTS idx_auctions_active");
+        }
+    }
+
+    // Each browse index ends in auction_id to match the ORDER BY tie-breaker used for keyset pagination
+    private static final String[] INDEXES_V2 = {
+            "CREATE INDEX IF NOT EXISTS idx_auctions_active_end ON auctions (end_at, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_active_price ON auctions (price, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_active_price_desc ON auctions (price DESC, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_active_newest ON auctions (created_at DESC, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_category_end ON auctions (category, end_at, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_category_price ON auctions (category, price, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_category_price_desc ON auctions (category, price DESC, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_category_newest ON auctions (category, created_at DESC, auction_id) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_seller ON auctions (seller_uuid, created_at DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_auctions_seller_active ON auctions (seller_uuid) WHERE status = 'ACTIVE'"
+    };
+
+    /**
+     * Version 3: full-text search. {@code search_text} holds the item's search words
+     * (material, display name, lore, enchantments; see {@link ItemMetadata#searchKey()})
+     * and an FTS5 table indexes it for active auctions only, kept in step by triggers
+     * so every writer (including the JSON migrator) maintains it. Rows stored before
+     * this version are backfilled from the material and display name.
+     */
+    private static void addSearchIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE auctions ADD COLUMN search_text TEXT NOT NULL DEFAULT ''");
+            stmt.execute("UPDATE auctions SET search_text = LOWER(item_type || COALESCE(char(10) || item_name, ''))");
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS auctions_fts USING fts5("
+                    + "search_text, tokenize = 'unicode61 remove_diacritics 0')");
+            stmt.execute("""
+                    CREATE TRIGGER IF NOT EXISTS auctions_fts_insert AFTER INSERT ON auctions
+                    WHEN new.status = 'ACTIVE' BEGIN
+                      INSERT INTO auctions_fts (rowid, search_text) VALUES (new.rowid, new.search_text);
+                    END""");
+            stmt.execute("""
+                    CREATE TRIGGER IF NOT EXISTS auctions_fts_status AFTER UPDATE OF status ON auctions
+                    WHEN (old.status = 'ACTIVE') <> (new.status = 'ACTIVE') BEGIN
+                      DELETE FROM auctions_fts WHERE rowid = old.rowid;
+                      INSERT INTO auctions_fts (rowid, search_text)
+                        SELECT new.rowid, new.search_text WHERE new.status = 'ACTIVE';
+                    END""");
+            stmt.execute("""
+                    CREATE TRIGGER IF NOT EXISTS auctions_fts_delete AFTER DELETE ON auctions
+                    WHEN old.status = 'ACTIVE' BEGIN
+                      DELETE FROM auctions_fts WHERE rowid = old.rowid;
+                    END""");
+        }
+    }
+
+    /**
+     * Version 4: items move to the shared {@code item_blobs} table (see
+     * {@link SQLiteItemBlobStore}) and rows refer to them by {@code item_hash}.
+     * {@code item_base64} is emptied rather than dropped, which SQLite can only do by
+     * rebuilding the table.
+     */
+    private void moveItemsToBlobStore(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE auctions ADD COLUMN item_hash TEXT NULL");
+        }
+        moveItems(conn, "SELECT auction_id, item_base64 FROM auctions WHERE item_hash IS NULL LIMIT ?",
+                "UPDATE auctions SET item_hash = ?, item_base64 = '' WHERE auction_id = ?");
+    }
+
+    /**
+     * Moves the Base64 items selected by {@code selectSql} (key, item; taking a limit)
+     * into {@code item_blobs} and points their rows at them with {@code updateSql}
+     * (hash, key), a batch at a time until none are left. Runs inside a migration's
+     * transaction, so nothing is recorded as stored until it commits.
+     */
+    static void moveItems(Connection conn, String selectSql, String updateSql) throws SQLException {
+        try (PreparedStatement select = conn.prepareStatement(selectSql);
+                PreparedStatement update = conn.prepareStatement(updateSql)) {
+            while (true) {
+                List<String[]> batch = new ArrayList<>();
+                select.setInt(1, MOVE_BATCH_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        batch.add(new String[] {rs.getString(1), rs.getString(2)});
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                for (String[] row : batch) {
+                    SerializedItem item = SerializedItem.fromBase64(row[1]);
+                    SQLiteItemBlobStore.insert(conn, item);
+                    update.setString(1, item.hash());
+                    update.setString(2, row[0]);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+        }
+    }
+
+    private static final int MOVE_BATCH_SIZE = 500;
+
+    private final List<SchemaMigrator.Migration> migrations = List.of(
+            // Version 1: the original schema (a no-op for databases created before versioning)
+            conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_AUCTIONS_TABLE);
+                    stmt.execute(CREATE_AUCTIONS_INDEX);
+                }
+            },
+            SQLiteAuctionStorage::addCategoryAndIndexes,
+            SQLiteAuctionStorage::addSearchIndex,
+            this::moveItemsToBlobStore);
+
+    private static final String INSERT_AUCTION = "INSERT INTO auctions (auction_id, seller_uuid, item_base64, item_type, item_name, price, buy_now_price, reserve_price, created_at, end_at, status, version, category, search_text, item_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    static final String INSERT_AUCTION_IF_ABSENT = "INSERT OR IGNORE INTO auctions (auction_id, seller_uuid, item_base64, item_type, item_name, price, buy_now_price, reserve_price, created_at, end_at, status, version, category, search_text, item_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    // Replays a journaled status change unless the row already has a newer version
+    static final String APPLY_STATUS_IF_NOT_NEWER = "UPDATE auctions SET status = ?, version = ? WHERE auction_id = ? AND version <= ?;";
     private static final String COUNT_ALL_ACTIVE = "SELECT COUNT(*) FROM auctions WHERE status = 'ACTIVE';";
-    private static final String FIND_BY_ID = "SELECT * FROM auctions WHERE auction_id = ?;";
-    private static final String FIND_BY_SELLER = "SELECT * FROM auctions WHERE seller_uuid = ? ORDER BY created_at DESC LIMIT ? OFFSET ?;";
-    private static final String FIND_PLAYER_HISTORY = "SELECT * FROM auctions WHERE seller_uuid = ? AND status != 'ACTIVE' ORDER BY created_at DESC LIMIT ? OFFSET ?;";
+    // Every column plus the item's data from item_blobs
+    private static final String COLUMNS = "*, " + SQLiteItemBlobStore.blobColumn("auctions");
+    private static final String FIND_BY_ID = "SELECT " + COLUMNS + " FROM auctions WHERE auction_id = ?;";
+    private static final String FIND_BY_SELLER = "SELECT " + COLUMNS + " FROM auctions WHERE seller_uuid = ? ORDER BY created_at DESC LIMIT ? OFFSET ?;";
+    private static final String FIND_PLAYER_HISTORY = "SELECT " + COLUMNS + " FROM auctions WHERE seller_uuid = ? AND status != 'ACTIVE' ORDER BY created_at DESC LIMIT ? OFFSET ?;";
+    // Served by idx_auctions_seller_active
+    private static final String FIND_ACTIVE_SELLERS = "SELECT DISTINCT seller_uuid FROM auctions WHERE status = 'ACTIVE';";
     private static final String COUNT_ACTIVE_BY_SELLER = "SELECT COUNT(*) FROM auctions WHERE seller_uuid = ? AND status = 'ACTIVE';";
-    private static final String FIND_EXPIRED = "SELECT * FROM auctions WHERE status = 'ACTIVE' AND end_at <= ? LIMIT ?;";
+    private static final String FIND_EXPIRED = "SELECT " + COLUMNS + " FROM auctions WHERE status = 'ACTIVE' AND end_at <= ? LIMIT ?;";
+    private static final String COUNT_ITEM_REFERENCES = "SELECT item_hash, COUNT(*) FROM auctions WHERE item_hash IS NOT NULL GROUP BY item_hash;";
+    // Stays well below SQLite's limit on bound parameters
+    private static final int EXPIRE_CHUNK_SIZE = 500;
     private static final String UPDATE_AUCTION_VERSIONED = "UPDATE auctions SET status = ?, version = ? WHERE auction_id = ? AND version = ?;";
 }
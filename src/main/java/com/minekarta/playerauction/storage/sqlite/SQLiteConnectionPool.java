@@ -0,0 +1,209 @@
+package com.minekarta.playerauction.storage.sqlite;
+
+import com.minekarta.playerauction.concurrent.ExecutorRegistry;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived SQLite connections shared by the SQLite storages: one writer and a
+ * fixed set of readers, all opened once with the pragmas applied up front.
+ * <p>
+ * The database runs in WAL mode, so readers see a consistent snapshot and never
+ * wait for the writer (and vice versa). Reads run on a pool from the
+ * {@link ExecutorRegistry} capped at one task per reader connection; writes are
+ * serialized on a single platform thread, which is all SQLite allows anyway.
+ */
+public final class SQLiteConnectionPool {
+
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    private static final long MMAP_SIZE_BYTES = 256L * 1024 * 1024;
+    // Negative cache_size is in KiB rather than pages
+    private static final int CACHE_SIZE_KIB = 16 * 1024;
+    private static final long CLOSE_DRAIN_SECONDS = 5;
+
+    private final String url;
+    private final Logger logger;
+    private final Connection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<Connection> readers;
+    private final List<Connection> allReaders = new ArrayList<>();
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+
+    /**
+     * Opens the connections. The database file and its parent folder are created if needed.
+     *
+     * @param database      The SQLite database file.
+     * @param readerCount   Number of reader connections (and read threads).
+     * @param logger        Logger for connection problems.
+     * @param executors     Creates the read pool and the writer thread.
+     */
+    public SQLiteConnectionPool(File database, int readerCount, Logger logger, ExecutorRegistry executors)
+            throws SQLException {
+        File parent = database.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.url = "jdbc:sqlite:" + database.getAbsolutePath();
+        this.logger = logger;
+
+        int readerConnections = Math.max(1, readerCount);
+        this.writer = open(false);
+        this.readers = new ArrayBlockingQueue<>(readerConnections);
+        for (int i = 0; i < readerConnections; i++) {
+            Connection reader = open(true);
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+
+        this.readExecutor = executors.newStoragePool("PlayerAuction-SQLite-Reader", readerConnections,
+                readerConnections);
+        this.writeExecutor = executors.newSerialExecutor("PlayerAuction-SQLite-Writer");
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            if (!readOnly) {
+                // Persistent for the database file, so setting it on the writer is enough
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            stmt.execute("PRAGMA mmap_size = " + MMAP_SIZE_BYTES);
+            stmt.execute("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Executor for read-only work; runs as many queries in parallel as there are readers.
+     * Uses virtual threads in {@code threads.mode: VIRTUAL}.
+     */
+    public ExecutorService readExecutor() {
+        return readExecutor;
+    }
+
+    /**
+     * Executor for writes; a single thread, so writes are applied in submission order.
+     */
+    public ExecutorService writeExecutor() {
+        return writeExecutor;
+    }
+
+    /**
+     * Borrows a reader connection, waiting for one to become free. Closing the
+     * returned connection hands it back to the pool.
+     */
+    public Connection reader() throws SQLException {
+        Connection connection;
+        try {
+            connection = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        return lease(connection, () -> readers.add(connection));
+    }
+
+    /**
+     * Takes exclusive use of the writer connection. Closing the returned
+     * connection releases it; a transaction left open is rolled back.
+     */
+    public Connection writer() {
+        writeLock.lock();
+        return lease(writer, writeLock::unlock);
+    }
+
+    private Connection lease(Connection connection, Runnable release) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (released.compareAndSet(false, true)) {
+                                try {
+                                    // Never hand on a connection with a half-finished transaction
+                                    if (!connection.getAutoCommit()) {
+                                        connection.rollback();
+                                        connection.setAutoCommit(true);
+                                    }
+                                } finally {
+                                    release.run();
+                                }
+                            }
+                            return null;
+                        case "isClosed":
+                            return released.get() || connection.isClosed();
+                        default:
+                            if (released.get()) {
+                                throw new SQLException("Connection has been returned to the pool");
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+    }
+
+    /**
+     * Stops the executors, waiting up to {@code CLOSE_DRAIN_SECONDS} for queued
+     * statements, and closes every connection, checkpointing the WAL.
+     */
+    public void close() {
+        readExecutor.shutdown();
+        writeExecutor.shutdown();
+        try {
+            if (!writeExecutor.awaitTermination(CLOSE_DRAIN_SECONDS, TimeUnit.SECONDS)
+                    || !readExecutor.awaitTermination(CLOSE_DRAIN_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("SQLite executors still busy after " + CLOSE_DRAIN_SECONDS + "s, closing anyway.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            for (Connection reader : allReaders) {
+                closeQuietly(reader);
+            }
+            try (Statement stmt = writer.createStatement()) {
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            } catch (SQLException e) {
+                logger.warning("Failed to checkpoint SQLite WAL: " + e.getMessage());
+            }
+            closeQuietly(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warning("Failed to close SQLite connection: " + e.getMessage());
+        }
+    }
+}
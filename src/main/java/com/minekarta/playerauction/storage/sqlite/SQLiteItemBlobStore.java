@@ -0,0 +1,308 @@
+package com.minekarta.playerauction.storage.sqlite;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.storage.ItemBlobStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * {@link ItemBlobStore} for the SQLite backend: the {@code item_blobs} table, which the
+ * auction and transaction tables reference through their {@code item_hash} column.
+ * <p>
+ * Items read from the database are interned by hash for as long as anything holds
+ * them, so the rows of one item share a single instance (and a single decode).
+ * Every write goes through the pool's writer connection, whose lock also keeps
+ * {@link #store} and {@link #delete} apart. The SQLite storages store items on the
+ * writer connection they already hold; see {@link #store(Connection, SerializedItem)}.
+ */
+public class SQLiteItemBlobStore extends ItemBlobStore {
+
+    private final SQLiteConnectionPool pool;
+    private final Logger logger;
+    // Items known to be in the table (committed), by hash
+    private final Cache<String, SerializedItem> interned = CacheBuilder.newBuilder()
+            .weakValues()
+            .build();
+
+    public SQLiteItemBlobStore(SQLiteConnectionPool pool, Logger logger) {
+        this.pool = pool;
+        this.logger = logger;
+    }
+
+    @Override
+    public void init() {
+        try (Connection conn = pool.writer()) {
+            SchemaMigrator.migrate(conn, "item_blobs", MIGRATIONS, logger);
+        } catch (SQLException e) {
+            logger.severe("Failed to initialize SQLite item store.");
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public SerializedItem store(SerializedItem item) {
+        if (item.getBase64() == null || interned.getIfPresent(item.hash()) != null) {
+            return intern(item);
+        }
+        try (Connection conn = pool.writer()) {
+            return store(conn, item);
+        } catch (SQLException e) {
+            logger.severe("Failed to store item " + item.hash() + ".");
+            e.printStackTrace();
+            return item;
+        }
+    }
+
+    /**
+     * {@link #store(SerializedItem)} on a writer connection the caller already holds,
+     * in auto-commit mode.
+     */
+    SerializedItem store(Connection writer, SerializedItem item) throws SQLException {
+        if (item.getBase64() == null) {
+            return item;
+        }
+        SerializedItem existing = interned.getIfPresent(item.hash());
+        if (existing != null) {
+            return existing;
+        }
+        insert(writer, item);
+        return intern(item);
+    }
+
+    /**
+     * {@link #retain(SerializedItem)} on a writer connection the caller already holds,
+     * in auto-commit mode.
+     */
+    SerializedItem retain(Connection writer, SerializedItem item) throws SQLException {
+        addReferences(item.hash(), 1);
+        return store(writer, item);
+    }
+
+    /**
+     * Inserts an item unless its hash is present, without recording it as stored.
+     * For writes inside a transaction, which may still roll back.
+     */
+    static void insert(Connection writer, SerializedItem item) throws SQLException {
+        if (item.getBase64() == null) {
+            return;
+        }
+        try (PreparedStatement ps = writer.prepareStatement(INSERT_IF_ABSENT)) {
+            ps.setString(1, item.hash());
+            ps.setBytes(2, item.toBytes());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the shared instance of an item read from a row: its {@code item_hash}
+     * and the {@code item_blob} selected with it.
+     * @return The item, or null if the row has no stored item.
+     */
+    @Nullable
+    SerializedItem fromRow(@Nullable String hash, @Nullable byte[] data) {
+        if (hash == null) {
+            return null;
+        }
+        SerializedItem existing = interned.getIfPresent(hash);
+        if (existing != null) {
+            return existing;
+        }
+        if (data == null) {
+            logger.warning("Stored item " + hash + " is missing from the item store.");
+            return SerializedItem.fromBase64(null).withHash(hash);
+        }
+        return intern(SerializedItem.fromBytes(data).withHash(hash));
+    }
+
+    private SerializedItem intern(SerializedItem item) {
+        if (item.getBase64() == null) {
+            return item;
+        }
+        SerializedItem existing = interned.asMap().putIfAbsent(item.hash(), item);
+        return existing != null ? existing : item;
+    }
+
+    @Override
+    @Nullable
+    public SerializedItem resolve(String hash) {
+        SerializedItem existing = interned.getIfPresent(hash);
+        if (existing != null) {
+            return existing;
+        }
+        try (Connection conn = pool.reader();
+             PreparedStatement ps = conn.prepareStatement(SELECT_BY_HASH)) {
+            ps.setString(1, hash);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? intern(SerializedItem.fromBytes(rs.getBytes(1)).withHash(hash)) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public int size() {
+        try (Connection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM item_blobs")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    @Override
+    protected Set<String> storedHashes() {
+        Set<String> hashes = new HashSet<>();
+        try (Connection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT hash FROM item_blobs")) {
+            while (rs.next()) {
+                hashes.add(rs.getString(1));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return hashes;
+    }
+
+    @Override
+    protected int delete(Set<String> hashes) {
+        try (Connection conn = pool.writer();
+             PreparedStatement ps = conn.prepareStatement("DELETE FROM item_blobs WHERE hash = ?")) {
+            conn.setAutoCommit(false);
+            try {
+                int deleted = 0;
+                for (String hash : hashes) {
+                    // Dropped before the check: a store that still found it interned has
+                    // already counted its reference, and later ones wait for the writer
+                    interned.invalidate(hash);
+                    if (isReferenced(hash)) {
+                        continue;
+                    }
+                    ps.setString(1, hash);
+                    deleted += ps.executeUpdate();
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            // Whatever was invalidated is read back from the table on next use
+            logger.severe("Failed to delete unused items.");
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    @Override
+    public CompletableFuture<ReencodeBatch> reencodeLegacy(@Nullable String afterHash, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, SerializedItem> legacy = new LinkedHashMap<>();
+            try (Connection conn = pool.reader();
+                 PreparedStatement ps = conn.prepareStatement(SELECT_LEGACY)) {
+                ps.setString(1, afterHash != null ? afterHash : "");
+                ps.setInt(2, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String hash = rs.getString(1);
+                        legacy.put(hash, SerializedItem.fromBytes(rs.getBytes(2)).withHash(hash));
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            return legacy;
+        }, pool.readExecutor())
+                // Decoded off the writer thread; reencoded() keeps each item's hash
+                .thenApplyAsync(legacy -> {
+                    if (legacy.isEmpty()) {
+                        return new ReencodeBatch(0, 0, null);
+                    }
+                    String lastHash = null;
+                    for (String hash : legacy.keySet()) {
+                        lastHash = hash;
+                    }
+                    int rewritten = update(SerializedItem.reencodeAll(legacy, logger));
+                    return new ReencodeBatch(legacy.size(), rewritten, lastHash);
+                }, pool.writeExecutor());
+    }
+
+    private int update(Map<String, SerializedItem> reencoded) {
+        if (reencoded.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = pool.writer();
+             PreparedStatement ps = conn.prepareStatement("UPDATE item_blobs SET data = ? WHERE hash = ?")) {
+            conn.setAutoCommit(false);
+            try {
+                for (SerializedItem item : reencoded.values()) {
+                    ps.setBytes(1, item.toBytes());
+                    ps.setString(2, item.hash());
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                conn.commit();
+                // Rows read from now on get the new encoding; items deleted meanwhile stay deleted
+                int updated = 0;
+                int i = 0;
+                for (SerializedItem item : reencoded.values()) {
+                    if (counts[i++] > 0) {
+                        interned.put(item.hash(), item);
+                        updated++;
+                    }
+                }
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * A selected column holding the data of a table's {@code item_hash}; read it
+     * together with the hash through {@link #fromRow}.
+     */
+    static String blobColumn(String table) {
+        return "(SELECT data FROM item_blobs WHERE hash = " + table + ".item_hash) AS item_blob";
+    }
+
+    private static final List<SchemaMigrator.Migration> MIGRATIONS = List.of(
+            conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("""
+                            CREATE TABLE IF NOT EXISTS item_blobs (
+                              hash TEXT PRIMARY KEY,
+                              data BLOB NOT NULL
+                            ) WITHOUT ROWID""");
+                }
+            });
+
+    private static final String INSERT_IF_ABSENT = "INSERT OR IGNORE INTO item_blobs (hash, data) VALUES (?, ?);";
+    private static final String SELECT_BY_HASH = "SELECT data FROM item_blobs WHERE hash = ?;";
+    // The Java serialization stream magic, 0xACED
+    private static final String SELECT_LEGACY = "SELECT hash, data FROM item_blobs WHERE substr(data, 1, 2) = X'ACED' AND hash > ?"
+            + " ORDER BY hash LIMIT ?;";
+}
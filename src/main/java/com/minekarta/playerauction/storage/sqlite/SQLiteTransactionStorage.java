@@ -3,40 +3,34 @@ package com.minekarta.playerauction.storage.sqlite;
 import com.minekarta.playerauction.common.SerializedItem;
 import com.minekarta.playerauction.storage.TransactionStorage;
 import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Executor;
+import java.util.function.ObjIntConsumer;
+import java.util.logging.Logger;
 
 public class SQLiteTransactionStorage implements TransactionStorage {
 
     private final JavaPlugin plugin;
-    private final Executor executor;
-    private final String databasePath;
+    private final SQLiteConnectionPool pool;
+    private final SQLiteItemBlobStore blobs;
 
-    public SQLiteTransactionStorage(JavaPlugin plugin) {
+    public SQLiteTransactionStorage(JavaPlugin plugin, SQLiteConnectionPool pool, SQLiteItemBlobStore blobs) {
         this.plugin = plugin;
-        this.executor = Executors.newSingleThreadExecutor();
-        this.databasePath = plugin.getDataFolder().getAbsolutePath() + "/auctions.db";
-    }
-
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection("jdbc:sqlite:" + databasePath);
+        this.pool = pool;
+        this.blobs = blobs;
     }
 
     @Override
     public void init() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
-            stmt.execute("PRAGMA foreign_keys = ON");
-            stmt.execute(CREATE_TRANSACTIONS_TABLE);
-            stmt.execute(CREATE_TRANSACTIONS_INDEX);
-            stmt.execute(CREATE_TRANSACTIONS_PLAYER_INDEX);
-            stmt.execute(CREATE_TRANSACTIONS_SELLER_INDEX);
+        try (Connection conn = pool.writer()) {
+            migrate(conn, plugin.getLogger());
             plugin.getLogger().info("SQLite transactions table initialized successfully.");
         } catch (SQLException e) {
             plugin.getLogger().severe("Failed to initialize SQLite transaction storage.");
@@ -47,56 +41,167 @@ public class SQLiteTransactionStorage implements TransactionStorage {
     @Override
     public CompletableFuture<Void> logTransaction(Transaction transaction) {
         return CompletableFuture.runAsync(() -> {
-            try (Connection conn = getConnection();
+            try (Connection conn = pool.writer();
                  PreparedStatement ps = conn.prepareStatement(INSERT_TRANSACTION)) {
-                ps.setString(1, transaction.id().toString());
-                ps.setString(2, transaction.auctionId().toString());
-                ps.setString(3, transaction.actionType());
-                ps.setString(4, transaction.actorUuid() != null ? transaction.actorUuid().toString() : null);
-                ps.setString(5, transaction.sellerUuid() != null ? transaction.sellerUuid().toString() : null);
-                if (transaction.amount() != null) {
-                    ps.setDouble(6, transaction.amount());
-                } else {
-                    ps.setNull(6, Types.DOUBLE);
-                }
-                ps.setString(7, transaction.details());
-                ps.setString(8, transaction.itemSnapshot() != null ? transaction.itemSnapshot().getBase64() : null);
-                ps.setLong(9, transaction.timestamp());
+                SerializedItem snapshot = transaction.itemSnapshot();
+                bindInsert(ps, snapshot != null ? transaction.withItemSnapshot(blobs.retain(conn, snapshot)) : transaction);
                 ps.executeUpdate();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
-        }, executor);
+        }, pool.writeExecutor());
     }
 
     @Override
-    public CompletableFuture<List<Transaction>> findTransactionsByPlayer(UUID playerId, int limit, int offset) {
+    public CompletableFuture<Void> logTransactions(List<Transaction> transactions) {
+        return CompletableFuture.runAsync(() -> {
+            if (transactions.isEmpty()) {
+                return;
+            }
+            try (Connection conn = pool.writer()) {
+                // Snapshots are usually the items of auctions already stored, which needs no write
+                List<Transaction> stored = new ArrayList<>(transactions.size());
+                for (Transaction transaction : transactions) {
+                    SerializedItem snapshot = transaction.itemSnapshot();
+                    stored.add(snapshot != null ? transaction.withItemSnapshot(blobs.retain(conn, snapshot)) : transaction);
+                }
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_TRANSACTION)) {
+                    for (Transaction transaction : stored) {
+                        bindInsert(ps, transaction);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }, pool.writeExecutor());
+    }
+
+    @Override
+    public CompletableFuture<List<Transaction>> findTransactionsByPlayer(UUID playerId,
+            @Nullable TransactionCursor after, int limit) {
         return CompletableFuture.supplyAsync(() -> {
             List<Transaction> transactions = new ArrayList<>();
-            try (Connection conn = getConnection();
-                 PreparedStatement ps = conn.prepareStatement(GET_PLAYER_TRANSACTIONS)) {
-                ps.setString(1, playerId.toString());
-                ps.setString(2, playerId.toString());
-                ps.setString(3, playerId.toString());
-                ps.setInt(4, limit);
-                ps.setInt(5, offset);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        transactions.add(mapRowToTransaction(rs));
-                    }
+            try (Connection conn = pool.reader();
+                 PreparedStatement ps = preparePlayerPage(conn, playerId, after, limit);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    transactions.add(mapRowToTransaction(rs));
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
             }
             return transactions;
-        }, executor);
+        }, pool.readExecutor());
+    }
+
+    @Override
+    public CompletableFuture<Integer> countTransactionsByPlayer(UUID playerId) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection conn = pool.reader()) {
+                return countByPlayer(conn, playerId);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return 0;
+            }
+        }, pool.readExecutor());
+    }
+
+    @Override
+    public void countItemReferences(ObjIntConsumer<String> references) {
+        try (Connection conn = pool.reader();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(COUNT_ITEM_REFERENCES)) {
+            while (rs.next()) {
+                references.accept(rs.getString(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Brings the transactions schema up to date.
+     * @param conn The writer connection, in auto-commit mode.
+     */
+    static void migrate(Connection conn, Logger logger) throws SQLException {
+        SchemaMigrator.migrate(conn, "transactions", MIGRATIONS, logger);
+    }
+
+    /**
+     * Prepares the query for a page of a player's history, newest first: the
+     * transactions they bought or sold after the cursor.
+     */
+    static PreparedStatement preparePlayerPage(Connection conn, UUID playerId, @Nullable TransactionCursor after,
+            int limit) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(GET_PLAYER_TRANSACTIONS);
+        // No cursor: start above every real timestamp, where the ID never decides
+        long timestamp = after != null ? after.timestamp() : Long.MAX_VALUE;
+        String id = after != null ? after.id().toString() : "";
+        int index = 1;
+        // Once for the buyer side, once for the seller side
+        for (int side = 0; side < 2; side++) {
+            ps.setString(index++, playerId.toString());
+            ps.setLong(index++, timestamp);
+            ps.setLong(index++, timestamp);
+            ps.setString(index++, id);
+            ps.setInt(index++, limit);
+        }
+        ps.setInt(index, limit);
+        return ps;
+    }
+
+    /**
+     * Number of transactions a player bought or sold, each counted once.
+     */
+    static int countByPlayer(Connection conn, UUID playerId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(COUNT_PLAYER_TRANSACTIONS)) {
+            for (int i = 1; i <= 4; i++) {
+                ps.setString(i, playerId.toString());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Binds all columns of {@link #INSERT_TRANSACTION} / {@link #INSERT_TRANSACTION_IF_ABSENT}.
+     * The item snapshot, if any, must already be in the item store.
+     */
+    static void bindInsert(PreparedStatement ps, Transaction transaction) throws SQLException {
+        ps.setString(1, transaction.id().toString());
+        ps.setString(2, transaction.auctionId().toString());
+        ps.setString(3, transaction.actionType());
+        ps.setString(4, transaction.actorUuid() != null ? transaction.actorUuid().toString() : null);
+        ps.setString(5, transaction.sellerUuid() != null ? transaction.sellerUuid().toString() : null);
+        if (transaction.amount() != null) {
+            ps.setDouble(6, transaction.amount());
+        } else {
+            ps.setNull(6, Types.DOUBLE);
+        }
+        ps.setString(7, transaction.details());
+        ps.setString(8, null);
+        ps.setLong(9, transaction.timestamp());
+        ps.setString(10, transaction.itemSnapshot() != null ? transaction.itemSnapshot().hash() : null);
     }
 
     private Transaction mapRowToTransaction(ResultSet rs) throws SQLException {
         String itemData = rs.getString("item_snapshot");
-        SerializedItem itemSnapshot = null;
+        SerializedItem itemSnapshot;
         if (itemData != null) {
+            // Only rows from before schema version 2, which moves them all
             itemSnapshot = SerializedItem.fromBase64(itemData);
+        } else {
+            itemSnapshot = blobs.fromRow(rs.getString("item_hash"), rs.getBytes("item_blob"));
         }
 
         return new Transaction(
@@ -130,6 +235,57 @@ public class SQLiteTransactionStorage implements TransactionStorage {
     private static final String CREATE_TRANSACTIONS_PLAYER_INDEX = "CREATE INDEX IF NOT EXISTS idx_transactions_player ON transactions (actor_uuid, timestamp DESC);";
     private static final String CREATE_TRANSACTIONS_SELLER_INDEX = "CREATE INDEX IF NOT EXISTS idx_transactions_seller ON transactions (seller_uuid, timestamp DESC);";
 
-    private static final String INSERT_TRANSACTION = "INSERT INTO transactions (id, auction_id, action_type, actor_uuid, seller_uuid, amount, details, item_snapshot, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);";
-    private static final String GET_PLAYER_TRANSACTIONS = "SELECT * FROM transactions WHERE actor_uuid = ? OR seller_uuid = ? ORDER BY timestamp DESC LIMIT ? OFFSET ?;";
+    /**
+     * Version 2: item snapshots move to the shared {@code item_blobs} table, like the
+     * auctions' items; {@code item_snapshot} stays NULL for new rows.
+     */
+    private static void moveSnapshotsToBlobStore(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE transactions ADD COLUMN item_hash TEXT NULL");
+        }
+        SQLiteAuctionStorage.moveItems(conn,
+                "SELECT id, item_snapshot FROM transactions WHERE item_snapshot IS NOT NULL LIMIT ?",
+                "UPDATE transactions SET item_hash = ?, item_snapshot = NULL WHERE id = ?");
+    }
+
+    /**
+     * Version 3: the per-player indexes also cover the ID, the history's tie-breaker,
+     * so a page is a seek into each index rather than a sort of the player's rows.
+     */
+    private static void indexHistoryOrder(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP INDEX IF EXISTS idx_transactions_player");
+            stmt.execute("DROP INDEX IF EXISTS idx_transactions_seller");
+            stmt.execute("CREATE INDEX idx_transactions_actor_history ON transactions (actor_uuid, timestamp DESC, id)");
+            stmt.execute("CREATE INDEX idx_transactions_seller_history ON transactions (seller_uuid, timestamp DESC, id)");
+        }
+    }
+
+    private static final List<SchemaMigrator.Migration> MIGRATIONS = List.of(
+            // Version 1: the original schema (a no-op for databases created before versioning)
+            conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_TRANSACTIONS_TABLE);
+                    stmt.execute(CREATE_TRANSACTIONS_INDEX);
+                    stmt.execute(CREATE_TRANSACTIONS_PLAYER_INDEX);
+                    stmt.execute(CREATE_TRANSACTIONS_SELLER_INDEX);
+                }
+            },
+            SQLiteTransactionStorage::moveSnapshotsToBlobStore,
+            SQLiteTransactionStorage::indexHistoryOrder);
+
+    private static final String INSERT_TRANSACTION = "INSERT INTO transactions (id, auction_id, action_type, actor_uuid, seller_uuid, amount, details, item_snapshot, timestamp, item_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    static final String INSERT_TRANSACTION_IF_ABSENT = "INSERT OR IGNORE INTO transactions (id, auction_id, action_type, actor_uuid, seller_uuid, amount, details, item_snapshot, timestamp, item_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+    // Seeks each side's index past the cursor and takes a page from each, then merges
+    // the two; "timestamp <= ?" bounds the index range, the OR settles ties on the ID
+    private static final String PLAYER_SIDE_PAGE = " AND timestamp <= ? AND (timestamp < ? OR id > ?) ORDER BY timestamp DESC, id LIMIT ?";
+    private static final String GET_PLAYER_TRANSACTIONS = "SELECT *, " + SQLiteItemBlobStore.blobColumn("transactions") + " FROM transactions WHERE id IN ("
+            + "SELECT id FROM (SELECT id FROM transactions WHERE actor_uuid = ?" + PLAYER_SIDE_PAGE + ")"
+            + " UNION SELECT id FROM (SELECT id FROM transactions WHERE seller_uuid = ?" + PLAYER_SIDE_PAGE + ")"
+            + ") ORDER BY timestamp DESC, id LIMIT ?;";
+    // Each count only reads its index; the last one removes rows counted on both sides
+    private static final String COUNT_PLAYER_TRANSACTIONS = "SELECT (SELECT COUNT(*) FROM transactions WHERE actor_uuid = ?)"
+            + " + (SELECT COUNT(*) FROM transactions WHERE seller_uuid = ?)"
+            + " - (SELECT COUNT(*) FROM transactions WHERE actor_uuid = ? AND seller_uuid = ?);";
+    private static final String COUNT_ITEM_REFERENCES = "SELECT item_hash, COUNT(*) FROM transactions WHERE item_hash IS NOT NULL GROUP BY item_hash;";
 }
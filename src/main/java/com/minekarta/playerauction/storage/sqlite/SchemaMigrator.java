@@ -0,0 +1,81 @@
+package com.minekarta.playerauction.storage.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Applies numbered schema migrations and records the version reached.
+ * <p>
+ * Versions are tracked per component (e.g. "auctions") in a {@code schema_versions}
+ * table rather than {@code PRAGMA user_version}, because several storages share one
+ * database file. Migration {@code n} (1-based position in the list) runs only when
+ * the stored version is below {@code n}, inside its own transaction together with the
+ * version bump, so a failed migration leaves the schema at the previous version.
+ */
+final class SchemaMigrator {
+
+    @FunctionalInterface
+    interface Migration {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static final String CREATE_VERSIONS_TABLE = """
+            CREATE TABLE IF NOT EXISTS schema_versions (
+              component TEXT PRIMARY KEY,
+              version   INTEGER NOT NULL
+            )""";
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Brings a component's schema up to date.
+     * @param connection The writer connection, in auto-commit mode.
+     * @return The version the schema is at afterwards.
+     */
+    static int migrate(Connection connection, String component, List<Migration> migrations, Logger logger)
+            throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(CREATE_VERSIONS_TABLE);
+        }
+
+        int version = currentVersion(connection, component);
+        while (version < migrations.size()) {
+            int target = version + 1;
+            connection.setAutoCommit(false);
+            try {
+                migrations.get(version).apply(connection);
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "INSERT OR REPLACE INTO schema_versions (component, version) VALUES (?, ?)")) {
+                    ps.setString(1, component);
+                    ps.setInt(2, target);
+                    ps.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            logger.info("Migrated SQLite " + component + " schema to version " + target + ".");
+            version = target;
+        }
+        return version;
+    }
+
+    private static int currentVersion(Connection connection, String component) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT version FROM schema_versions WHERE component = ?")) {
+            ps.setString(1, component);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
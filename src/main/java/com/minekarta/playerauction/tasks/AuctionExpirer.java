@@ -1,19 +1,141 @@
 package com.minekarta.playerauction.tasks;
 
 import com.minekarta.playerauction.auction.AuctionService;
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionCursor;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.gui.model.AuctionCategory;
+import com.minekarta.playerauction.gui.model.SortOrder;
+import com.minekarta.playerauction.storage.AuctionStorage;
 import org.bukkit.scheduler.BukkitRunnable;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Expires auctions at their deadline.
+ * <p>
+ * Every active auction's {@code endAt} sits in an in-memory min-heap, filled from
+ * storage at startup and fed by every new listing. The task runs every tick and
+ * only looks at the head of the heap, so an auction expires within a tick of its
+ * deadline and idle ticks cost nothing. Entries are never removed early: a sold or
+ * cancelled auction is simply skipped when its deadline comes, because
+ * {@link AuctionService#expireAuctions} re-checks the stored status.
+ * <p>
+ * Due auctions are expired in batches, each one a single storage write, sized by
+ * how fast the previous ones finished: the batch doubles while expirations keep up
+ * and halves when they pile up, so a backlog after downtime drains quickly without
+ * flooding the executors.
+ */
 public class AuctionExpirer extends BukkitRunnable {
 
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int MIN_BATCH = 16;
+    private static final int MAX_BATCH = 1024;
+
+    private record Deadline(UUID id, long endAt) {
+    }
+
     private final AuctionService auctionService;
+    private final PriorityQueue<Deadline> deadlines = new PriorityQueue<>(Comparator.comparingLong(Deadline::endAt));
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Guarded by deadlines
+    private int batchSize = MIN_BATCH;
+    private boolean backlogged;
 
     public AuctionExpirer(AuctionService auctionService) {
         this.auctionService = auctionService;
     }
 
+    /**
+     * Tracks an active auction's deadline.
+     */
+    public void schedule(Auction auction) {
+        if (auction.status() != AuctionStatus.ACTIVE) {
+            return;
+        }
+        synchronized (deadlines) {
+            deadlines.add(new Deadline(auction.id(), auction.endAt()));
+        }
+    }
+
+    /**
+     * Loads the deadlines of every active auction, paging through storage in
+     * expiry order. Call once the storage is initialized.
+     *
+     * @return A future completing with the number of auctions loaded.
+     */
+    public CompletableFuture<Integer> loadActive() {
+        return loadPage(auctionService.getAuctionStorage(), null, 0);
+    }
+
+    private CompletableFuture<Integer> loadPage(AuctionStorage storage, @Nullable AuctionCursor after, int loaded) {
+        return storage.findActiveAfter(after, LOAD_PAGE_SIZE, AuctionCategory.ALL, SortOrder.TIME_LEFT)
+                .thenCompose(page -> {
+                    page.forEach(this::schedule);
+                    if (page.size() < LOAD_PAGE_SIZE) {
+                        return CompletableFuture.completedFuture(loaded + page.size());
+                    }
+                    return loadPage(storage, AuctionCursor.of(page.get(page.size() - 1)), loaded + page.size());
+                });
+    }
+
+    /**
+     * Number of deadlines currently tracked.
+     */
+    public int pending() {
+        synchronized (deadlines) {
+            return deadlines.size();
+        }
+    }
+
     @Override
     public void run() {
-        auctionService.processExpiredAuctions();
+        List<UUID> due = pollDue(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        inFlight.addAndGet(due.size());
+        auctionService.expireAuctions(due).whenComplete((expired, ex) -> {
+            inFlight.addAndGet(-due.size());
+            if (ex != null) {
+                auctionService.getPlugin().getLogger().warning(
+                        "Failed to expire " + due.size() + " auctions: " + ex.getMessage());
+            }
+        });
     }
-}
 
+    private List<UUID> pollDue(long now) {
+        List<UUID> due = new ArrayList<>();
+        synchronized (deadlines) {
+            if (deadlines.isEmpty() || deadlines.peek().endAt() > now) {
+                return due;
+            }
+
+            // A new backlog starts small; an ongoing one adapts to the previous batch:
+            // all done means there is room for more, most still running means back off
+            int stillRunning = inFlight.get();
+            if (!backlogged) {
+                batchSize = MIN_BATCH;
+            } else if (stillRunning == 0) {
+                batchSize = Math.min(MAX_BATCH, batchSize * 2);
+            } else if (stillRunning >= batchSize / 2) {
+                batchSize = Math.max(MIN_BATCH, batchSize / 2);
+            }
+
+            int budget = batchSize - stillRunning;
+            while (due.size() < budget && !deadlines.isEmpty() && deadlines.peek().endAt() <= now) {
+                due.add(deadlines.poll().id());
+            }
+            backlogged = !deadlines.isEmpty() && deadlines.peek().endAt() <= now;
+        }
+        return due;
+    }
+}
@@ -0,0 +1,77 @@
+package com.minekarta.playerauction.tasks;
+
+import com.minekarta.playerauction.common.ItemCodec;
+import com.minekarta.playerauction.storage.ItemBlobStore;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Converts items stored by older versions (Java-serialized) to the current
+ * {@link ItemCodec} format in the background, one storage after another, in small
+ * batches so regular storage work is never held up for long.
+ */
+public class ItemReencoder {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final Logger logger;
+    private final Map<String, Source> storages = new LinkedHashMap<>();
+
+    /**
+     * Converts stored items batch by batch, e.g.
+     * {@link com.minekarta.playerauction.storage.ItemBlobStore#reencodeLegacy}.
+     */
+    @FunctionalInterface
+    public interface Source {
+        /**
+         * Converts up to {@code limit} items after the cursor.
+         * @param afterHash The last hash of the previous batch, null for the first.
+         */
+        CompletableFuture<ItemBlobStore.ReencodeBatch> reencode(@Nullable String afterHash, int limit);
+    }
+
+    public ItemReencoder(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Adds a storage to convert.
+     *
+     * @param name   What the storage holds, for the log.
+     * @param source Converts the storage's items batch by batch.
+     */
+    public ItemReencoder add(String name, Source source) {
+        storages.put(name, source);
+        return this;
+    }
+
+    /**
+     * Converts every storage in turn.
+     *
+     * @return A future completing with the total number of items converted.
+     */
+    public CompletableFuture<Integer> run() {
+        CompletableFuture<Integer> total = CompletableFuture.completedFuture(0);
+        for (Map.Entry<String, Source> storage : storages.entrySet()) {
+            total = total.thenCompose(sum -> drain(storage.getValue(), null, 0).thenApply(converted -> {
+                if (converted > 0) {
+                    logger.info("Converted " + converted + " stored " + storage.getKey()
+                            + " to the compact item format.");
+                }
+                return sum + converted;
+            }));
+        }
+        return total;
+    }
+
+    private CompletableFuture<Integer> drain(Source source, @Nullable String afterHash, int converted) {
+        // Runs until a batch selects nothing; items that fail to convert are passed over, not retried
+        return source.reencode(afterHash, BATCH_SIZE).thenCompose(batch -> batch.selected() > 0
+                ? drain(source, batch.lastHash(), converted + batch.rewritten())
+                : CompletableFuture.completedFuture(converted));
+    }
+}
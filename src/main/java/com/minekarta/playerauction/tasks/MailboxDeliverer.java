@@ -0,0 +1,145 @@
+package com.minekarta.playerauction.tasks;
+
+import com.minekarta.playerauction.PlayerAuction;
+import com.minekarta.playerauction.mailbox.MailboxService;
+import com.minekarta.playerauction.mailbox.model.MailboxItem;
+import com.minekarta.playerauction.util.InventoryUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hands returned items that were put in the mailbox straight to their owners,
+ * if they are online.
+ * <p>
+ * Returns are always stored in the mailbox first, so nothing is lost when the owner
+ * is offline, has a full inventory or the server stops before delivery. Queued
+ * items are handled on the main thread, at most a configured number per tick: those
+ * that fit in their owner's inventory are claimed in one storage write and added on
+ * a later tick, one pass per batch; the rest simply wait in the mailbox. Claimed
+ * items that can't be handed out after all (the owner logged out, the item does not
+ * decode, the plugin was disabled in between) are unclaimed again.
+ */
+public class MailboxDeliverer extends BukkitRunnable {
+
+    // A queued item and the material named in its notification
+    private record Delivery(MailboxItem item, String material) {
+    }
+
+    private final PlayerAuction plugin;
+    private final MailboxService mailboxService;
+    private final int perTick;
+    private final Queue<Delivery> queue = new ConcurrentLinkedQueue<>();
+
+    public MailboxDeliverer(PlayerAuction plugin, MailboxService mailboxService, int perTick) {
+        this.plugin = plugin;
+        this.mailboxService = mailboxService;
+        this.perTick = Math.max(1, perTick);
+    }
+
+    /**
+     * Queues a mailbox item for delivery. Can be called from any thread.
+     * @param material The item's material, as named in the "auction.expired" notification.
+     */
+    public void enqueue(MailboxItem item, String material) {
+        queue.add(new Delivery(item, material));
+    }
+
+    /**
+     * Number of items waiting for delivery.
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    @Override
+    public void run() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, List<Delivery>> byOwner = new LinkedHashMap<>();
+        for (int i = 0; i < perTick; i++) {
+            Delivery delivery = queue.poll();
+            if (delivery == null) {
+                break;
+            }
+            byOwner.computeIfAbsent(delivery.item().playerId(), k -> new ArrayList<>()).add(delivery);
+        }
+
+        Map<UUID, String> materials = new HashMap<>();
+        for (Map.Entry<UUID, List<Delivery>> entry : byOwner.entrySet()) {
+            Player owner = Bukkit.getPlayer(entry.getKey());
+            if (owner == null || !owner.isOnline()) {
+                continue; // Collected from the mailbox later
+            }
+            List<Delivery> deliveries = entry.getValue();
+            int fits = Math.min(InventoryUtil.freeSlots(owner), deliveries.size());
+            for (Delivery delivery : deliveries.subList(0, fits)) {
+                materials.put(delivery.item().id(), delivery.material());
+            }
+            if (fits < deliveries.size()) {
+                owner.sendMessage(plugin.getConfigManager().getPrefixedMessage("mailbox.items-waiting",
+                        "%count%", String.valueOf(deliveries.size() - fits)));
+            }
+        }
+        if (materials.isEmpty()) {
+            return;
+        }
+
+        // Claimed before handing out, so a claim from the mailbox GUI can't take them twice
+        mailboxService.getStorage().claimItems(materials.keySet()).thenAccept(claimed -> {
+            if (claimed.isEmpty()) {
+                return;
+            }
+            try {
+                plugin.getServer().getScheduler().runTask(plugin, () -> give(claimed, materials));
+            } catch (IllegalPluginAccessException e) {
+                // Disabled while claiming; the storage is flushed after this
+                mailboxService.unclaim(claimed);
+            }
+        }).exceptionally(ex -> {
+            plugin.getLogger().severe("Failed to claim " + materials.size() + " returned items: " + ex.getMessage());
+            ex.printStackTrace();
+            return null;
+        });
+    }
+
+    private void give(List<MailboxItem> claimed, Map<UUID, String> materials) {
+        List<MailboxItem> undelivered = new ArrayList<>();
+        for (MailboxItem item : claimed) {
+            Player owner = Bukkit.getPlayer(item.playerId());
+            if (owner == null || !owner.isOnline()) {
+                undelivered.add(item); // Logged out since
+                continue;
+            }
+            ItemStack itemStack;
+            try {
+                itemStack = item.item() != null ? item.item().toItemStack() : null;
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Could not decode returned item " + item.id() + ": " + e.getMessage());
+                itemStack = null;
+            }
+            if (itemStack == null) {
+                undelivered.add(item); // Stays in the mailbox
+                continue;
+            }
+            // The inventory may have filled up since the items were picked
+            InventoryUtil.giveOrDrop(owner, itemStack);
+            plugin.getNotificationManager().sendNotification(owner, "auction.expired", Map.of(
+                    "%item%", materials.get(item.id())));
+        }
+        mailboxService.unclaim(undelivered);
+    }
+}
@@ -3,7 +3,11 @@ package com.minekarta.playerauction.transaction;
 import com.minekarta.playerauction.auction.model.Auction;
 import com.minekarta.playerauction.storage.TransactionStorage;
 import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -20,22 +24,48 @@ public class TransactionLogger {
     }
 
     public CompletableFuture<Void> log(Auction auction, String status, UUID buyer, Double price) {
-        Transaction transaction = new Transaction(
+        return transactionStorage.logTransaction(toTransaction(auction, status, buyer, price));
+    }
+
+    /**
+     * Logs the same status change of several auctions in one write.
+     */
+    public CompletableFuture<Void> logAll(List<Auction> auctions, String status) {
+        if (auctions.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Transaction> transactions = new ArrayList<>(auctions.size());
+        for (Auction auction : auctions) {
+            transactions.add(toTransaction(auction, status, null, auction.price()));
+        }
+        return transactionStorage.logTransactions(transactions);
+    }
+
+    private static Transaction toTransaction(Auction auction, String status, UUID buyer, Double price) {
+        return new Transaction(
                 UUID.randomUUID(),
                 auction.id(),
                 status,
                 buyer,
                 auction.seller(),
                 price,
-                auction.item().toItemStack().getType().toString() + " for " + (price != null ? price : auction.price()),
+                auction.itemMetadata().material() + " for " + (price != null ? price : auction.price()),
                 auction.item(),
                 System.currentTimeMillis()
         );
-        return transactionStorage.logTransaction(transaction);
     }
 
-    public CompletableFuture<java.util.List<Transaction>> getHistory(UUID playerId, int page, int pageSize) {
-        return transactionStorage.findTransactionsByPlayer(playerId, pageSize, (page - 1) * pageSize);
+    /**
+     * Fetches a player's transactions, newest first, continuing after a cursor.
+     * @param after The position of the last transaction already shown, or null for the newest.
+     */
+    public CompletableFuture<List<Transaction>> getHistory(UUID playerId, @Nullable TransactionCursor after,
+            int limit) {
+        return transactionStorage.findTransactionsByPlayer(playerId, after, limit);
+    }
+
+    public CompletableFuture<Integer> getHistorySize(UUID playerId) {
+        return transactionStorage.countTransactionsByPlayer(playerId);
     }
 }
 
@@ -21,4 +21,8 @@ public record Transaction(
     public UUID buyerUuid() { return actorUuid; }
     public Double finalPrice() { return amount; }
     public UUID transactionId() { return id; }
+
+    public Transaction withItemSnapshot(SerializedItem newItemSnapshot) {
+        return new Transaction(id, auctionId, actionType, actorUuid, sellerUuid, amount, details, newItemSnapshot, timestamp);
+    }
 }
@@ -0,0 +1,19 @@
+package com.minekarta.playerauction.transaction.model;
+
+import java.util.UUID;
+
+/**
+ * Position in a player's transaction history, which is ordered newest first:
+ * the timestamp and ID of the last transaction seen. Fetching "after" a cursor
+ * seeks straight to the next older transaction instead of skipping over every
+ * newer one, so deep pages of a long history cost the same as the first.
+ */
+public record TransactionCursor(long timestamp, UUID id) {
+
+    /**
+     * Creates a cursor positioned at the given transaction.
+     */
+    public static TransactionCursor of(Transaction transaction) {
+        return new TransactionCursor(transaction.timestamp(), transaction.id());
+    }
+}
@@ -0,0 +1,35 @@
+package com.minekarta.playerauction.util;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Inventory helpers for handing items to players. Main thread only.
+ */
+public final class InventoryUtil {
+
+    private InventoryUtil() {
+    }
+
+    /**
+     * Number of empty slots in a player's main inventory (armor and off-hand excluded).
+     */
+    public static int freeSlots(Player player) {
+        int free = 0;
+        for (ItemStack stack : player.getInventory().getStorageContents()) {
+            if (stack == null || stack.getType().isAir()) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Adds an item to a player's inventory, dropping whatever does not fit at their feet.
+     */
+    public static void giveOrDrop(Player player, ItemStack item) {
+        for (ItemStack rest : player.getInventory().addItem(item).values()) {
+            player.getWorld().dropItem(player.getLocation(), rest);
+        }
+    }
+}
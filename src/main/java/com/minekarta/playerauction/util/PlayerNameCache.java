@@ -2,26 +2,136 @@ package com.minekarta.playerauction.util;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.io.CountingInputStream;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
+/**
+ * Player names by UUID, for showing sellers and buyers.
+ * <p>
+ * Names are kept in memory up to a configured number of players and persisted to the
+ * append-only {@code player-names.dat} file (a 16-byte UUID and the name per record),
+ * which is loaded at startup, so known names survive restarts instead of each costing
+ * an offline-player lookup again. Names are refreshed when a player joins (see
+ * {@link com.minekarta.playerauction.players.PlayerNameListener}); the file is
+ * rewritten from memory at startup once it holds more superseded records than live
+ * ones, and while running once it holds twice as many records as names are kept.
+ */
 public class PlayerNameCache {
 
     private final Cache<UUID, String> nameCache;
+    private final int maxSize;
     private final Executor asyncExecutor;
+    private final Executor fileExecutor;
+    private final File file;
+    private final Logger logger;
 
-    public PlayerNameCache(Executor asyncExecutor) {
+    // Guarded by this
+    private DataOutputStream writer;
+    // Records in the file, superseded ones included; guarded by this
+    private int fileRecords;
+
+    /**
+     * @param maxSize      Most names kept in memory; the file holds at most twice as many records.
+     * @param fileExecutor A serial executor for appending to the file.
+     */
+    public PlayerNameCache(File dataFolder, int maxSize, Executor asyncExecutor, Executor fileExecutor,
+            Logger logger) {
         this.asyncExecutor = asyncExecutor;
+        this.fileExecutor = fileExecutor;
+        this.file = new File(dataFolder, "player-names.dat");
+        this.logger = logger;
+        this.maxSize = maxSize;
         this.nameCache = CacheBuilder.newBuilder()
-            .maximumSize(1000)
-            .expireAfterAccess(1, TimeUnit.HOURS)
+            .maximumSize(maxSize)
+            .recordStats()
             .build();
+        load();
+    }
+
+    private synchronized void load() {
+        if (!file.exists()) {
+            return;
+        }
+        // Later records win; insertion order keeps the most recently written last
+        Map<UUID, String> names = new LinkedHashMap<>();
+        int records = 0;
+        // End of the last complete record
+        long complete = 0;
+        boolean torn = false;
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataInputStream in = new DataInputStream(counter)) {
+            while (true) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String name = in.readUTF();
+                names.remove(uuid);
+                names.put(uuid, name);
+                records++;
+                complete = counter.getCount();
+            }
+        } catch (EOFException | UTFDataFormatException e) {
+            // End of file, or a record torn by a crash during an append
+            torn = complete < file.length();
+        } catch (IOException e) {
+            logger.severe("Failed to read " + file.getName() + ": " + e.getMessage());
+        }
+        nameCache.putAll(names);
+        fileRecords = records;
+        logger.info("Loaded " + names.size() + " player names.");
+
+        if (torn) {
+            // Otherwise the next append would be read as the rest of the torn record
+            logger.warning("Discarding a torn record at the end of " + file.getName() + ".");
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(complete);
+            } catch (IOException e) {
+                logger.severe("Failed to truncate " + file.getName() + ", rewriting it: " + e.getMessage());
+                rewrite();
+                return;
+            }
+        }
+        if (records > names.size() * 2 || names.size() > nameCache.size()) {
+            rewrite();
+        }
+    }
+
+    private void rewrite() {
+        // An open writer would keep appending to the replaced file
+        close();
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                for (Map.Entry<UUID, String> entry : nameCache.asMap().entrySet()) {
+                    writeRecord(out, entry.getKey(), entry.getValue());
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fileRecords = (int) nameCache.size();
+        } catch (IOException e) {
+            // The old file is still complete, just larger than needed
+            logger.severe("Failed to compact " + file.getName() + ": " + e.getMessage());
+        }
     }
 
     /**
@@ -38,21 +148,105 @@ public class PlayerNameCache {
             return CompletableFuture.completedFuture(cachedName);
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            // This can be a blocking operation, so it's run async
-            OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
-            String name = player.getName();
+        return CompletableFuture.supplyAsync(() -> lookup(uuid), asyncExecutor);
+    }
 
-            if (name != null) {
-                nameCache.put(uuid, name);
-                return name;
+    /**
+     * Asynchronously gets the names of several players at once, e.g. everyone on a
+     * GUI page. The names that are cached are returned right away; the rest are
+     * looked up together in a single task.
+     *
+     * @param uuids The UUIDs of the players.
+     * @return A CompletableFuture with a name for every UUID, already complete
+     *         when all of them were cached.
+     */
+    public CompletableFuture<Map<UUID, String>> getNames(@NotNull Collection<UUID> uuids) {
+        Map<UUID, String> names = new HashMap<>();
+        Set<UUID> missing = new HashSet<>();
+        for (UUID uuid : uuids) {
+            String cachedName = nameCache.getIfPresent(uuid);
+            if (cachedName != null) {
+                names.put(uuid, cachedName);
             } else {
-                // Fallback for players who have never joined or whose profiles can't be fetched
-                return uuid.toString().substring(0, 8);
+                missing.add(uuid);
             }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(names);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            for (UUID uuid : missing) {
+                names.put(uuid, lookup(uuid));
+            }
+            return names;
         }, asyncExecutor);
     }
 
+    /**
+     * Gets a player's name only if it is cached, without looking it up.
+     *
+     * @param uuid The UUID of the player.
+     * @return The name, or null if it is not cached.
+     */
+    @Nullable
+    public String getCachedName(@NotNull UUID uuid) {
+        // Not counted towards the hit rate; callers have usually just asked getNames()
+        return nameCache.asMap().get(uuid);
+    }
+
+    private String lookup(UUID uuid) {
+        // This can be a blocking operation, so callers run it async
+        OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+        String name = player.getName();
+
+        if (name != null) {
+            update(uuid, name);
+            return name;
+        } else {
+            // Fallback for players who have never joined or whose profiles can't be fetched
+            return uuid.toString().substring(0, 8);
+        }
+    }
+
+    /**
+     * Records a player's current name, e.g. when they join. Persisted in the
+     * background if it is new or changed.
+     *
+     * @param uuid The UUID of the player.
+     * @param name The player's name.
+     */
+    public void update(@NotNull UUID uuid, @NotNull String name) {
+        // Through asMap(), so it does not count towards the hit rate
+        if (name.equals(nameCache.asMap().put(uuid, name))) {
+            return;
+        }
+        fileExecutor.execute(() -> append(uuid, name));
+    }
+
+    private synchronized void append(UUID uuid, String name) {
+        try {
+            if (writer == null) {
+                file.getParentFile().mkdirs();
+                writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+            writeRecord(writer, uuid, name);
+            writer.flush();
+            if (++fileRecords > maxSize * 2) {
+                rewrite();
+            }
+        } catch (IOException e) {
+            // Still cached in memory; it is looked up again after a restart
+            logger.severe("Failed to write to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, UUID uuid, String name) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        out.writeUTF(name);
+    }
+
     /**
      * Proactively fetches and caches a player's name.
      *
@@ -64,6 +258,28 @@ public class PlayerNameCache {
         }
     }
 
+    /**
+     * Looks up every name that is not cached yet in the background, e.g. all sellers
+     * of active auctions at startup.
+     *
+     * @return A CompletableFuture with the number of names that were looked up.
+     */
+    public CompletableFuture<Integer> prefetchNames(@NotNull Collection<UUID> uuids) {
+        Set<UUID> missing = new HashSet<>();
+        for (UUID uuid : uuids) {
+            if (!nameCache.asMap().containsKey(uuid)) {
+                missing.add(uuid);
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            missing.forEach(this::lookup);
+            return missing.size();
+        }, asyncExecutor);
+    }
+
     /**
      * Removes a player's name from the cache.
      *
@@ -72,5 +288,30 @@ public class PlayerNameCache {
     public void invalidate(@NotNull UUID uuid) {
         nameCache.invalidate(uuid);
     }
-}
 
+    /**
+     * Hit and miss counters since startup.
+     */
+    public CacheStats stats() {
+        return nameCache.stats();
+    }
+
+    public long size() {
+        return nameCache.size();
+    }
+
+    /**
+     * Closes the file. Call once the file executor has finished.
+     */
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.severe("Failed to close " + file.getName() + ": " + e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.minekarta.playerauction.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTokensTest {
+
+    @Test
+    void tokenize_splitsOnNonWordCharacters_andLowerCases() {
+        assertEquals(List.of("diamond", "sword", "excalibur"),
+                SearchTokens.tokenize("DIAMOND_SWORD\nExcalibur!"));
+        assertEquals(List.of("sharpness", "5"), SearchTokens.tokenize("sharpness 5 sharpness"));
+        assertTrue(SearchTokens.tokenize(null).isEmpty());
+        assertTrue(SearchTokens.tokenize(" -- ").isEmpty());
+    }
+
+    @Test
+    void matches_requiresEveryQueryWordAsPrefix() {
+        String text = "diamond_sword\nexcalibur\nsharpness";
+
+        assertTrue(SearchTokens.matches(text, "dia"));
+        assertTrue(SearchTokens.matches(text, "Sword EXCAL"));
+        assertTrue(SearchTokens.matches(text, "  "));
+        assertFalse(SearchTokens.matches(text, "mond"));
+        assertFalse(SearchTokens.matches(text, "diamond axe"));
+    }
+}
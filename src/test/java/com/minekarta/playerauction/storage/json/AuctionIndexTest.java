@@ -0,0 +1,51 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.ItemMetadata;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.gui.model.AuctionCategory;
+import com.minekarta.playerauction.gui.model.SortOrder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the category views of {@link AuctionIndex}. Auctions carry their metadata,
+ * so no item is ever decoded.
+ */
+class AuctionIndexTest {
+
+    @Test
+    void auction_isListedInEveryMatchingCategory() {
+        AuctionIndex index = new AuctionIndex();
+        // Both a weapon and a block by AuctionCategory.matches
+        Auction sword = auction("STONE_SWORD", AuctionCategory.WEAPONS);
+        Auction dirt = auction("DIRT", AuctionCategory.BLOCKS);
+        index.put(sword);
+        index.put(dirt);
+
+        assertEquals(2, index.activeCount(AuctionCategory.ALL));
+        assertEquals(1, index.activeCount(AuctionCategory.WEAPONS));
+        assertEquals(2, index.activeCount(AuctionCategory.BLOCKS));
+        assertEquals(0, index.activeCount(AuctionCategory.MISC));
+        assertTrue(index.activeView(AuctionCategory.BLOCKS, SortOrder.NEWEST).contains(sword));
+        assertEquals(1, index.searchCount(List.of("stone"), AuctionCategory.BLOCKS));
+
+        index.put(sword.withStatus(AuctionStatus.EXPIRED));
+        assertEquals(0, index.activeCount(AuctionCategory.WEAPONS));
+        assertEquals(1, index.activeCount(AuctionCategory.BLOCKS));
+        assertEquals(0, index.searchCount(List.of("stone"), AuctionCategory.BLOCKS));
+    }
+
+    private static Auction auction(String material, AuctionCategory category) {
+        String name = material.toLowerCase().replace('_', ' ');
+        ItemMetadata metadata = new ItemMetadata(material, category, null, 1, name);
+        long now = System.currentTimeMillis();
+        return new Auction(UUID.randomUUID(), UUID.randomUUID(), SerializedItem.fromBase64("AAAA"), metadata,
+                10.0, null, null, now, now + 60_000, AuctionStatus.ACTIVE, 0);
+    }
+}
@@ -0,0 +1,114 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.minekarta.playerauction.auction.model.Auction;
+import com.minekarta.playerauction.auction.model.AuctionStatus;
+import com.minekarta.playerauction.common.ItemMetadata;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.gui.model.AuctionCategory;
+import com.minekarta.playerauction.storage.SerializedItemAdapter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays journals written by {@link AuctionJournal}. Items are resolved to a stub
+ * and every auction carries its metadata, so no item is ever decoded.
+ */
+class AuctionJournalTest {
+
+    private static final Logger LOGGER = Logger.getLogger(AuctionJournalTest.class.getName());
+
+    @TempDir
+    File dir;
+
+    @Test
+    void appendAfterTornTail_isReplayed() throws Exception {
+        File file = new File(dir, "auctions.journal");
+        Auction first = auction();
+        Auction second = auction();
+
+        AuctionJournal writer = new AuctionJournal(file, gson(), LOGGER);
+        writer.appendInsert(first);
+        writer.flush();
+        writer.close();
+        // A crash in the middle of the next append
+        Files.write(file.toPath(), "{\"op\":\"INSERT\",\"auction\":{\"id\":\"".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        AuctionJournal restarted = new AuctionJournal(file, gson(), LOGGER);
+        assertEquals(1, restarted.replay(new AuctionIndex()));
+        restarted.appendInsert(second);
+        restarted.flush();
+        restarted.close();
+
+        AuctionIndex index = new AuctionIndex();
+        assertEquals(2, new AuctionJournal(file, gson(), LOGGER).replay(index));
+        assertNotNull(index.get(first.id()));
+        assertNotNull(index.get(second.id()));
+    }
+
+    @Test
+    void appendAfterCompleteTail_addsNoBlankLine() throws Exception {
+        File file = new File(dir, "auctions.journal");
+
+        AuctionJournal writer = new AuctionJournal(file, gson(), LOGGER);
+        writer.appendInsert(auction());
+        writer.flush();
+        writer.close();
+
+        AuctionJournal restarted = new AuctionJournal(file, gson(), LOGGER);
+        restarted.replay(new AuctionIndex());
+        restarted.appendUpdate(auction());
+        restarted.flush();
+        restarted.close();
+
+        assertFalse(Files.readAllLines(file.toPath()).contains(""));
+    }
+
+    @Test
+    void updateOnTornTail_keepsLatestStatus() throws Exception {
+        File file = new File(dir, "auctions.journal");
+        Auction auction = auction();
+
+        AuctionJournal writer = new AuctionJournal(file, gson(), LOGGER);
+        writer.appendInsert(auction);
+        writer.flush();
+        writer.close();
+        Files.write(file.toPath(), "{\"op\":\"UPD".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        AuctionJournal restarted = new AuctionJournal(file, gson(), LOGGER);
+        restarted.replay(new AuctionIndex());
+        Auction expired = auction.withStatus(AuctionStatus.EXPIRED).withIncrementedVersion();
+        restarted.appendUpdate(expired);
+        restarted.flush();
+        restarted.close();
+
+        AuctionIndex index = new AuctionIndex();
+        new AuctionJournal(file, gson(), LOGGER).replay(index);
+        assertEquals(AuctionStatus.EXPIRED, index.get(auction.id()).status());
+        assertEquals(expired.version(), index.get(auction.id()).version());
+    }
+
+    private static Auction auction() {
+        ItemMetadata metadata = new ItemMetadata("DIRT", AuctionCategory.BLOCKS, null, 1, "dirt");
+        long now = System.currentTimeMillis();
+        return new Auction(UUID.randomUUID(), UUID.randomUUID(), SerializedItem.fromBase64("AAAA"), metadata,
+                10.0, null, null, now, now + 60_000, AuctionStatus.ACTIVE, 0);
+    }
+
+    private static Gson gson() {
+        SerializedItemAdapter items = new SerializedItemAdapter(
+                hash -> SerializedItem.fromBase64("AAAA").withHash(hash), item -> item, LOGGER);
+        return new GsonBuilder().registerTypeAdapter(SerializedItem.class, items).create();
+    }
+}
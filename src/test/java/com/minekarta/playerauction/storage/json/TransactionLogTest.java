@@ -0,0 +1,258 @@
+package com.minekarta.playerauction.storage.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.minekarta.playerauction.common.SerializedItem;
+import com.minekarta.playerauction.storage.SerializedItemAdapter;
+import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises {@link TransactionLog} on a temporary directory. Transactions carry
+ * stub items that are never decoded, so no server is needed.
+ */
+class TransactionLogTest {
+
+    private static final Logger LOGGER = Logger.getLogger(TransactionLogTest.class.getName());
+    // Small enough that a handful of transactions fill a segment
+    private static final long SEGMENT_BYTES = 600;
+
+    private static final Comparator<Transaction> HISTORY_ORDER = Comparator
+            .comparingLong(Transaction::timestamp).reversed()
+            .thenComparing(Transaction::id);
+
+    @TempDir
+    File dir;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @Test
+    void append_rotatesFullSegmentsAndWritesTheirIndex() throws Exception {
+        TransactionLog log = open();
+        List<String> closedNames = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            String closed = log.append(transaction(alice, bob, 1000 + i));
+            if (closed != null) {
+                closedNames.add(closed);
+            }
+        }
+        log.close();
+
+        assertFalse(closedNames.isEmpty(), "segments should have rotated");
+        assertEquals(12, log.size());
+        for (String name : closedNames) {
+            assertTrue(name.matches("transactions-\\d{4}-\\d{2}-\\d{2}-\\d{3}\\.log"), name);
+            assertTrue(new File(dir, name).exists(), name);
+            assertTrue(new File(dir, name + ".idx").exists(), name + ".idx");
+        }
+        // Numbered in order within the day
+        assertTrue(closedNames.get(0).endsWith("-001.log"));
+        assertEquals(12, TransactionLog.readAll(dir, gson(), LOGGER, t -> { }));
+    }
+
+    @Test
+    void open_terminatesTornLastLineBeforeAppending() throws Exception {
+        TransactionLog log = open();
+        Transaction first = transaction(alice, bob, 1000);
+        log.append(first);
+        log.close();
+        File segment = onlySegment();
+        // A crash in the middle of the next append
+        Files.write(segment.toPath(), "{\"id\":\"".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        TransactionLog reopened = open();
+        Transaction second = transaction(alice, bob, 2000);
+        reopened.append(second);
+        reopened.close();
+
+        List<UUID> ids = new ArrayList<>();
+        TransactionLog.readAll(dir, gson(), LOGGER, t -> ids.add(t.id()));
+        assertEquals(List.of(first.id(), second.id()), ids);
+    }
+
+    @Test
+    void index_summarizesClosedSegmentsAndIsRebuiltWhenLost() throws Exception {
+        TransactionLog log = open();
+        SerializedItem item = SerializedItem.fromBase64("AAAA");
+        for (int i = 0; i < 12; i++) {
+            // carol sells to herself every third time, which counts once
+            log.append(i % 3 == 0 ? transaction(carol, carol, 1000 + i, item) : transaction(alice, bob, 1000 + i, item));
+        }
+        log.close();
+
+        File index = new File(dir, closedSegments().get(0) + ".idx");
+        try (Reader reader = Files.newBufferedReader(index.toPath())) {
+            JsonObject summary = gson().fromJson(reader, JsonObject.class);
+            assertTrue(summary.get("entries").getAsInt() > 0);
+            assertTrue(summary.has("minTimestamp") && summary.has("maxTimestamp"));
+            assertTrue(summary.getAsJsonObject("items").has(item.hash()));
+        }
+
+        TransactionLog reopened = open();
+        assertEquals(8, reopened.count(alice));
+        assertEquals(8, reopened.count(bob));
+        assertEquals(4, reopened.count(carol));
+        assertEquals(0, reopened.count(UUID.randomUUID()));
+
+        Files.delete(index.toPath());
+        TransactionLog rebuilt = open();
+        assertTrue(index.exists(), "lost index should be rewritten");
+        assertEquals(12, rebuilt.size());
+        assertEquals(8, rebuilt.count(alice));
+        assertEquals(4, rebuilt.count(carol));
+        Map<String, Integer> references = new HashMap<>();
+        rebuilt.countItemReferences((hash, count) -> references.merge(hash, count, Integer::sum));
+        assertEquals(Map.of(item.hash(), 12), references);
+    }
+
+    @Test
+    void finishCompression_swapsInTheGzipAndKeepsItReadable() throws Exception {
+        TransactionLog log = open();
+        List<Transaction> written = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Transaction transaction = transaction(alice, bob, 1000 + i);
+            written.add(transaction);
+            log.append(transaction);
+        }
+        log.close();
+        String name = closedSegments().get(0);
+
+        File temp = log.compress(name);
+        assertTrue(temp.getName().endsWith(".gz.tmp"));
+        assertTrue(new File(dir, name).exists(), "original stays until finished");
+        log.finishCompression(name, temp);
+
+        assertFalse(temp.exists());
+        assertFalse(new File(dir, name).exists());
+        assertTrue(new File(dir, name + ".gz").exists());
+        assertEquals(12, TransactionLog.readAll(dir, gson(), LOGGER, t -> { }));
+
+        TransactionLog reopened = open();
+        assertFalse(reopened.open().contains(name), "compressed segment is not offered again");
+        written.sort(HISTORY_ORDER);
+        assertEquals(written, reopened.query(alice, null, 100).run());
+    }
+
+    @Test
+    void open_dropsPlainCopyOfAlreadyCompressedSegment() throws Exception {
+        TransactionLog log = open();
+        for (int i = 0; i < 12; i++) {
+            log.append(transaction(alice, bob, 1000 + i));
+        }
+        log.close();
+        String name = closedSegments().get(0);
+        File plain = new File(dir, name);
+        byte[] original = Files.readAllBytes(plain.toPath());
+        log.finishCompression(name, log.compress(name));
+        // As if the server stopped between the rename and the delete
+        Files.write(plain.toPath(), original);
+
+        open();
+        assertFalse(plain.exists());
+        assertEquals(12, TransactionLog.readAll(dir, gson(), LOGGER, t -> { }));
+    }
+
+    @Test
+    void query_pagesByCursorAcrossSegmentsWithTiedTimestamps() throws Exception {
+        TransactionLog log = open();
+        List<Transaction> aliceHistory = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            // Pairs share a timestamp, so pages must break ties by ID
+            long timestamp = 1000 + i / 2;
+            Transaction transaction = switch (i % 4) {
+                case 0 -> transaction(alice, bob, timestamp);   // alice buys
+                case 1 -> transaction(bob, alice, timestamp);   // alice sells
+                case 2 -> transaction(alice, alice, timestamp); // alice on both sides
+                default -> transaction(bob, carol, timestamp);  // not alice's
+            };
+            if (i % 4 != 3) {
+                aliceHistory.add(transaction);
+            }
+            log.append(transaction);
+        }
+        String oldest = closedSegments().get(0);
+        log.finishCompression(oldest, log.compress(oldest));
+        assertTrue(closedSegments().size() > 1, "history should span several segments");
+        aliceHistory.sort(HISTORY_ORDER);
+
+        assertEquals(aliceHistory.size(), log.count(alice));
+        for (int pageSize : new int[]{1, 3, 7, aliceHistory.size(), aliceHistory.size() + 5}) {
+            List<Transaction> paged = new ArrayList<>();
+            TransactionCursor cursor = null;
+            while (true) {
+                List<Transaction> page = log.query(alice, cursor, pageSize).run();
+                assertTrue(page.size() <= pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                paged.addAll(page);
+                cursor = TransactionCursor.of(page.get(page.size() - 1));
+            }
+            assertEquals(aliceHistory, paged, "page size " + pageSize);
+        }
+        log.close();
+
+        // The same from disk, with the current segment read back in
+        TransactionLog reopened = open();
+        List<Transaction> firstPage = reopened.query(alice, null, 5).run();
+        assertEquals(aliceHistory.subList(0, 5), firstPage);
+        assertEquals(aliceHistory.subList(5, 10),
+                reopened.query(alice, TransactionCursor.of(firstPage.get(4)), 5).run());
+    }
+
+    private TransactionLog open() throws Exception {
+        TransactionLog log = new TransactionLog(dir, SEGMENT_BYTES, gson(), LOGGER);
+        log.open();
+        return log;
+    }
+
+    private File onlySegment() {
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(".log"));
+        assertNotNull(segments);
+        assertEquals(1, segments.length);
+        return segments[0];
+    }
+
+    /**
+     * Closed segments, uncompressed or not, oldest first.
+     */
+    private List<String> closedSegments() {
+        SortedSet<String> names = new TreeSet<>();
+        for (String name : Objects.requireNonNull(dir.list())) {
+            if (name.endsWith(".idx")) {
+                names.add(name.substring(0, name.length() - ".idx".length()));
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    private static Transaction transaction(UUID actor, UUID seller, long timestamp) {
+        return transaction(actor, seller, timestamp, null);
+    }
+
+    private static Transaction transaction(UUID actor, UUID seller, long timestamp, SerializedItem item) {
+        return new Transaction(UUID.randomUUID(), UUID.randomUUID(), "SOLD", actor, seller, 10.0, null, item,
+                timestamp);
+    }
+
+    private static Gson gson() {
+        SerializedItemAdapter items = new SerializedItemAdapter(
+                hash -> SerializedItem.fromBase64("AAAA").withHash(hash), item -> item, LOGGER);
+        return new GsonBuilder().registerTypeAdapter(SerializedItem.class, items).create();
+    }
+}
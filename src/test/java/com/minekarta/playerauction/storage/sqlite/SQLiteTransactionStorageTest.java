@@ -0,0 +1,149 @@
+package com.minekarta.playerauction.storage.sqlite;
+
+import com.minekarta.playerauction.transaction.model.Transaction;
+import com.minekarta.playerauction.transaction.model.TransactionCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the history page and count queries of {@link SQLiteTransactionStorage} on a
+ * temporary database. Transactions carry no item, so no server is needed.
+ */
+class SQLiteTransactionStorageTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SQLiteTransactionStorageTest.class.getName());
+
+    // SQLite compares the IDs as text, which is not UUID.compareTo's order
+    private static final Comparator<Transaction> HISTORY_ORDER = Comparator
+            .comparingLong(Transaction::timestamp).reversed()
+            .thenComparing(transaction -> transaction.id().toString());
+
+    @TempDir
+    File dir;
+
+    private Connection conn;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + new File(dir, "test.db").getAbsolutePath());
+        try (Statement stmt = conn.createStatement()) {
+            // Owned by SQLiteItemBlobStore; the page query joins it for the item
+            stmt.execute("CREATE TABLE item_blobs (hash TEXT PRIMARY KEY, data BLOB NOT NULL) WITHOUT ROWID");
+        }
+        SQLiteTransactionStorage.migrate(conn, LOGGER);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void page_breaksTiedTimestampsByIdAndListsSelfTradesOnce() throws Exception {
+        List<Transaction> aliceHistory = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            // Four to a timestamp, so every page boundary can fall inside a tie
+            long timestamp = 1000 + i / 4;
+            Transaction transaction = switch (i % 4) {
+                case 0 -> transaction(alice, bob, timestamp);   // alice buys
+                case 1 -> transaction(bob, alice, timestamp);   // alice sells
+                case 2 -> transaction(alice, alice, timestamp); // alice on both sides
+                default -> transaction(bob, carol, timestamp);  // not alice's
+            };
+            if (i % 4 != 3) {
+                aliceHistory.add(transaction);
+            }
+            insert(transaction);
+        }
+        aliceHistory.sort(HISTORY_ORDER);
+
+        List<UUID> expected = aliceHistory.stream().map(Transaction::id).toList();
+        assertEquals(expected, page(alice, null, 100));
+        for (int pageSize : new int[]{1, 2, 3, 4, 7, expected.size() - 1, expected.size(), expected.size() + 5}) {
+            List<UUID> paged = new ArrayList<>();
+            TransactionCursor cursor = null;
+            while (true) {
+                List<UUID> page = page(alice, cursor, pageSize);
+                assertTrue(page.size() <= pageSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                paged.addAll(page);
+                assertTrue(paged.size() <= expected.size(), "page size " + pageSize + " repeats rows");
+                Transaction last = aliceHistory.get(expected.indexOf(page.get(page.size() - 1)));
+                cursor = TransactionCursor.of(last);
+            }
+            assertEquals(expected, paged, "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void page_afterLastTransactionIsEmpty() throws Exception {
+        Transaction only = transaction(alice, alice, 1000);
+        insert(only);
+
+        assertEquals(List.of(only.id()), page(alice, null, 1));
+        assertEquals(List.of(), page(alice, TransactionCursor.of(only), 1));
+        assertEquals(List.of(), page(carol, null, 10));
+    }
+
+    @Test
+    void count_countsEachTransactionOnce() throws Exception {
+        insert(transaction(alice, bob, 1000));
+        insert(transaction(bob, alice, 1000));
+        insert(transaction(alice, alice, 1001));
+        insert(transaction(alice, alice, 1002));
+        insert(transaction(bob, carol, 1003));
+        insert(transaction(null, alice, 1004));
+
+        assertEquals(5, SQLiteTransactionStorage.countByPlayer(conn, alice));
+        assertEquals(3, SQLiteTransactionStorage.countByPlayer(conn, bob));
+        assertEquals(1, SQLiteTransactionStorage.countByPlayer(conn, carol));
+        assertEquals(0, SQLiteTransactionStorage.countByPlayer(conn, UUID.randomUUID()));
+        assertEquals(5, page(alice, null, 100).size());
+    }
+
+    private void insert(Transaction transaction) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQLiteTransactionStorage.INSERT_TRANSACTION_IF_ABSENT)) {
+            SQLiteTransactionStorage.bindInsert(ps, transaction);
+            assertEquals(1, ps.executeUpdate());
+        }
+    }
+
+    private List<UUID> page(UUID player, TransactionCursor after, int limit) throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        try (PreparedStatement ps = SQLiteTransactionStorage.preparePlayerPage(conn, player, after, limit);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.add(UUID.fromString(rs.getString("id")));
+            }
+        }
+        return ids;
+    }
+
+    private static Transaction transaction(UUID actor, UUID seller, long timestamp) {
+        return new Transaction(UUID.randomUUID(), UUID.randomUUID(), "SOLD", actor, seller, 10.0, "Sold 1 item", null,
+                timestamp);
+    }
+}